@@ -0,0 +1,40 @@
+package timekeeper.users.benchmarks;
+
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import timekeeper.users.UsersApplication;
+
+/** Starts the application against an in-memory H2 database. */
+final class BenchmarkContext {
+
+  private BenchmarkContext() {}
+
+  /** Starts the application without a web server. */
+  static ConfigurableApplicationContext start(String name, String... extraArguments) {
+    return run(WebApplicationType.NONE, name, extraArguments);
+  }
+
+  /** Starts the application with its web server on a random port. */
+  static ConfigurableApplicationContext startWebServer(String name, String... extraArguments) {
+    return run(WebApplicationType.SERVLET, name, extraArguments);
+  }
+
+  private static ConfigurableApplicationContext run(
+      WebApplicationType webApplicationType, String name, String... extraArguments) {
+    String[] arguments = new String[8 + extraArguments.length];
+    arguments[0] = "--spring.datasource.url=jdbc:h2:mem:" + name + ";MODE=PostgreSQL";
+    arguments[1] = "--spring.datasource.driver-class-name=org.h2.Driver";
+    arguments[2] = "--spring.datasource.username=sa";
+    arguments[3] = "--spring.datasource.password=sa";
+    arguments[4] = "--spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect";
+    arguments[5] = "--spring.jpa.hibernate.ddl-auto=create-drop";
+    arguments[6] = "--spring.flyway.enabled=false";
+    arguments[7] = "--server.port=0";
+    System.arraycopy(extraArguments, 0, arguments, 8, extraArguments.length);
+    return new SpringApplicationBuilder(UsersApplication.class)
+        .web(webApplicationType)
+        .logStartupInfo(false)
+        .run(arguments);
+  }
+}
@@ -0,0 +1,48 @@
+package timekeeper.users.benchmarks;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/**
+ * Measures the time from starting the application to the response to its first lookup, with the
+ * default settings and with the prod profile. Only the first start in a JVM is cold, so run it with
+ * one iteration per fork: {@code java -jar build/libs/*-jmh.jar StartupBenchmark -f 10 -wi 0 -i 1}.
+ * For that reason {@code gradle jmh} leaves it out. H2 replaces PostgreSQL and its schema is
+ * created the same way for both profiles.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(10)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+public class StartupBenchmark {
+
+  @Param({"default", "prod"})
+  public String profile;
+
+  private ConfigurableApplicationContext context;
+
+  @Benchmark
+  public int timeToFirstRequest() throws IOException {
+    context = BenchmarkContext.startWebServer("startup", "--spring.profiles.active=" + profile);
+    String port = context.getEnvironment().getProperty("local.server.port");
+    HttpURLConnection connection =
+        (HttpURLConnection)
+            new URL("http://localhost:" + port + "/get-user-by-id?userId=1").openConnection();
+    try {
+      return connection.getResponseCode();
+    } finally {
+      connection.disconnect();
+    }
+  }
+
+  @TearDown(Level.Iteration)
+  public void tearDown() {
+    context.close();
+  }
+}
@@ -0,0 +1,68 @@
+package timekeeper.users.benchmarks;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import timekeeper.users.api.controllers.UserControllerImpl;
+import timekeeper.users.models.User;
+import timekeeper.users.services.contracts.UserService;
+
+/**
+ * Measures the controller and JSON serialisation cost on its own, with the service answered from
+ * memory.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class UserControllerBenchmark {
+
+  private static final User USER = new User(123L, "John", "Doe", "john.doe@email.com", 1234L, 0L);
+
+  @Param({"1", "100", "1000"})
+  public int pageSize;
+
+  private UserControllerImpl controller;
+  private ObjectWriter objectWriter;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    List<User> page = new ArrayList<>(pageSize);
+    for (long id = 0; id < pageSize; id++) {
+      page.add(new User(id, "First" + id, "Last" + id, "user" + id + "@example.com", 1234L));
+    }
+    // Stub-only mocks do not record their invocations, so they add little to each call
+    UserService userService = mock(UserService.class, withSettings().stubOnly());
+    when(userService.getUserById(USER.getUserId())).thenReturn(Optional.of(USER));
+    when(userService.getUsersByApprover(1234L, null, pageSize)).thenReturn(page);
+    ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+    controller = new UserControllerImpl(userService, objectMapper);
+    objectWriter = objectMapper.writer();
+  }
+
+  @Benchmark
+  public byte[] getUserById() throws Exception {
+    ResponseEntity<User> response = controller.getUserById(USER.getUserId(), null);
+    return objectWriter.writeValueAsBytes(response.getBody());
+  }
+
+  @Benchmark
+  public ResponseEntity<User> getUserByIdNotModified() {
+    return controller.getUserById(USER.getUserId(), "\"123-0\"");
+  }
+
+  @Benchmark
+  public byte[] getUsersByApprover() throws Exception {
+    ResponseEntity response = controller.getUsersByApprover(1234L, null, pageSize);
+    return objectWriter.writeValueAsBytes(response.getBody());
+  }
+}
@@ -0,0 +1,103 @@
+package timekeeper.users.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import timekeeper.users.models.User;
+import timekeeper.users.services.contracts.UserService;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class UserServiceBenchmark {
+
+  private static final int USERS = 10_000;
+  private static final int REPORTS_PER_APPROVER = 50;
+
+  @Param({"0", "10000"})
+  public int cacheSize;
+
+  private ConfigurableApplicationContext context;
+  private UserService userService;
+  private long approverId;
+  private long otherApproverId;
+  private long[] userIds;
+  private final AtomicLong createdUsers = new AtomicLong();
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    context =
+        BenchmarkContext.start(
+            "user-service-" + cacheSize, "--users.cache.maximum-size=" + cacheSize);
+    userService = context.getBean(UserService.class);
+
+    approverId =
+        userService.createUser("Approver", "Zero", "approver@example.com", null).getUserId();
+    otherApproverId =
+        userService.createUser("Approver", "One", "other.approver@example.com", null).getUserId();
+    List<User> users = new ArrayList<>(USERS);
+    for (int i = 0; i < USERS; i++) {
+      Long userApproverId = i < REPORTS_PER_APPROVER ? approverId : otherApproverId;
+      users.add(new User(null, "First" + i, "Last" + i, emailOf(i), userApproverId));
+    }
+    userIds = userService.createUsers(users).stream().mapToLong(User::getUserId).toArray();
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    context.close();
+  }
+
+  @Benchmark
+  public Optional<User> getUserById() {
+    return userService.getUserById(userIds[randomIndex()]);
+  }
+
+  @Benchmark
+  public Optional<User> getUserByEmail() {
+    return userService.getUserByEmail(emailOf(randomIndex()));
+  }
+
+  @Benchmark
+  public Optional<User> getUserByName() {
+    int i = randomIndex();
+    return userService.getUserByName("First" + i, "Last" + i);
+  }
+
+  @Benchmark
+  public List<User> getUsersByApprover() {
+    return userService.getUsersByApprover(approverId, null, REPORTS_PER_APPROVER);
+  }
+
+  @Benchmark
+  public User createUser() {
+    long n = createdUsers.incrementAndGet();
+    return userService.createUser("New", "User" + n, "new.user" + n + "@example.com", null);
+  }
+
+  @Benchmark
+  public Optional<User> updateUser() {
+    int i = randomIndex();
+    return userService.updateUser(
+        userIds[i], "First" + i, "Last" + i, emailOf(i), approverId, null);
+  }
+
+  @Benchmark
+  public boolean patchUser() {
+    int i = randomIndex();
+    return userService.patchUser(userIds[i], null, null, null, approverId, false, null);
+  }
+
+  private static int randomIndex() {
+    return ThreadLocalRandom.current().nextInt(USERS);
+  }
+
+  private static String emailOf(int i) {
+    return "user" + i + "@example.com";
+  }
+}
@@ -0,0 +1,32 @@
+package timekeeper.users.api.controllers;
+
+import static org.springframework.http.HttpStatus.*;
+
+import java.util.List;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import timekeeper.users.api.docs.CacheControllerDocs;
+import timekeeper.users.cache.UserCache;
+import timekeeper.users.models.CacheStatistics;
+
+@RestController
+public class CacheControllerImpl implements CacheControllerDocs {
+
+  private final UserCache userCache;
+
+  @Autowired
+  public CacheControllerImpl(UserCache userCache) {
+    this.userCache = userCache;
+  }
+
+  @Override
+  public ResponseEntity<List<CacheStatistics>> getUserCacheStatistics() {
+    try {
+      return new ResponseEntity<>(userCache.getStatistics(), OK);
+    } catch (Exception e) {
+      throw new ResponseStatusException(INTERNAL_SERVER_ERROR, e.getLocalizedMessage());
+    }
+  }
+}
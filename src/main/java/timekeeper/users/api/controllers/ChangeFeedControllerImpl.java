@@ -0,0 +1,136 @@
+package timekeeper.users.api.controllers;
+
+import static org.springframework.http.HttpStatus.*;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import timekeeper.users.api.docs.ChangeFeedControllerDocs;
+import timekeeper.users.changes.ChangeFeedNotifier;
+import timekeeper.users.models.ChangeCursor;
+import timekeeper.users.models.ChangeFeedEntry;
+import timekeeper.users.models.ChangeFeedPage;
+import timekeeper.users.services.contracts.UserChangeService;
+
+@RestController
+public class ChangeFeedControllerImpl implements ChangeFeedControllerDocs {
+
+  static final int MAX_CHANGES_PAGE_SIZE = 1000;
+  static final int MAX_WAIT_SECONDS = 60;
+  static final int STREAM_PAGE_SIZE = 500;
+
+  private final UserChangeService userChangeService;
+  private final ChangeFeedNotifier changeFeedNotifier;
+  private final Duration streamTimeout;
+
+  @Autowired
+  public ChangeFeedControllerImpl(
+      UserChangeService userChangeService,
+      ChangeFeedNotifier changeFeedNotifier,
+      @Value("${users.changes.stream-timeout:30m}") Duration streamTimeout) {
+    this.userChangeService = userChangeService;
+    this.changeFeedNotifier = changeFeedNotifier;
+    this.streamTimeout = streamTimeout;
+  }
+
+  @Override
+  public DeferredResult<ResponseEntity<ChangeFeedPage>> getUserChanges(
+      String cursor, int limit, int waitSeconds) {
+    if (limit < 1
+        || limit > MAX_CHANGES_PAGE_SIZE
+        || waitSeconds < 0
+        || waitSeconds > MAX_WAIT_SECONDS)
+      throw new ResponseStatusException(
+          BAD_REQUEST,
+          "The limit must be between 1 and "
+              + MAX_CHANGES_PAGE_SIZE
+              + " and the wait between 0 and "
+              + MAX_WAIT_SECONDS
+              + " seconds");
+    ChangeCursor after = parseCursor(cursor);
+
+    DeferredResult<ResponseEntity<ChangeFeedPage>> result =
+        new DeferredResult<>(TimeUnit.SECONDS.toMillis(Math.max(waitSeconds, 1)));
+    ChangeFeedPage page;
+    try {
+      page = userChangeService.getChanges(after, limit);
+    } catch (Exception e) {
+      throw new ResponseStatusException(INTERNAL_SERVER_ERROR, e.getLocalizedMessage());
+    }
+    if (!page.getChanges().isEmpty() || waitSeconds == 0) {
+      result.setResult(new ResponseEntity<>(page, OK));
+      return result;
+    }
+
+    ChangeFeedNotifier.Subscription subscription =
+        changeFeedNotifier.subscribe(
+            after,
+            limit,
+            next -> {
+              result.setResult(new ResponseEntity<>(next, OK));
+              return false;
+            });
+    result.onTimeout(
+        () ->
+            result.setResult(
+                new ResponseEntity<>(
+                    new ChangeFeedPage(Collections.emptyList(), after.toString()), OK)));
+    result.onCompletion(subscription::cancel);
+    return result;
+  }
+
+  @Override
+  public ResponseEntity<String> getLatestUserChangeCursor() {
+    try {
+      return new ResponseEntity<>(userChangeService.getLatestCursor().toString(), OK);
+    } catch (Exception e) {
+      throw new ResponseStatusException(INTERNAL_SERVER_ERROR, e.getLocalizedMessage());
+    }
+  }
+
+  @Override
+  public SseEmitter streamUserChanges(String cursor, String lastEventId) {
+    ChangeCursor after = parseCursor(lastEventId != null ? lastEventId : cursor);
+    SseEmitter emitter = new SseEmitter(streamTimeout.toMillis());
+    ChangeFeedNotifier.Subscription subscription =
+        changeFeedNotifier.subscribe(
+            after,
+            STREAM_PAGE_SIZE,
+            page -> {
+              try {
+                for (ChangeFeedEntry entry : page.getChanges()) {
+                  emitter.send(
+                      SseEmitter.event()
+                          .id(entry.getCursor())
+                          .name(entry.getChangeType().name())
+                          .data(entry));
+                }
+                return true;
+              } catch (IOException | IllegalStateException e) {
+                emitter.completeWithError(e);
+                return false;
+              }
+            },
+            // The client reconnects and resumes from its Last-Event-ID
+            emitter::complete);
+    emitter.onCompletion(subscription::cancel);
+    emitter.onTimeout(subscription::cancel);
+    return emitter;
+  }
+
+  private static ChangeCursor parseCursor(String cursor) {
+    try {
+      return ChangeCursor.parse(cursor);
+    } catch (IllegalArgumentException e) {
+      throw new ResponseStatusException(BAD_REQUEST, e.getLocalizedMessage());
+    }
+  }
+}
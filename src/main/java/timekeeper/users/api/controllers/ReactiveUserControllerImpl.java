@@ -0,0 +1,73 @@
+package timekeeper.users.api.controllers;
+
+import static org.springframework.http.HttpStatus.*;
+import static timekeeper.users.api.controllers.UserControllerImpl.MAX_PAGE_SIZE;
+
+import java.util.List;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Mono;
+import timekeeper.users.api.docs.ReactiveUserControllerDocs;
+import timekeeper.users.exceptions.InvalidUserException;
+import timekeeper.users.models.User;
+import timekeeper.users.services.contracts.ReactiveUserService;
+
+/**
+ * Serves the reactive lookups through Servlet async processing: the request thread is handed back
+ * to Tomcat as soon as the Mono is returned and the response is written when it completes.
+ */
+@RestController
+public class ReactiveUserControllerImpl implements ReactiveUserControllerDocs {
+
+  private final ReactiveUserService reactiveUserService;
+
+  @Autowired
+  public ReactiveUserControllerImpl(ReactiveUserService reactiveUserService) {
+    this.reactiveUserService = reactiveUserService;
+  }
+
+  @Override
+  public Mono<ResponseEntity<User>> getUserById(long userId, String ifNoneMatch) {
+    return toResponse(reactiveUserService.getUserById(userId), ifNoneMatch);
+  }
+
+  @Override
+  public Mono<ResponseEntity<User>> getUserByEmail(String emailAddress, String ifNoneMatch) {
+    return toResponse(reactiveUserService.getUserByEmail(emailAddress), ifNoneMatch);
+  }
+
+  @Override
+  public Mono<ResponseEntity<User>> getUserByName(
+      String firstName, String lastName, String ifNoneMatch) {
+    return toResponse(reactiveUserService.getUserByName(firstName, lastName), ifNoneMatch);
+  }
+
+  @Override
+  public Mono<ResponseEntity<List<User>>> getUsersByApprover(
+      long approverId, Long after, int limit) {
+    if (limit < 1 || limit > MAX_PAGE_SIZE)
+      throw new ResponseStatusException(
+          BAD_REQUEST, "The limit must be between 1 and " + MAX_PAGE_SIZE);
+    return reactiveUserService
+        .getUsersByApprover(approverId, after, limit)
+        .map(
+            usersList ->
+                UserControllerImpl.pageOfReports(
+                    "/reactive/get-users-by-approver", approverId, usersList, limit))
+        .onErrorMap(ReactiveUserControllerImpl::toResponseStatusException);
+  }
+
+  private static Mono<ResponseEntity<User>> toResponse(Mono<User> user, String ifNoneMatch) {
+    return user.map(found -> UserControllerImpl.conditionalResponse(found, ifNoneMatch))
+        .defaultIfEmpty(new ResponseEntity<>(NOT_FOUND))
+        .onErrorMap(ReactiveUserControllerImpl::toResponseStatusException);
+  }
+
+  private static ResponseStatusException toResponseStatusException(Throwable e) {
+    if (e instanceof InvalidUserException)
+      return new ResponseStatusException(NOT_FOUND, e.getLocalizedMessage());
+    return new ResponseStatusException(INTERNAL_SERVER_ERROR, e.getLocalizedMessage());
+  }
+}
@@ -1,33 +1,63 @@
 package timekeeper.users.api.controllers;
 
+import static org.springframework.http.HttpHeaders.LINK;
 import static org.springframework.http.HttpStatus.*;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import timekeeper.users.api.docs.UserControllerDocs;
+import timekeeper.users.api.export.UserExportFormat;
+import timekeeper.users.api.export.UserExportWriter;
+import timekeeper.users.exceptions.ApprovalCycleException;
 import timekeeper.users.exceptions.InvalidUserException;
 import timekeeper.users.models.User;
+import timekeeper.users.models.UserField;
+import timekeeper.users.models.UserFields;
+import timekeeper.users.models.UserKeys;
 import timekeeper.users.services.contracts.UserService;
 
 @RestController
 public class UserControllerImpl implements UserControllerDocs {
 
+  static final int MAX_BATCH_SIZE = 1000;
+  static final int MAX_CREATE_BATCH_SIZE = 10000;
+  static final int MAX_PAGE_SIZE = 1000;
+  static final int MAX_SEARCH_RESULTS = 50;
+  static final CacheControl CACHE_CONTROL = CacheControl.noCache().cachePrivate();
+
   private final UserService userService;
+  private final ObjectMapper objectMapper;
 
   @Autowired
-  public UserControllerImpl(UserService userService) {
+  public UserControllerImpl(UserService userService, ObjectMapper objectMapper) {
     this.userService = userService;
+    this.objectMapper = objectMapper;
   }
 
   @Override
-  public ResponseEntity<User> getUserById(long userId) {
+  public ResponseEntity<User> getUserById(long userId, String ifNoneMatch) {
     try {
       return userService
           .getUserById(userId)
-          .map(user -> new ResponseEntity<>(user, OK))
+          .map(user -> conditionalResponse(user, ifNoneMatch))
           .orElseGet(() -> new ResponseEntity<>(NOT_FOUND));
     } catch (Exception e) {
       throw new ResponseStatusException(INTERNAL_SERVER_ERROR, e.getLocalizedMessage());
@@ -35,11 +65,11 @@ public class UserControllerImpl implements UserControllerDocs {
   }
 
   @Override
-  public ResponseEntity<User> getUserByEmail(String emailAddress) {
+  public ResponseEntity<User> getUserByEmail(String emailAddress, String ifNoneMatch) {
     try {
       return userService
           .getUserByEmail(emailAddress)
-          .map(user -> new ResponseEntity<>(user, OK))
+          .map(user -> conditionalResponse(user, ifNoneMatch))
           .orElseGet(() -> new ResponseEntity<>(NOT_FOUND));
     } catch (Exception e) {
       throw new ResponseStatusException(INTERNAL_SERVER_ERROR, e.getLocalizedMessage());
@@ -47,17 +77,218 @@ public class UserControllerImpl implements UserControllerDocs {
   }
 
   @Override
-  public ResponseEntity<User> getUserByName(String firstName, String lastName) {
+  public ResponseEntity<User> getUserByName(String firstName, String lastName, String ifNoneMatch) {
     try {
       return userService
           .getUserByName(firstName, lastName)
-          .map(user -> new ResponseEntity<>(user, OK))
+          .map(user -> conditionalResponse(user, ifNoneMatch))
+          .orElseGet(() -> new ResponseEntity<>(NOT_FOUND));
+    } catch (Exception e) {
+      throw new ResponseStatusException(INTERNAL_SERVER_ERROR, e.getLocalizedMessage());
+    }
+  }
+
+  @Override
+  public ResponseEntity<UserFields> getUserFieldsById(long userId, String fields) {
+    Set<UserField> selectedFields = parseFields(fields);
+    try {
+      return userService
+          .getUserFieldsById(userId, selectedFields)
+          .map(user -> ResponseEntity.ok().cacheControl(CACHE_CONTROL).body(user))
           .orElseGet(() -> new ResponseEntity<>(NOT_FOUND));
     } catch (Exception e) {
       throw new ResponseStatusException(INTERNAL_SERVER_ERROR, e.getLocalizedMessage());
     }
   }
 
+  @Override
+  public ResponseEntity<UserFields> getUserFieldsByEmail(String emailAddress, String fields) {
+    Set<UserField> selectedFields = parseFields(fields);
+    try {
+      return userService
+          .getUserFieldsByEmail(emailAddress, selectedFields)
+          .map(user -> ResponseEntity.ok().cacheControl(CACHE_CONTROL).body(user))
+          .orElseGet(() -> new ResponseEntity<>(NOT_FOUND));
+    } catch (Exception e) {
+      throw new ResponseStatusException(INTERNAL_SERVER_ERROR, e.getLocalizedMessage());
+    }
+  }
+
+  @Override
+  public ResponseEntity<UserFields> getUserFieldsByName(
+      String firstName, String lastName, String fields) {
+    Set<UserField> selectedFields = parseFields(fields);
+    try {
+      return userService
+          .getUserFieldsByName(firstName, lastName, selectedFields)
+          .map(user -> ResponseEntity.ok().cacheControl(CACHE_CONTROL).body(user))
+          .orElseGet(() -> new ResponseEntity<>(NOT_FOUND));
+    } catch (Exception e) {
+      throw new ResponseStatusException(INTERNAL_SERVER_ERROR, e.getLocalizedMessage());
+    }
+  }
+
+  private static Set<UserField> parseFields(String fields) {
+    try {
+      return UserField.parse(fields);
+    } catch (IllegalArgumentException e) {
+      throw new ResponseStatusException(BAD_REQUEST, e.getLocalizedMessage());
+    }
+  }
+
+  static ResponseEntity<User> conditionalResponse(User user, String ifNoneMatch) {
+    String eTag = eTagOf(user);
+    if (ifNoneMatch != null && matchesAny(ifNoneMatch, eTag))
+      return ResponseEntity.status(NOT_MODIFIED).eTag(eTag).cacheControl(CACHE_CONTROL).build();
+    return ResponseEntity.ok().eTag(eTag).cacheControl(CACHE_CONTROL).body(user);
+  }
+
+  static String eTagOf(User user) {
+    return "\"" + user.getUserId() + "-" + user.getVersion() + "\"";
+  }
+
+  private static boolean matchesAny(String ifNoneMatch, String eTag) {
+    for (String candidate : ifNoneMatch.split(",")) {
+      String tag = candidate.trim();
+      if (tag.startsWith("W/")) tag = tag.substring(2);
+      if (tag.equals("*") || tag.equals(eTag)) return true;
+    }
+    return false;
+  }
+
+  /**
+   * Returns the version named by an If-Match header for this user, or null when any version is
+   * acceptable. Weak tags never match, as If-Match requires strong comparison.
+   */
+  private static Long expectedVersion(Long userId, String ifMatch) {
+    if (ifMatch == null || ifMatch.trim().equals("*")) return null;
+    String prefix = "\"" + userId + "-";
+    for (String candidate : ifMatch.split(",")) {
+      String tag = candidate.trim();
+      if (tag.startsWith(prefix) && tag.endsWith("\"") && tag.length() > prefix.length() + 1) {
+        try {
+          return Long.valueOf(tag.substring(prefix.length(), tag.length() - 1));
+        } catch (NumberFormatException e) {
+          break;
+        }
+      }
+    }
+    throw new ResponseStatusException(
+        PRECONDITION_FAILED, "If-Match does not match the current version of user " + userId);
+  }
+
+  @Override
+  public ResponseEntity<List<User>> searchUsers(String query, int limit) {
+    if (query == null || query.trim().isEmpty() || limit < 1 || limit > MAX_SEARCH_RESULTS)
+      throw new ResponseStatusException(
+          BAD_REQUEST,
+          "The query must not be blank and the limit must be between 1 and " + MAX_SEARCH_RESULTS);
+    try {
+      return new ResponseEntity<>(userService.searchUsers(query, limit), OK);
+    } catch (Exception e) {
+      throw new ResponseStatusException(INTERNAL_SERVER_ERROR, e.getLocalizedMessage());
+    }
+  }
+
+  @Override
+  public ResponseEntity<List<User>> getAllReportsByApprover(long approverId) {
+    try {
+      return new ResponseEntity<>(userService.getAllReportsOfApprover(approverId), OK);
+    } catch (InvalidUserException e) {
+      throw new ResponseStatusException(NOT_FOUND, e.getLocalizedMessage());
+    } catch (Exception e) {
+      throw new ResponseStatusException(INTERNAL_SERVER_ERROR, e.getLocalizedMessage());
+    }
+  }
+
+  @Override
+  public ResponseEntity<List<User>> getApprovalChain(long userId) {
+    try {
+      return new ResponseEntity<>(userService.getApprovalChain(userId), OK);
+    } catch (InvalidUserException e) {
+      throw new ResponseStatusException(NOT_FOUND, e.getLocalizedMessage());
+    } catch (ApprovalCycleException e) {
+      throw new ResponseStatusException(CONFLICT, e.getLocalizedMessage());
+    } catch (Exception e) {
+      throw new ResponseStatusException(INTERNAL_SERVER_ERROR, e.getLocalizedMessage());
+    }
+  }
+
+  @Override
+  public ResponseEntity<List<User>> getUsers(UserKeys keys) {
+    List<Long> ids = keys.getUserIds() == null ? Collections.emptyList() : keys.getUserIds();
+    List<String> emails =
+        keys.getEmailAddresses() == null ? Collections.emptyList() : keys.getEmailAddresses();
+    int batchSize = ids.size() + emails.size();
+    if (batchSize == 0 || batchSize > MAX_BATCH_SIZE)
+      throw new ResponseStatusException(
+          BAD_REQUEST,
+          "Between 1 and " + MAX_BATCH_SIZE + " userIds and email addresses must be supplied");
+    try {
+      Map<Long, User> usersById = new LinkedHashMap<>();
+      if (!ids.isEmpty())
+        userService.getUsersByIds(ids).forEach(user -> usersById.put(user.getUserId(), user));
+      if (!emails.isEmpty())
+        userService.getUsersByEmails(emails).forEach(user -> usersById.put(user.getUserId(), user));
+      return new ResponseEntity<>(new ArrayList<>(usersById.values()), OK);
+    } catch (Exception e) {
+      throw new ResponseStatusException(INTERNAL_SERVER_ERROR, e.getLocalizedMessage());
+    }
+  }
+
+  @Override
+  public ResponseEntity<List<UserFields>> getUserFields(UserKeys keys, String fields) {
+    List<Long> ids = keys.getUserIds() == null ? Collections.emptyList() : keys.getUserIds();
+    List<String> emails =
+        keys.getEmailAddresses() == null ? Collections.emptyList() : keys.getEmailAddresses();
+    int batchSize = ids.size() + emails.size();
+    if (batchSize == 0 || batchSize > MAX_BATCH_SIZE)
+      throw new ResponseStatusException(
+          BAD_REQUEST,
+          "Between 1 and " + MAX_BATCH_SIZE + " userIds and email addresses must be supplied");
+    Set<UserField> selectedFields = parseFields(fields);
+    try {
+      Map<Long, UserFields> usersById = new LinkedHashMap<>();
+      if (!ids.isEmpty())
+        userService
+            .getUserFieldsByIds(ids, selectedFields)
+            .forEach(user -> usersById.put(user.getUserId(), user));
+      if (!emails.isEmpty())
+        userService
+            .getUserFieldsByEmails(emails, selectedFields)
+            .forEach(user -> usersById.put(user.getUserId(), user));
+      return new ResponseEntity<>(new ArrayList<>(usersById.values()), OK);
+    } catch (Exception e) {
+      throw new ResponseStatusException(INTERNAL_SERVER_ERROR, e.getLocalizedMessage());
+    }
+  }
+
+  @Override
+  public ResponseEntity<StreamingResponseBody> exportUsers(String format) {
+    UserExportFormat exportFormat;
+    try {
+      exportFormat = UserExportFormat.valueOf(format.toUpperCase(Locale.ROOT));
+    } catch (IllegalArgumentException e) {
+      throw new ResponseStatusException(BAD_REQUEST, "Unsupported export format: " + format);
+    }
+    StreamingResponseBody body =
+        outputStream -> {
+          try (UserExportWriter writer = exportFormat.open(outputStream, objectMapper)) {
+            userService.forEachUser(
+                user -> {
+                  try {
+                    writer.write(user);
+                  } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                  }
+                });
+          } catch (UncheckedIOException e) {
+            throw e.getCause();
+          }
+        };
+    return ResponseEntity.ok().contentType(exportFormat.getMediaType()).body(body);
+  }
+
   @Override
   public ResponseEntity createUser(
       String firstName, String lastName, String emailAddress, Long approverId) {
@@ -71,14 +302,87 @@ public class UserControllerImpl implements UserControllerDocs {
     }
   }
 
+  @Override
+  public ResponseEntity<List<User>> createUsers(List<User> users) {
+    if (users == null
+        || users.isEmpty()
+        || users.size() > MAX_CREATE_BATCH_SIZE
+        || users.stream().anyMatch(UserControllerImpl::isMissingRequiredFields))
+      throw new ResponseStatusException(
+          BAD_REQUEST,
+          "Between 1 and "
+              + MAX_CREATE_BATCH_SIZE
+              + " users, each with a first name, last name and email address, must be supplied");
+    try {
+      return new ResponseEntity<>(userService.createUsers(users), CREATED);
+    } catch (InvalidUserException e) {
+      throw new ResponseStatusException(CONFLICT, e.getLocalizedMessage());
+    } catch (Exception e) {
+      throw new ResponseStatusException(INTERNAL_SERVER_ERROR, e.getLocalizedMessage());
+    }
+  }
+
+  private static boolean isMissingRequiredFields(User user) {
+    return user == null
+        || user.getFirstName() == null
+        || user.getLastName() == null
+        || user.getEmailAddress() == null;
+  }
+
   @Override
   public ResponseEntity updateUser(
-      Long userId, String firstName, String lastName, String emailAddress, Long approverId) {
+      Long userId,
+      String firstName,
+      String lastName,
+      String emailAddress,
+      Long approverId,
+      String ifMatch) {
+    Long expectedVersion = expectedVersion(userId, ifMatch);
     try {
       return userService
-          .updateUser(userId, firstName, lastName, emailAddress, approverId)
-          .map(absence -> new ResponseEntity<>(absence, OK))
+          .updateUser(userId, firstName, lastName, emailAddress, approverId, expectedVersion)
+          .map(user -> ResponseEntity.ok().eTag(eTagOf(user)).body(user))
           .orElseGet(() -> new ResponseEntity<>(NOT_FOUND));
+    } catch (InvalidUserException e) {
+      throw new ResponseStatusException(CONFLICT, e.getLocalizedMessage());
+    } catch (OptimisticLockingFailureException e) {
+      throw new ResponseStatusException(
+          PRECONDITION_FAILED, "User " + userId + " has been modified since it was read");
+    } catch (Exception e) {
+      throw new ResponseStatusException(INTERNAL_SERVER_ERROR, e.getLocalizedMessage());
+    }
+  }
+
+  @Override
+  public ResponseEntity patchUser(
+      Long userId,
+      String firstName,
+      String lastName,
+      String emailAddress,
+      Long approverId,
+      boolean clearApprover,
+      String ifMatch) {
+    if (firstName == null
+        && lastName == null
+        && emailAddress == null
+        && approverId == null
+        && !clearApprover)
+      throw new ResponseStatusException(
+          BAD_REQUEST, "At least one field to update must be supplied");
+    if (approverId != null && clearApprover)
+      throw new ResponseStatusException(
+          BAD_REQUEST, "Either approverId or clearApprover may be supplied, not both");
+    Long expectedVersion = expectedVersion(userId, ifMatch);
+    try {
+      if (!userService.patchUser(
+          userId, firstName, lastName, emailAddress, approverId, clearApprover, expectedVersion))
+        return new ResponseEntity<>(NOT_FOUND);
+      return new ResponseEntity<>("User with userId " + userId + " successfully updated.", OK);
+    } catch (InvalidUserException e) {
+      throw new ResponseStatusException(CONFLICT, e.getLocalizedMessage());
+    } catch (OptimisticLockingFailureException e) {
+      throw new ResponseStatusException(
+          PRECONDITION_FAILED, "User " + userId + " has been modified since it was read");
     } catch (Exception e) {
       throw new ResponseStatusException(INTERNAL_SERVER_ERROR, e.getLocalizedMessage());
     }
@@ -97,14 +401,109 @@ public class UserControllerImpl implements UserControllerDocs {
   }
 
   @Override
-  public ResponseEntity getUsersByApprover(long approverId) {
+  public ResponseEntity<List<User>> deleteUsers(List<Long> userIds) {
+    if (userIds == null || userIds.isEmpty() || userIds.size() > MAX_BATCH_SIZE)
+      throw new ResponseStatusException(
+          BAD_REQUEST, "Between 1 and " + MAX_BATCH_SIZE + " userIds must be supplied");
+    try {
+      return new ResponseEntity<>(userService.deleteUsers(userIds), OK);
+    } catch (Exception e) {
+      throw new ResponseStatusException(INTERNAL_SERVER_ERROR, e.getLocalizedMessage());
+    }
+  }
+
+  @Override
+  public ResponseEntity reassignReports(long fromApproverId, long toApproverId) {
+    if (fromApproverId == toApproverId)
+      throw new ResponseStatusException(BAD_REQUEST, "The approvers must be different");
     try {
-      List<User> usersList = userService.getAllUsersByApprover(approverId);
-      return new ResponseEntity<>(usersList, OK);
+      int reassigned = userService.reassignReports(fromApproverId, toApproverId);
+      return new ResponseEntity<>(
+          reassigned
+              + " reports moved from approver "
+              + fromApproverId
+              + " to approver "
+              + toApproverId
+              + ".",
+          OK);
     } catch (InvalidUserException e) {
       throw new ResponseStatusException(NOT_FOUND, e.getLocalizedMessage());
+    } catch (ApprovalCycleException e) {
+      throw new ResponseStatusException(CONFLICT, e.getLocalizedMessage());
     } catch (Exception e) {
       throw new ResponseStatusException(INTERNAL_SERVER_ERROR, e.getLocalizedMessage());
     }
   }
+
+  @Override
+  public ResponseEntity getUsersByApprover(long approverId, Long after, int limit) {
+    if (limit < 1 || limit > MAX_PAGE_SIZE)
+      throw new ResponseStatusException(
+          BAD_REQUEST, "The limit must be between 1 and " + MAX_PAGE_SIZE);
+    try {
+      List<User> usersList = userService.getUsersByApprover(approverId, after, limit);
+      return pageOfReports("/get-users-by-approver", approverId, usersList, limit);
+    } catch (InvalidUserException e) {
+      throw new ResponseStatusException(NOT_FOUND, e.getLocalizedMessage());
+    } catch (Exception e) {
+      throw new ResponseStatusException(INTERNAL_SERVER_ERROR, e.getLocalizedMessage());
+    }
+  }
+
+  @Override
+  public ResponseEntity<List<UserFields>> getUserFieldsByApprover(
+      long approverId, Long after, int limit, String fields) {
+    if (limit < 1 || limit > MAX_PAGE_SIZE)
+      throw new ResponseStatusException(
+          BAD_REQUEST, "The limit must be between 1 and " + MAX_PAGE_SIZE);
+    Set<UserField> selectedFields = parseFields(fields);
+    try {
+      List<UserFields> usersList =
+          userService.getUserFieldsByApprover(approverId, after, limit, selectedFields);
+      String fieldsParameter =
+          selectedFields.stream().map(UserField::getProperty).collect(Collectors.joining(","));
+      return pageOf(
+          "/get-users-by-approver",
+          approverId,
+          usersList,
+          UserFields::getUserId,
+          limit,
+          "&fields=" + fieldsParameter);
+    } catch (InvalidUserException e) {
+      throw new ResponseStatusException(NOT_FOUND, e.getLocalizedMessage());
+    } catch (Exception e) {
+      throw new ResponseStatusException(INTERNAL_SERVER_ERROR, e.getLocalizedMessage());
+    }
+  }
+
+  static ResponseEntity<List<User>> pageOfReports(
+      String path, long approverId, List<User> usersList, int limit) {
+    return pageOf(path, approverId, usersList, User::getUserId, limit, "");
+  }
+
+  private static <T> ResponseEntity<List<T>> pageOf(
+      String path,
+      long approverId,
+      List<T> usersList,
+      Function<T, Long> userIdOf,
+      int limit,
+      String extraParameters) {
+    HttpHeaders headers = new HttpHeaders();
+    if (usersList.size() == limit) {
+      long lastUserId = userIdOf.apply(usersList.get(usersList.size() - 1));
+      headers.add(
+          LINK,
+          "<"
+              + path
+              + "?approverId="
+              + approverId
+              + "&after="
+              + lastUserId
+              + "&limit="
+              + limit
+              + extraParameters
+              + ">; rel=\"next\"");
+    }
+    return new ResponseEntity<>(usersList, headers, OK);
+  }
 }
@@ -0,0 +1,45 @@
+package timekeeper.users.api.controllers;
+
+import static org.springframework.http.HttpStatus.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.sql.SQLException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import timekeeper.users.api.docs.UserImportControllerDocs;
+import timekeeper.users.exceptions.InvalidImportException;
+import timekeeper.users.exceptions.InvalidUserException;
+import timekeeper.users.models.UserImportReport;
+import timekeeper.users.services.contracts.UserImportService;
+
+@RestController
+public class UserImportControllerImpl implements UserImportControllerDocs {
+
+  private final UserImportService userImportService;
+
+  @Autowired
+  public UserImportControllerImpl(UserImportService userImportService) {
+    this.userImportService = userImportService;
+  }
+
+  @Override
+  public ResponseEntity<UserImportReport> importUsers(InputStream csv) {
+    try {
+      return new ResponseEntity<>(userImportService.importUsers(csv), OK);
+    } catch (InvalidImportException e) {
+      throw new ResponseStatusException(BAD_REQUEST, e.getLocalizedMessage());
+    } catch (InvalidUserException e) {
+      throw new ResponseStatusException(CONFLICT, e.getLocalizedMessage());
+    } catch (IOException e) {
+      // Failures of the COPY itself surface as IOExceptions caused by the SQLException
+      if (e.getCause() instanceof SQLException)
+        throw new ResponseStatusException(INTERNAL_SERVER_ERROR, e.getLocalizedMessage());
+      throw new ResponseStatusException(BAD_REQUEST, "The file could not be read");
+    } catch (Exception e) {
+      throw new ResponseStatusException(INTERNAL_SERVER_ERROR, e.getLocalizedMessage());
+    }
+  }
+}
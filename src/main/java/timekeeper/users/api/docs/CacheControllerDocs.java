@@ -0,0 +1,22 @@
+package timekeeper.users.api.docs;
+
+import io.swagger.annotations.*;
+import java.util.List;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import timekeeper.users.models.CacheStatistics;
+
+@Api(value = "Cache API", description = "Endpoints exposing the state of the user lookup cache")
+public interface CacheControllerDocs {
+  @ApiOperation(
+      value = "Get hit, miss and eviction statistics for the user cache",
+      response = CacheStatistics.class,
+      responseContainer = "List")
+  @ApiResponses(
+      value = {
+        @ApiResponse(code = 200, message = "OK"),
+        @ApiResponse(code = 500, message = "Internal server error")
+      })
+  @GetMapping("/get-user-cache-statistics")
+  ResponseEntity<List<CacheStatistics>> getUserCacheStatistics();
+}
@@ -0,0 +1,75 @@
+package timekeeper.users.api.docs;
+
+import io.swagger.annotations.*;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import timekeeper.users.models.ChangeFeedPage;
+
+@Api(
+    value = "User Change Feed API",
+    description = "Endpoints that let other services follow changes to users incrementally")
+public interface ChangeFeedControllerDocs {
+  @ApiOperation(
+      value = "Get the user changes made after a cursor, oldest first",
+      notes =
+          "With waitSeconds set, the request is held open until there is at least one change or the"
+              + " wait runs out, when an empty page with the same cursor is returned.",
+      response = ChangeFeedPage.class)
+  @ApiResponses(
+      value = {
+        @ApiResponse(code = 200, message = "OK"),
+        @ApiResponse(
+            code = 400,
+            message =
+                "The cursor is invalid, the limit is not between 1 and 1000 or the wait is not"
+                    + " between 0 and 60 seconds"),
+        @ApiResponse(code = 500, message = "Internal server error")
+      })
+  @GetMapping("/get-user-changes")
+  DeferredResult<ResponseEntity<ChangeFeedPage>> getUserChanges(
+      @ApiParam(value = "The cursor of the last change already seen, or none to start from the top")
+          @RequestParam(required = false)
+          String cursor,
+      @ApiParam(value = "The maximum number of changes to return", defaultValue = "100")
+          @RequestParam(defaultValue = "100")
+          int limit,
+      @ApiParam(value = "How long to wait for a change when there are none", defaultValue = "0")
+          @RequestParam(defaultValue = "0")
+          int waitSeconds);
+
+  @ApiOperation(
+      value = "Get the cursor of the latest user change",
+      notes = "Take this before a full export to follow the feed from the point the export began.",
+      response = String.class)
+  @ApiResponses(
+      value = {
+        @ApiResponse(code = 200, message = "OK"),
+        @ApiResponse(code = 500, message = "Internal server error")
+      })
+  @GetMapping("/get-latest-user-change-cursor")
+  ResponseEntity<String> getLatestUserChangeCursor();
+
+  @ApiOperation(
+      value = "Stream user changes as server-sent events",
+      notes =
+          "Each event has the change's cursor as its id, so a reconnecting client resumes from"
+              + " Last-Event-ID.")
+  @ApiResponses(
+      value = {
+        @ApiResponse(code = 200, message = "OK"),
+        @ApiResponse(code = 400, message = "The cursor is invalid")
+      })
+  @GetMapping(value = "/stream-user-changes", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+  SseEmitter streamUserChanges(
+      @ApiParam(value = "The cursor of the last change already seen, or none to start from the top")
+          @RequestParam(required = false)
+          String cursor,
+      @ApiParam(value = "Sent by EventSource when reconnecting, takes precedence over cursor")
+          @RequestHeader(value = "Last-Event-ID", required = false)
+          String lastEventId);
+}
@@ -0,0 +1,91 @@
+package timekeeper.users.api.docs;
+
+import io.swagger.annotations.*;
+import java.util.List;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestParam;
+import reactor.core.publisher.Mono;
+import timekeeper.users.models.User;
+
+@Api(
+    value = "Reactive User API",
+    description =
+        "Non-blocking versions of the user lookups, which hold no request thread while waiting on"
+            + " the database")
+public interface ReactiveUserControllerDocs {
+  @ApiOperation(value = "Get a user by userId", response = User.class)
+  @ApiResponses(
+      value = {
+        @ApiResponse(code = 200, message = "OK"),
+        @ApiResponse(code = 304, message = "Not modified since the ETag in If-None-Match"),
+        @ApiResponse(code = 404, message = "No user found with id: {userId}"),
+        @ApiResponse(code = 500, message = "Internal server error")
+      })
+  @GetMapping("/reactive/get-user-by-id")
+  Mono<ResponseEntity<User>> getUserById(
+      @ApiParam(value = "The id of the user", required = true) long userId,
+      @ApiParam(value = "ETags of copies the caller already holds")
+          @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false)
+          String ifNoneMatch);
+
+  @ApiOperation(value = "Get a user by their email address", response = User.class)
+  @ApiResponses(
+      value = {
+        @ApiResponse(code = 200, message = "OK"),
+        @ApiResponse(code = 304, message = "Not modified since the ETag in If-None-Match"),
+        @ApiResponse(code = 404, message = "No user found with email address: {emailAddress}"),
+        @ApiResponse(code = 500, message = "Internal server error")
+      })
+  @GetMapping("/reactive/get-user-by-email")
+  Mono<ResponseEntity<User>> getUserByEmail(
+      @ApiParam(
+              value = "The email address of the user you want to get the details of",
+              required = true)
+          String emailAddress,
+      @ApiParam(value = "ETags of copies the caller already holds")
+          @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false)
+          String ifNoneMatch);
+
+  @ApiOperation(value = "Get a user by their first name and last name", response = User.class)
+  @ApiResponses(
+      value = {
+        @ApiResponse(code = 200, message = "OK"),
+        @ApiResponse(code = 304, message = "Not modified since the ETag in If-None-Match"),
+        @ApiResponse(code = 404, message = "No user found with name: {firstName} {lastName}"),
+        @ApiResponse(code = 500, message = "Internal server error")
+      })
+  @GetMapping("/reactive/get-user-by-name")
+  Mono<ResponseEntity<User>> getUserByName(
+      @ApiParam(value = "The first name of the user", required = true) String firstName,
+      @ApiParam(value = "The last name of the user", required = true) String lastName,
+      @ApiParam(value = "ETags of copies the caller already holds")
+          @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false)
+          String ifNoneMatch);
+
+  @ApiOperation(
+      value = "Get a page of the users who have the specified approver, ordered by userId",
+      notes = "When the page is full a Link header with rel=\"next\" points at the following page.",
+      response = List.class)
+  @ApiResponses(
+      value = {
+        @ApiResponse(code = 200, message = "OK"),
+        @ApiResponse(code = 400, message = "The limit must be between 1 and 1000"),
+        @ApiResponse(code = 404, message = "No approver found with id: {approverId}"),
+        @ApiResponse(code = 500, message = "Internal server error")
+      })
+  @GetMapping("/reactive/get-users-by-approver")
+  Mono<ResponseEntity<List<User>>> getUsersByApprover(
+      @ApiParam(
+              value = "The id of the approver that you want to get the users for",
+              required = true)
+          long approverId,
+      @ApiParam(value = "Only return users with a userId greater than this")
+          @RequestParam(required = false)
+          Long after,
+      @ApiParam(value = "The maximum number of users to return", defaultValue = "100")
+          @RequestParam(defaultValue = "100")
+          int limit);
+}
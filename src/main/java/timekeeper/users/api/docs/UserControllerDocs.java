@@ -2,30 +2,46 @@ package timekeeper.users.api.docs;
 
 import io.swagger.annotations.*;
 import java.util.List;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import timekeeper.users.models.User;
+import timekeeper.users.models.UserFields;
+import timekeeper.users.models.UserKeys;
 
 @Api(value = "User API", description = "Endpoints allowing CRUD operations on the user table")
 public interface UserControllerDocs {
+  String FIELDS_DESCRIPTION =
+      "Comma-separated user properties to return. The userId is always included";
+
   @ApiOperation(value = "Get a user by userId", response = User.class)
   @ApiResponses(
       value = {
         @ApiResponse(code = 200, message = "OK"),
+        @ApiResponse(code = 304, message = "Not modified since the ETag in If-None-Match"),
         @ApiResponse(code = 404, message = "No user found with id: {userId}"),
         @ApiResponse(code = 500, message = "Internal server error")
       })
   @GetMapping("/get-user-by-id")
   ResponseEntity<User> getUserById(
-      @ApiParam(value = "The id of the user", required = true) long userId);
+      @ApiParam(value = "The id of the user", required = true) long userId,
+      @ApiParam(value = "ETags of copies the caller already holds")
+          @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false)
+          String ifNoneMatch);
 
   @ApiOperation(value = "Get a user by their email address", response = User.class)
   @ApiResponses(
       value = {
         @ApiResponse(code = 200, message = "OK"),
+        @ApiResponse(code = 304, message = "Not modified since the ETag in If-None-Match"),
         @ApiResponse(code = 404, message = "No user found with email address: {emailAddress}"),
         @ApiResponse(code = 500, message = "Internal server error")
       })
@@ -34,24 +50,35 @@ public interface UserControllerDocs {
       @ApiParam(
               value = "The email address of the user you want to get the details of",
               required = true)
-          String emailAddress);
+          String emailAddress,
+      @ApiParam(value = "ETags of copies the caller already holds")
+          @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false)
+          String ifNoneMatch);
 
   @ApiOperation(value = "Get a user by their first name and last name", response = User.class)
   @ApiResponses(
       value = {
         @ApiResponse(code = 200, message = "OK"),
+        @ApiResponse(code = 304, message = "Not modified since the ETag in If-None-Match"),
         @ApiResponse(code = 404, message = "No user found with name: {firstName} {lastName}"),
         @ApiResponse(code = 500, message = "Internal server error")
       })
   @GetMapping("/get-user-by-name")
   ResponseEntity<User> getUserByName(
       @ApiParam(value = "The first name of the user", required = true) String firstName,
-      @ApiParam(value = "The last name of the user", required = true) String lastName);
+      @ApiParam(value = "The last name of the user", required = true) String lastName,
+      @ApiParam(value = "ETags of copies the caller already holds")
+          @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false)
+          String ifNoneMatch);
 
-  @ApiOperation(value = "Get a all users who have the specified approver", response = List.class)
+  @ApiOperation(
+      value = "Get a page of the users who have the specified approver, ordered by userId",
+      notes = "When the page is full a Link header with rel=\"next\" points at the following page.",
+      response = List.class)
   @ApiResponses(
       value = {
         @ApiResponse(code = 200, message = "OK"),
+        @ApiResponse(code = 400, message = "The limit must be between 1 and 1000"),
         @ApiResponse(code = 404, message = "No approver found with id: {approverId}"),
         @ApiResponse(code = 500, message = "Internal server error")
       })
@@ -60,13 +87,212 @@ public interface UserControllerDocs {
       @ApiParam(
               value = "The id of the approver that you want to get the users for",
               required = true)
-          long approverId);
+          long approverId,
+      @ApiParam(value = "Only return users with a userId greater than this")
+          @RequestParam(required = false)
+          Long after,
+      @ApiParam(value = "The maximum number of users to return", defaultValue = "100")
+          @RequestParam(defaultValue = "100")
+          int limit);
+
+  @ApiOperation(
+      value = "Get only some fields of a user by userId",
+      notes = "Served instead of the full user when a fields parameter is supplied.",
+      response = UserFields.class)
+  @ApiResponses(
+      value = {
+        @ApiResponse(code = 200, message = "OK"),
+        @ApiResponse(code = 400, message = "Unknown user field: {field}"),
+        @ApiResponse(code = 404, message = "No user found with id: {userId}"),
+        @ApiResponse(code = 500, message = "Internal server error")
+      })
+  @GetMapping(value = "/get-user-by-id", params = "fields")
+  ResponseEntity<UserFields> getUserFieldsById(
+      @ApiParam(value = "The id of the user", required = true) long userId,
+      @ApiParam(value = FIELDS_DESCRIPTION, example = "emailAddress,approverId", required = true)
+          @RequestParam
+          String fields);
+
+  @ApiOperation(
+      value = "Get only some fields of a user by their email address",
+      notes = "Served instead of the full user when a fields parameter is supplied.",
+      response = UserFields.class)
+  @ApiResponses(
+      value = {
+        @ApiResponse(code = 200, message = "OK"),
+        @ApiResponse(code = 400, message = "Unknown user field: {field}"),
+        @ApiResponse(code = 404, message = "No user found with email address: {emailAddress}"),
+        @ApiResponse(code = 500, message = "Internal server error")
+      })
+  @GetMapping(value = "/get-user-by-email", params = "fields")
+  ResponseEntity<UserFields> getUserFieldsByEmail(
+      @ApiParam(value = "The email address of the user", required = true) String emailAddress,
+      @ApiParam(value = FIELDS_DESCRIPTION, example = "emailAddress,approverId", required = true)
+          @RequestParam
+          String fields);
+
+  @ApiOperation(
+      value = "Get only some fields of a user by their first name and last name",
+      notes = "Served instead of the full user when a fields parameter is supplied.",
+      response = UserFields.class)
+  @ApiResponses(
+      value = {
+        @ApiResponse(code = 200, message = "OK"),
+        @ApiResponse(code = 400, message = "Unknown user field: {field}"),
+        @ApiResponse(code = 404, message = "No user found with name: {firstName} {lastName}"),
+        @ApiResponse(code = 500, message = "Internal server error")
+      })
+  @GetMapping(value = "/get-user-by-name", params = "fields")
+  ResponseEntity<UserFields> getUserFieldsByName(
+      @ApiParam(value = "The first name of the user", required = true) String firstName,
+      @ApiParam(value = "The last name of the user", required = true) String lastName,
+      @ApiParam(value = FIELDS_DESCRIPTION, example = "emailAddress,approverId", required = true)
+          @RequestParam
+          String fields);
+
+  @ApiOperation(
+      value = "Get only some fields of a page of the users who have the specified approver",
+      notes = "Served instead of the full users when a fields parameter is supplied.",
+      response = UserFields.class,
+      responseContainer = "List")
+  @ApiResponses(
+      value = {
+        @ApiResponse(code = 200, message = "OK"),
+        @ApiResponse(
+            code = 400,
+            message = "Unknown user field: {field}, or the limit is not between 1 and 1000"),
+        @ApiResponse(code = 404, message = "No approver found with id: {approverId}"),
+        @ApiResponse(code = 500, message = "Internal server error")
+      })
+  @GetMapping(value = "/get-users-by-approver", params = "fields")
+  ResponseEntity<List<UserFields>> getUserFieldsByApprover(
+      @ApiParam(value = "The id of the approver", required = true) long approverId,
+      @ApiParam(value = "Only return users with a userId greater than this")
+          @RequestParam(required = false)
+          Long after,
+      @ApiParam(value = "The maximum number of users to return", defaultValue = "100")
+          @RequestParam(defaultValue = "100")
+          int limit,
+      @ApiParam(value = FIELDS_DESCRIPTION, example = "emailAddress,approverId", required = true)
+          @RequestParam
+          String fields);
+
+  @ApiOperation(
+      value = "Search for users whose name or email address starts with the query",
+      notes = "Matching is case-insensitive and also matches against \"firstName lastName\".",
+      response = User.class,
+      responseContainer = "List")
+  @ApiResponses(
+      value = {
+        @ApiResponse(code = 200, message = "OK"),
+        @ApiResponse(
+            code = 400,
+            message = "The query must not be blank and the limit must be between 1 and 50"),
+        @ApiResponse(code = 500, message = "Internal server error")
+      })
+  @GetMapping("/search-users")
+  ResponseEntity<List<User>> searchUsers(
+      @ApiParam(value = "The start of a first name, last name, full name or email address")
+          @RequestParam
+          String query,
+      @ApiParam(value = "The maximum number of users to return", defaultValue = "10")
+          @RequestParam(defaultValue = "10")
+          int limit);
+
+  @ApiOperation(
+      value = "Get every user who reports to the approver, directly or indirectly",
+      response = User.class,
+      responseContainer = "List")
+  @ApiResponses(
+      value = {
+        @ApiResponse(code = 200, message = "OK"),
+        @ApiResponse(code = 404, message = "No approver found with id: {approverId}"),
+        @ApiResponse(code = 500, message = "Internal server error")
+      })
+  @GetMapping("/get-all-reports-by-approver")
+  ResponseEntity<List<User>> getAllReportsByApprover(
+      @ApiParam(value = "The id of the approver", required = true) long approverId);
+
+  @ApiOperation(
+      value = "Get the chain of approvers from a user up to the top of the organisation",
+      notes = "The user is the first element and the top-level approver is the last.",
+      response = User.class,
+      responseContainer = "List")
+  @ApiResponses(
+      value = {
+        @ApiResponse(code = 200, message = "OK"),
+        @ApiResponse(code = 404, message = "No user found with id: {userId}"),
+        @ApiResponse(
+            code = 409,
+            message = "The approval chain of user {userId} loops back to user {approverId}"),
+        @ApiResponse(code = 500, message = "Internal server error")
+      })
+  @GetMapping("/get-approval-chain")
+  ResponseEntity<List<User>> getApprovalChain(
+      @ApiParam(value = "The id of the user", required = true) long userId);
+
+  @ApiOperation(
+      value = "Get all users matching any of the given userIds or email addresses",
+      notes = "A POST, as a batch of 1000 keys would not fit in the query string of a GET request.",
+      response = User.class,
+      responseContainer = "List")
+  @ApiResponses(
+      value = {
+        @ApiResponse(code = 200, message = "OK"),
+        @ApiResponse(
+            code = 400,
+            message = "Between 1 and 1000 userIds and email addresses must be supplied"),
+        @ApiResponse(code = 500, message = "Internal server error")
+      })
+  @PostMapping("/get-users")
+  ResponseEntity<List<User>> getUsers(
+      @ApiParam(value = "The userIds and email addresses to look up", required = true) @RequestBody
+          UserKeys keys);
+
+  @ApiOperation(
+      value = "Get only some fields of all users matching any of the userIds or email addresses",
+      notes = "Served instead of the full users when a fields parameter is supplied.",
+      response = UserFields.class,
+      responseContainer = "List")
+  @ApiResponses(
+      value = {
+        @ApiResponse(code = 200, message = "OK"),
+        @ApiResponse(
+            code = 400,
+            message =
+                "Unknown user field: {field}, or not between 1 and 1000 userIds and email addresses"),
+        @ApiResponse(code = 500, message = "Internal server error")
+      })
+  @PostMapping(value = "/get-users", params = "fields")
+  ResponseEntity<List<UserFields>> getUserFields(
+      @ApiParam(value = "The userIds and email addresses to look up", required = true) @RequestBody
+          UserKeys keys,
+      @ApiParam(value = FIELDS_DESCRIPTION, example = "emailAddress,approverId", required = true)
+          @RequestParam
+          String fields);
+
+  @ApiOperation(
+      value = "Export every user as newline-delimited JSON or CSV",
+      notes = "The response is streamed from a database cursor, so it starts immediately.")
+  @ApiResponses(
+      value = {
+        @ApiResponse(code = 200, message = "OK"),
+        @ApiResponse(code = 400, message = "Unsupported export format: {format}"),
+        @ApiResponse(code = 500, message = "Internal server error")
+      })
+  @GetMapping("/export-users")
+  ResponseEntity<StreamingResponseBody> exportUsers(
+      @ApiParam(value = "The export format", allowableValues = "ndjson, csv")
+          @RequestParam(defaultValue = "ndjson")
+          String format);
 
   @ApiOperation(value = "Add a new user to the database")
   @ApiResponses(
       value = {
         @ApiResponse(code = 201, message = "User {emailAddress} successfully created."),
-        @ApiResponse(code = 409, message = "User already exists with id: {userId}"),
+        @ApiResponse(
+            code = 409,
+            message = "User already exists with email address: {emailAddress}"),
         @ApiResponse(code = 500, message = "Internal server error")
       })
   @PostMapping("/create-user")
@@ -77,11 +303,37 @@ public interface UserControllerDocs {
       @ApiParam(value = "The id of the user who approves the new users absences", required = true)
           Long approverId);
 
+  @ApiOperation(
+      value = "Add many new users to the database in one request",
+      response = User.class,
+      responseContainer = "List")
+  @ApiResponses(
+      value = {
+        @ApiResponse(code = 201, message = "Created"),
+        @ApiResponse(
+            code = 400,
+            message =
+                "Between 1 and 10000 users, each with a first name, last name and email address, must be supplied"),
+        @ApiResponse(code = 409, message = "Users already exist with email addresses: [...]"),
+        @ApiResponse(code = 500, message = "Internal server error")
+      })
+  @PostMapping("/create-users")
+  ResponseEntity<List<User>> createUsers(
+      @ApiParam(value = "The users to create. Any userId supplied is ignored", required = true)
+          @RequestBody
+          List<User> users);
+
   @ApiOperation(value = "Update a user in the database")
   @ApiResponses(
       value = {
         @ApiResponse(code = 200, message = "OK"),
         @ApiResponse(code = 404, message = "No user found with id: {userId}"),
+        @ApiResponse(
+            code = 409,
+            message = "User already exists with email address: {emailAddress}"),
+        @ApiResponse(
+            code = 412,
+            message = "The user has been modified since the ETag in If-Match was issued"),
         @ApiResponse(code = 500, message = "Internal server error")
       })
   @PutMapping("/update-user")
@@ -93,7 +345,50 @@ public interface UserControllerDocs {
       @ApiParam(value = "The email address of the user to be updated", required = true)
           String emailAddress,
       @ApiParam(value = "The id of the user who approves the users absences", required = true)
-          Long approverId);
+          Long approverId,
+      @ApiParam(value = "Only update the user if it still has this ETag")
+          @RequestHeader(value = HttpHeaders.IF_MATCH, required = false)
+          String ifMatch);
+
+  @ApiOperation(
+      value = "Update only the supplied fields of a user",
+      notes =
+          "Fields that are left out keep their current value. Use clearApprover to remove the"
+              + " approver, since leaving out approverId keeps it.")
+  @ApiResponses(
+      value = {
+        @ApiResponse(code = 200, message = "OK"),
+        @ApiResponse(
+            code = 400,
+            message =
+                "At least one field to update must be supplied, and not both approverId and"
+                    + " clearApprover"),
+        @ApiResponse(code = 404, message = "No user found with id: {userId}"),
+        @ApiResponse(
+            code = 409,
+            message = "User already exists with email address: {emailAddress}"),
+        @ApiResponse(
+            code = 412,
+            message = "The user has been modified since the ETag in If-Match was issued"),
+        @ApiResponse(code = 500, message = "Internal server error")
+      })
+  @PatchMapping("/patch-user")
+  ResponseEntity patchUser(
+      @ApiParam(value = "The id of the user to be updated", required = true) Long userId,
+      @ApiParam(value = "The new first name of the user") @RequestParam(required = false)
+          String firstName,
+      @ApiParam(value = "The new last name of the user") @RequestParam(required = false)
+          String lastName,
+      @ApiParam(value = "The new email address of the user") @RequestParam(required = false)
+          String emailAddress,
+      @ApiParam(value = "The id of the new approver of the user") @RequestParam(required = false)
+          Long approverId,
+      @ApiParam(value = "Remove the approver of the user", defaultValue = "false")
+          @RequestParam(defaultValue = "false")
+          boolean clearApprover,
+      @ApiParam(value = "Only update the user if it still has this ETag")
+          @RequestHeader(value = HttpHeaders.IF_MATCH, required = false)
+          String ifMatch);
 
   @ApiOperation(value = "Delete a user from the database")
   @ApiResponses(
@@ -105,4 +400,43 @@ public interface UserControllerDocs {
   @DeleteMapping("/delete-user")
   ResponseEntity deleteUser(
       @ApiParam(value = "The id of the user to be deleted", required = true) long userId);
+
+  @ApiOperation(
+      value = "Delete many users in one request",
+      notes =
+          "Returns the users that were deleted. Ids with no user are skipped. The ids are sent as"
+              + " a JSON array in the body, as 1000 of them would not fit in the query string.",
+      response = User.class,
+      responseContainer = "List")
+  @ApiResponses(
+      value = {
+        @ApiResponse(code = 200, message = "OK"),
+        @ApiResponse(code = 400, message = "Between 1 and 1000 userIds must be supplied"),
+        @ApiResponse(code = 500, message = "Internal server error")
+      })
+  @DeleteMapping("/delete-users")
+  ResponseEntity<List<User>> deleteUsers(
+      @ApiParam(value = "The ids of the users to be deleted", required = true) @RequestBody
+          List<Long> userIds);
+
+  @ApiOperation(
+      value = "Move every report of one approver to another",
+      notes =
+          "The old approver need not exist any more, for example after they have left. The new"
+              + " approver may be one of the reports, and then keeps reporting to the old one.")
+  @ApiResponses(
+      value = {
+        @ApiResponse(code = 200, message = "OK"),
+        @ApiResponse(code = 400, message = "The approvers must be different"),
+        @ApiResponse(code = 404, message = "No approver found with id: {toApproverId}"),
+        @ApiResponse(
+            code = 409,
+            message =
+                "User {toApproverId} reports to user {fromApproverId} through user {userId}, who would then report to user {toApproverId}"),
+        @ApiResponse(code = 500, message = "Internal server error")
+      })
+  @PatchMapping("/reassign-reports")
+  ResponseEntity reassignReports(
+      @ApiParam(value = "The id of the current approver", required = true) long fromApproverId,
+      @ApiParam(value = "The id of the new approver", required = true) long toApproverId);
 }
@@ -0,0 +1,37 @@
+package timekeeper.users.api.docs;
+
+import io.swagger.annotations.*;
+import java.io.InputStream;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import timekeeper.users.models.UserImportReport;
+
+@Api(value = "User Import API", description = "Endpoints for creating users in bulk from files")
+public interface UserImportControllerDocs {
+  @ApiOperation(
+      value = "Create users from a CSV file",
+      notes =
+          "The header row must name the firstName, lastName and emailAddress columns, and may name"
+              + " an approverId or approverEmailAddress column. An approver named by email address"
+              + " may be another row of the same file. Valid rows are imported and every other row"
+              + " is reported with the reason. The file is streamed, so it can be of any size.",
+      response = UserImportReport.class)
+  @ApiImplicitParams(
+      @ApiImplicitParam(
+          name = "csv",
+          value = "The users to create, as CSV",
+          paramType = "body",
+          dataType = "string",
+          required = true))
+  @ApiResponses(
+      value = {
+        @ApiResponse(code = 200, message = "OK"),
+        @ApiResponse(
+            code = 400,
+            message = "The header must name the firstName, lastName and emailAddress columns"),
+        @ApiResponse(code = 409, message = "Users were created concurrently with the same emails"),
+        @ApiResponse(code = 500, message = "Internal server error")
+      })
+  @PostMapping(value = "/import-users", consumes = "text/csv")
+  ResponseEntity<UserImportReport> importUsers(@ApiParam(hidden = true) InputStream csv);
+}
@@ -0,0 +1,91 @@
+package timekeeper.users.api.export;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import org.springframework.http.MediaType;
+import timekeeper.users.models.User;
+
+public enum UserExportFormat {
+  NDJSON("application/x-ndjson") {
+    @Override
+    public UserExportWriter open(OutputStream outputStream, ObjectMapper objectMapper)
+        throws IOException {
+      ObjectWriter userWriter =
+          objectMapper.writerFor(User.class).without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+      JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream);
+      generator.setRootValueSeparator(null);
+      return new UserExportWriter() {
+        @Override
+        public void write(User user) throws IOException {
+          userWriter.writeValue(generator, user);
+          generator.writeRaw('\n');
+        }
+
+        @Override
+        public void close() throws IOException {
+          generator.close();
+        }
+      };
+    }
+  },
+  CSV("text/csv") {
+    @Override
+    public UserExportWriter open(OutputStream outputStream, ObjectMapper objectMapper)
+        throws IOException {
+      Writer writer =
+          new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+      writer.write("userId,firstName,lastName,emailAddress,approverId\n");
+      return new UserExportWriter() {
+        @Override
+        public void write(User user) throws IOException {
+          writer.write(String.valueOf(user.getUserId()));
+          writer.write(',');
+          writer.write(escapeCsv(user.getFirstName()));
+          writer.write(',');
+          writer.write(escapeCsv(user.getLastName()));
+          writer.write(',');
+          writer.write(escapeCsv(user.getEmailAddress()));
+          writer.write(',');
+          if (user.getApproverId() != null) writer.write(String.valueOf(user.getApproverId()));
+          writer.write('\n');
+        }
+
+        @Override
+        public void close() throws IOException {
+          writer.close();
+        }
+      };
+    }
+  };
+
+  private final MediaType mediaType;
+
+  UserExportFormat(String mediaType) {
+    this.mediaType = MediaType.parseMediaType(mediaType);
+  }
+
+  public MediaType getMediaType() {
+    return mediaType;
+  }
+
+  /** Opens a writer for the users; JSON formats serialize them with the given mapper. */
+  public abstract UserExportWriter open(OutputStream outputStream, ObjectMapper objectMapper)
+      throws IOException;
+
+  private static String escapeCsv(String value) {
+    if (value == null) return "";
+    if (value.indexOf(',') < 0
+        && value.indexOf('"') < 0
+        && value.indexOf('\n') < 0
+        && value.indexOf('\r') < 0) return value;
+    return '"' + value.replace("\"", "\"\"") + '"';
+  }
+}
@@ -0,0 +1,10 @@
+package timekeeper.users.api.export;
+
+import java.io.Closeable;
+import java.io.IOException;
+import timekeeper.users.models.User;
+
+public interface UserExportWriter extends Closeable {
+
+  void write(User user) throws IOException;
+}
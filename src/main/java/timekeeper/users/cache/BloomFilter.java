@@ -0,0 +1,90 @@
+package timekeeper.users.cache;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A thread-safe Bloom filter over strings. {@link #mightContain} never returns false for a string
+ * that was {@link #put}, and returns true for one that was not with about the false positive
+ * probability it was sized for.
+ */
+public class BloomFilter {
+
+  private final AtomicLongArray words;
+  private final long bitCount;
+  private final int hashCount;
+  private final long expectedInsertions;
+  private final AtomicLong setBits = new AtomicLong();
+
+  public BloomFilter(long expectedInsertions, double falsePositiveProbability) {
+    if (falsePositiveProbability <= 0 || falsePositiveProbability >= 1)
+      throw new IllegalArgumentException("The false positive probability must be between 0 and 1");
+    this.expectedInsertions = Math.max(1, expectedInsertions);
+    long bits =
+        (long)
+            Math.ceil(
+                -this.expectedInsertions
+                    * Math.log(falsePositiveProbability)
+                    / (Math.log(2) * Math.log(2)));
+    this.words = new AtomicLongArray((int) Math.max(1, (bits + 63) / 64));
+    this.bitCount = words.length() * 64L;
+    this.hashCount =
+        Math.max(1, (int) Math.round((double) bitCount / this.expectedInsertions * Math.log(2)));
+  }
+
+  public void put(String value) {
+    long hash1 = hash(value, 0);
+    long hash2 = hash(value, hash1) | 1;
+    for (int i = 0; i < hashCount; i++) {
+      long bit = Math.floorMod(hash1 + i * hash2, bitCount);
+      int word = (int) (bit >>> 6);
+      long mask = 1L << bit;
+      long current;
+      do {
+        current = words.get(word);
+        if ((current & mask) != 0) break;
+      } while (!words.compareAndSet(word, current, current | mask));
+      if ((current & mask) == 0) setBits.incrementAndGet();
+    }
+  }
+
+  public boolean mightContain(String value) {
+    long hash1 = hash(value, 0);
+    long hash2 = hash(value, hash1) | 1;
+    for (int i = 0; i < hashCount; i++) {
+      long bit = Math.floorMod(hash1 + i * hash2, bitCount);
+      if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) return false;
+    }
+    return true;
+  }
+
+  /** The chance that a string never put is reported as present, given the bits set so far. */
+  public double expectedFalsePositiveProbability() {
+    return Math.pow((double) setBits.get() / bitCount, hashCount);
+  }
+
+  /** Estimates the number of distinct strings put from the bits set so far. */
+  public long approximateElementCount() {
+    double fractionSet = (double) setBits.get() / bitCount;
+    return Math.round(-Math.log1p(-fractionSet) * bitCount / hashCount);
+  }
+
+  public long getExpectedInsertions() {
+    return expectedInsertions;
+  }
+
+  // 64-bit FNV-1a over the UTF-16 chars, with the murmur3 finalizer to spread the bits
+  private static long hash(String value, long seed) {
+    long hash = 0xcbf29ce484222325L ^ seed;
+    for (int i = 0; i < value.length(); i++) {
+      hash ^= value.charAt(i);
+      hash *= 0x100000001b3L;
+    }
+    hash ^= hash >>> 33;
+    hash *= 0xff51afd7ed558ccdL;
+    hash ^= hash >>> 33;
+    hash *= 0xc4ceb9fe1a85ec53L;
+    hash ^= hash >>> 33;
+    return hash;
+  }
+}
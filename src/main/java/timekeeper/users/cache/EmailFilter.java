@@ -0,0 +1,173 @@
+package timekeeper.users.cache;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Remembers every email address in use, so lookups of addresses that definitely do not exist can
+ * skip the database.
+ *
+ * <p>Addresses are added before the transaction that writes them commits, so a lookup can never
+ * miss a committed user of this instance. Users written by other instances arrive through the
+ * change feed, so after they commit another instance may still report them as missing for a poll
+ * interval, or for as long as the feed holds back their change because a transaction that started
+ * earlier is still running, such as a large import. Deleted and replaced addresses cannot be
+ * removed from a Bloom filter, so the filter is rebuilt from the table from time to time. Until it
+ * is first built every address might exist.
+ */
+@Component
+public class EmailFilter implements MeterBinder {
+
+  private final double falsePositiveProbability;
+  private final LongAdder definiteMisses = new LongAdder();
+  private final LongAdder falsePositives = new LongAdder();
+  private volatile BloomFilter filter;
+  private volatile BloomFilter replacement;
+  private volatile AtomicInteger writers = new AtomicInteger();
+
+  @Autowired
+  public EmailFilter(
+      @Value("${users.email-filter.false-positive-probability:0.01}")
+          double falsePositiveProbability) {
+    this.falsePositiveProbability = falsePositiveProbability;
+  }
+
+  /** Returns false only when no user has the email address. */
+  public boolean mightExist(String emailAddress) {
+    BloomFilter current = filter;
+    if (current == null || emailAddress == null || current.mightContain(emailAddress)) return true;
+    definiteMisses.increment();
+    return false;
+  }
+
+  /** Called when a lookup the filter let through found no user. */
+  public void recordFalsePositive() {
+    if (filter != null) falsePositives.increment();
+  }
+
+  /** Called when a batch lookup found no user for {@code count} of the addresses it let through. */
+  public void recordFalsePositives(int count) {
+    if (filter != null && count > 0) falsePositives.add(count);
+  }
+
+  /**
+   * Adds an address, which a transaction about to write it must do before committing. The
+   * transaction then counts as a writer until it completes, see {@link #startRebuild}.
+   */
+  public void add(String emailAddress) {
+    if (emailAddress == null) return;
+    if (TransactionSynchronizationManager.isSynchronizationActive()
+        && !TransactionSynchronizationManager.hasResource(this)) {
+      AtomicInteger transactionWriters = writers;
+      transactionWriters.incrementAndGet();
+      TransactionSynchronizationManager.bindResource(this, transactionWriters);
+      TransactionSynchronizationManager.registerSynchronization(
+          new TransactionSynchronizationAdapter() {
+            @Override
+            public void afterCompletion(int status) {
+              TransactionSynchronizationManager.unbindResourceIfPossible(EmailFilter.this);
+              transactionWriters.decrementAndGet();
+            }
+          });
+    }
+    // The replacement is read first. If publish has already cleared it, the filter read next is
+    // the published one
+    BloomFilter next = replacement;
+    if (next != null) next.put(emailAddress);
+    BloomFilter current = filter;
+    if (current != null) current.put(emailAddress);
+  }
+
+  /**
+   * Starts a new filter sized for the expected number of addresses and waits, up to the timeout,
+   * for transactions that added addresses before it existed to complete. Addresses added from now
+   * on go into both filters, so once this returns the caller only has to fill it with the stored
+   * addresses before calling {@link #publish}.
+   */
+  public BloomFilter startRebuild(long expectedAddresses, Duration writerTimeout)
+      throws InterruptedException {
+    BloomFilter rebuilt = new BloomFilter(expectedAddresses, falsePositiveProbability);
+    AtomicInteger earlierWriters;
+    synchronized (this) {
+      replacement = rebuilt;
+      earlierWriters = writers;
+      writers = new AtomicInteger();
+    }
+    long deadline = System.nanoTime() + writerTimeout.toNanos();
+    while (earlierWriters.get() > 0) {
+      if (System.nanoTime() > deadline) {
+        abandonRebuild();
+        throw new IllegalStateException(
+            earlierWriters.get() + " transactions writing email addresses did not finish");
+      }
+      Thread.sleep(10);
+    }
+    return rebuilt;
+  }
+
+  public synchronized void publish(BloomFilter rebuilt) {
+    if (replacement != rebuilt) throw new IllegalStateException("Not the filter being rebuilt");
+    filter = rebuilt;
+    replacement = null;
+  }
+
+  public synchronized void abandonRebuild() {
+    replacement = null;
+  }
+
+  public boolean isBuilt() {
+    return filter != null;
+  }
+
+  /** Whether more addresses have been added than the filter was sized for. */
+  public boolean isSaturated() {
+    BloomFilter current = filter;
+    return current != null && current.approximateElementCount() > current.getExpectedInsertions();
+  }
+
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    Gauge.builder(
+            "users.email-filter.target-false-positive-probability",
+            this,
+            emailFilter -> emailFilter.falsePositiveProbability)
+        .description("The false positive probability the email filter is sized for")
+        .register(registry);
+    Gauge.builder(
+            "users.email-filter.expected-false-positive-probability",
+            this,
+            emailFilter -> {
+              BloomFilter current = emailFilter.filter;
+              return current == null ? Double.NaN : current.expectedFalsePositiveProbability();
+            })
+        .description("The false positive probability of the email filter as currently filled")
+        .register(registry);
+    Gauge.builder(
+            "users.email-filter.size",
+            this,
+            emailFilter -> {
+              BloomFilter current = emailFilter.filter;
+              return current == null ? Double.NaN : current.approximateElementCount();
+            })
+        .description("Approximate number of email addresses in the filter")
+        .register(registry);
+    FunctionCounter.builder(
+            "users.email-filter.definite-misses", definiteMisses, LongAdder::doubleValue)
+        .description("Email lookups answered without the database")
+        .register(registry);
+    FunctionCounter.builder(
+            "users.email-filter.false-positives", falsePositives, LongAdder::doubleValue)
+        .description("Email lookups the filter let through that found no user")
+        .register(registry);
+  }
+}
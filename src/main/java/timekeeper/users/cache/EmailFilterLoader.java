@@ -0,0 +1,178 @@
+package timekeeper.users.cache;
+
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+import javax.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import timekeeper.users.changes.ChangeFeedNotifier;
+import timekeeper.users.models.ChangeCursor;
+import timekeeper.users.models.ChangeFeedEntry;
+import timekeeper.users.models.ChangeFeedPage;
+import timekeeper.users.repositories.UserRepository;
+import timekeeper.users.services.contracts.UserChangeService;
+
+/**
+ * Builds the {@link EmailFilter} from the users table once the application is ready, and rebuilds
+ * it every {@code users.email-filter.rebuild-interval} or as soon as it fills up. Between builds it
+ * follows the change feed, which picks up users written by other instances.
+ */
+@Component
+@ConditionalOnProperty(name = "users.email-filter.enabled", matchIfMissing = true)
+public class EmailFilterLoader {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(EmailFilterLoader.class);
+
+  // Sizing for twice the current users leaves room to grow until the next rebuild
+  static final int CAPACITY_HEADROOM = 2;
+  static final long MINIMUM_CAPACITY = 10000;
+  static final int FEED_PAGE_SIZE = 500;
+  static final Duration RETRY_DELAY = Duration.ofMinutes(1);
+  static final Duration WRITER_TIMEOUT = Duration.ofMinutes(10);
+
+  private final EmailFilter emailFilter;
+  private final UserRepository userRepository;
+  private final UserChangeService userChangeService;
+  private final ChangeFeedNotifier changeFeedNotifier;
+  private final TransactionTemplate primaryTransaction;
+  private final Duration rebuildInterval;
+  private final AtomicBoolean rebuildScheduled = new AtomicBoolean();
+  private final ScheduledExecutorService scheduler =
+      Executors.newSingleThreadScheduledExecutor(
+          runnable -> {
+            Thread thread = new Thread(runnable, "email-filter-loader");
+            thread.setDaemon(true);
+            return thread;
+          });
+  private volatile FeedFollower follower;
+
+  @Autowired
+  public EmailFilterLoader(
+      EmailFilter emailFilter,
+      UserRepository userRepository,
+      UserChangeService userChangeService,
+      ChangeFeedNotifier changeFeedNotifier,
+      PlatformTransactionManager transactionManager,
+      @Value("${users.email-filter.rebuild-interval:6h}") Duration rebuildInterval) {
+    this.emailFilter = emailFilter;
+    this.userRepository = userRepository;
+    this.userChangeService = userChangeService;
+    this.changeFeedNotifier = changeFeedNotifier;
+    // Not read-only, which would send the scan to a replica that may not have the latest addresses
+    this.primaryTransaction = new TransactionTemplate(transactionManager);
+    this.rebuildInterval = rebuildInterval;
+  }
+
+  @EventListener(ApplicationReadyEvent.class)
+  public void start() {
+    scheduler.scheduleWithFixedDelay(
+        this::scheduleRebuild, 0, rebuildInterval.toMillis(), TimeUnit.MILLISECONDS);
+  }
+
+  @PreDestroy
+  public void stop() {
+    scheduler.shutdownNow();
+    if (follower != null) follower.cancel();
+  }
+
+  private void scheduleRebuild() {
+    if (rebuildScheduled.compareAndSet(false, true)) scheduler.execute(this::rebuild);
+  }
+
+  /**
+   * Fills a new filter with every stored address and switches the change feed over to it. The feed
+   * cursor is read before the scan in the same transaction, so every change the scan might have
+   * missed comes after it.
+   */
+  void rebuild() {
+    rebuildScheduled.set(false);
+    try {
+      long started = System.nanoTime();
+      BloomFilter rebuilt =
+          emailFilter.startRebuild(
+              Math.max(MINIMUM_CAPACITY, userRepository.count() * CAPACITY_HEADROOM),
+              WRITER_TIMEOUT);
+      ChangeCursor cursor =
+          primaryTransaction.execute(
+              status -> {
+                ChangeCursor latest = userChangeService.getLatestCursor();
+                try (Stream<String> emailAddresses = userRepository.streamAllEmailAddresses()) {
+                  emailAddresses.forEach(rebuilt::put);
+                }
+                return latest;
+              });
+      emailFilter.publish(rebuilt);
+      FeedFollower previous = follower;
+      follower = new FeedFollower(cursor);
+      if (previous != null) previous.cancel();
+      LOGGER.info(
+          "Built the email filter in {}ms",
+          TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+    } catch (InterruptedException e) {
+      emailFilter.abandonRebuild();
+      Thread.currentThread().interrupt();
+    } catch (RuntimeException e) {
+      emailFilter.abandonRebuild();
+      LOGGER.warn("Failed to build the email filter, retrying in {}", RETRY_DELAY, e);
+      scheduler.schedule(this::scheduleRebuild, RETRY_DELAY.toMillis(), TimeUnit.MILLISECONDS);
+    }
+  }
+
+  private void addChanges(ChangeFeedPage page) {
+    for (ChangeFeedEntry change : page.getChanges()) {
+      if (change.getUser() != null) emailFilter.add(change.getUser().getEmailAddress());
+    }
+    if (emailFilter.isSaturated()) scheduleRebuild();
+  }
+
+  /**
+   * Follows the change feed from a cursor. The feed drops a subscriber that takes too long over a
+   * delivery, which catching up on a large import can, so when dropped it subscribes again from the
+   * last page it added.
+   */
+  private final class FeedFollower {
+
+    private volatile ChangeCursor added;
+    private volatile ChangeFeedNotifier.Subscription subscription;
+    private boolean cancelled;
+
+    private FeedFollower(ChangeCursor after) {
+      added = after;
+      subscribe();
+    }
+
+    private synchronized void subscribe() {
+      if (cancelled) return;
+      subscription =
+          changeFeedNotifier.subscribe(added, FEED_PAGE_SIZE, this::addPage, this::resubscribe);
+    }
+
+    private boolean addPage(ChangeFeedPage page) {
+      addChanges(page);
+      added = ChangeCursor.parse(page.getCursor());
+      return true;
+    }
+
+    private void resubscribe() {
+      LOGGER.info("Following the change feed again from {}", added);
+      subscribe();
+    }
+
+    private synchronized void cancel() {
+      cancelled = true;
+      subscription.cancel();
+    }
+  }
+}
@@ -0,0 +1,303 @@
+package timekeeper.users.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.core.IMap;
+import com.hazelcast.map.AbstractEntryProcessor;
+import com.hazelcast.monitor.NearCacheStats;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import io.micrometer.core.instrument.binder.cache.HazelcastCacheMetrics;
+import java.io.Serializable;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import timekeeper.users.config.ClusterCacheConfig;
+import timekeeper.users.models.CacheStatistics;
+import timekeeper.users.models.User;
+
+/**
+ * Bounded read-through cache for user lookups.
+ *
+ * <p>Users are held once, keyed by id. The email and name caches only map to a userId and every hit
+ * is checked against the cached user, so invalidating a userId is enough to keep all three lookups
+ * consistent.
+ *
+ * <p>A lookup that misses notes when it started loading and passes that to {@link #put}. Every
+ * invalidation is stamped with its time, and a user is only cached when no invalidation of it came
+ * after its load started, so a lookup that read a row just before a write committed cannot put the
+ * old row back after the write's eviction. Stamps are kept as long as cached users, and a load that
+ * took longer than that is not cached at all.
+ *
+ * <p>When {@code users.cache.cluster.enabled} is set the users are held in a map shared by every
+ * instance, with a near cache on each, so an eviction on one instance reaches all of them. The
+ * email and name caches stay local; an entry left behind by a change on another instance fails the
+ * check against the shared user and is ignored. The stamps are kept in the shared map, in the
+ * user's entry, and are taken from the cluster clock, so a lookup on one instance cannot put back a
+ * row invalidated by another. As the members' clocks can differ slightly, a lookup that started up
+ * to {@link #CLUSTER_CLOCK_TOLERANCE} before an invalidation is not cached either.
+ */
+@Component
+public class UserCache implements MeterBinder {
+
+  static final Duration CLUSTER_CLOCK_TOLERANCE = Duration.ofSeconds(1);
+
+  // Exactly one of these holds the users, depending on whether the cache is clustered
+  private final Cache<Long, User> usersById;
+  private final IMap<Long, ClusterEntry> clusterUsersById;
+  private final HazelcastInstance cluster;
+  private final Cache<String, Long> userIdsByEmail;
+  private final Cache<List<String>, Long> userIdsByName;
+  private final Cache<Long, Long> invalidatedAt;
+  private final long stampRetentionNanos;
+
+  @Autowired
+  public UserCache(
+      @Value("${users.cache.maximum-size:10000}") long maximumSize,
+      @Value("${users.cache.expire-after-write:5m}") Duration expireAfterWrite,
+      ObjectProvider<HazelcastInstance> cluster) {
+    this(maximumSize, expireAfterWrite, cluster.getIfAvailable());
+  }
+
+  public UserCache(long maximumSize, Duration expireAfterWrite) {
+    this(maximumSize, expireAfterWrite, (HazelcastInstance) null);
+  }
+
+  public UserCache(long maximumSize, Duration expireAfterWrite, HazelcastInstance cluster) {
+    this.cluster = cluster;
+    this.clusterUsersById = cluster == null ? null : cluster.getMap(ClusterCacheConfig.USERS_MAP);
+    this.usersById = cluster == null ? newCache(maximumSize, expireAfterWrite) : null;
+    this.userIdsByEmail = newCache(maximumSize, expireAfterWrite);
+    this.userIdsByName = newCache(maximumSize, expireAfterWrite);
+    // Not bounded by size, as a stamp dropped early would let an old row back in
+    this.invalidatedAt = Caffeine.newBuilder().expireAfterWrite(expireAfterWrite).build();
+    this.stampRetentionNanos = expireAfterWrite.toNanos();
+  }
+
+  private static <K, V> Cache<K, V> newCache(long maximumSize, Duration expireAfterWrite) {
+    return Caffeine.newBuilder()
+        .maximumSize(maximumSize)
+        .expireAfterWrite(expireAfterWrite)
+        .recordStats()
+        .build();
+  }
+
+  /** Whether lookups and puts may call other members of the cache cluster. */
+  public boolean isClustered() {
+    return cluster != null;
+  }
+
+  public Optional<User> getById(Long userId) {
+    if (userId == null) return Optional.empty();
+    if (usersById != null) return Optional.ofNullable(usersById.getIfPresent(userId));
+    ClusterEntry entry = clusterUsersById.get(userId);
+    return entry == null ? Optional.empty() : Optional.ofNullable(entry.user);
+  }
+
+  public Optional<User> getByEmail(String emailAddress) {
+    return Optional.ofNullable(userIdsByEmail.getIfPresent(emailAddress))
+        .flatMap(this::getById)
+        .filter(user -> Objects.equals(user.getEmailAddress(), emailAddress));
+  }
+
+  public Optional<User> getByName(String firstName, String lastName) {
+    return Optional.ofNullable(userIdsByName.getIfPresent(nameKey(firstName, lastName)))
+        .flatMap(this::getById)
+        .filter(
+            user ->
+                Objects.equals(user.getFirstName(), firstName)
+                    && Objects.equals(user.getLastName(), lastName));
+  }
+
+  /** Returns the time a load from the database starts, to be passed to {@link #put}. */
+  public long loadStarted() {
+    return now();
+  }
+
+  private long now() {
+    if (cluster == null) return System.nanoTime();
+    return TimeUnit.MILLISECONDS.toNanos(cluster.getCluster().getClusterTime());
+  }
+
+  /**
+   * Caches a user loaded from the database, unless the user was invalidated after the load started,
+   * in which case the row may be older than the write that invalidated it.
+   */
+  public void put(User user, long loadStartedAt) {
+    if (user == null || user.getUserId() == null) return;
+    if (now() - loadStartedAt > stampRetentionNanos) return;
+    if (usersById != null) {
+      boolean[] cached = {false};
+      usersById
+          .asMap()
+          .compute(
+              user.getUserId(),
+              (userId, current) -> {
+                Long invalidated = invalidatedAt.getIfPresent(userId);
+                if (invalidated != null && invalidated - loadStartedAt >= 0) return current;
+                cached[0] = true;
+                return user;
+              });
+      if (!cached[0]) return;
+    } else {
+      long invalidatedBefore = loadStartedAt - CLUSTER_CLOCK_TOLERANCE.toNanos();
+      Object cached =
+          clusterUsersById.executeOnKey(
+              user.getUserId(), new PutUnlessInvalidated(user, invalidatedBefore));
+      if (!Boolean.TRUE.equals(cached)) return;
+    }
+    userIdsByEmail.put(user.getEmailAddress(), user.getUserId());
+    userIdsByName.put(nameKey(user.getFirstName(), user.getLastName()), user.getUserId());
+  }
+
+  /**
+   * Caches a newly written user once the surrounding transaction has committed, unless a later
+   * write has invalidated it by then.
+   */
+  public void putAfterCommit(User user) {
+    long writtenAt = loadStarted();
+    if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+      put(user, writtenAt);
+      return;
+    }
+    TransactionSynchronizationManager.registerSynchronization(
+        new TransactionSynchronizationAdapter() {
+          @Override
+          public void afterCommit() {
+            put(user, writtenAt);
+          }
+        });
+  }
+
+  /**
+   * Evicts the user now and again once the surrounding transaction completes. Each eviction stamps
+   * the user, so a lookup that loaded the pre-commit row cannot put it back afterwards.
+   */
+  public void invalidate(Long userId) {
+    if (userId == null) return;
+    evict(userId);
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      TransactionSynchronizationManager.registerSynchronization(
+          new TransactionSynchronizationAdapter() {
+            @Override
+            public void afterCompletion(int status) {
+              evict(userId);
+            }
+          });
+    }
+  }
+
+  // Stamped inside the compute, so a put of the same user runs entirely before or after it
+  private void evict(Long userId) {
+    if (usersById != null)
+      usersById
+          .asMap()
+          .compute(
+              userId,
+              (key, current) -> {
+                invalidatedAt.put(key, System.nanoTime());
+                return null;
+              });
+    else clusterUsersById.set(userId, new ClusterEntry(null, now()));
+  }
+
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    if (usersById != null) CaffeineCacheMetrics.monitor(registry, usersById, "usersById");
+    else HazelcastCacheMetrics.monitor(registry, clusterUsersById);
+    CaffeineCacheMetrics.monitor(registry, userIdsByEmail, "userIdsByEmail");
+    CaffeineCacheMetrics.monitor(registry, userIdsByName, "userIdsByName");
+  }
+
+  public List<CacheStatistics> getStatistics() {
+    return Arrays.asList(
+        usersById != null
+            ? toStatistics("usersById", usersById)
+            : toStatistics("usersById", clusterUsersById),
+        toStatistics("userIdsByEmail", userIdsByEmail),
+        toStatistics("userIdsByName", userIdsByName));
+  }
+
+  private static CacheStatistics toStatistics(String name, Cache<?, ?> cache) {
+    CacheStats stats = cache.stats();
+    return new CacheStatistics(
+        name,
+        cache.estimatedSize(),
+        stats.hitCount(),
+        stats.missCount(),
+        stats.hitRate(),
+        stats.evictionCount());
+  }
+
+  // Reports this instance's near cache, which is what serves its lookups
+  private static CacheStatistics toStatistics(String name, IMap<?, ?> map) {
+    NearCacheStats stats = map.getLocalMapStats().getNearCacheStats();
+    long lookups = stats.getHits() + stats.getMisses();
+    return new CacheStatistics(
+        name,
+        stats.getOwnedEntryCount(),
+        stats.getHits(),
+        stats.getMisses(),
+        lookups == 0 ? 1.0 : (double) stats.getHits() / lookups,
+        stats.getEvictions());
+  }
+
+  private static List<String> nameKey(String firstName, String lastName) {
+    return Arrays.asList(firstName, lastName);
+  }
+
+  /**
+   * A cached user, or only the time it was last invalidated. Entries expire with the map's
+   * time-to-live, which a put or an invalidation restarts, so a stamp outlives every load it could
+   * have to turn away.
+   */
+  static final class ClusterEntry implements Serializable {
+    static final long NEVER_INVALIDATED = Long.MIN_VALUE;
+
+    final User user;
+    final long invalidatedAt;
+
+    ClusterEntry(User user, long invalidatedAt) {
+      this.user = user;
+      this.invalidatedAt = invalidatedAt;
+    }
+  }
+
+  /**
+   * Runs on the member that owns the entry, so it is atomic with invalidations of the same user.
+   */
+  private static final class PutUnlessInvalidated
+      extends AbstractEntryProcessor<Long, ClusterEntry> {
+    private final User user;
+    private final long invalidatedBefore;
+
+    PutUnlessInvalidated(User user, long invalidatedBefore) {
+      super(false);
+      this.user = user;
+      this.invalidatedBefore = invalidatedBefore;
+    }
+
+    @Override
+    public Object process(Map.Entry<Long, ClusterEntry> entry) {
+      // Cluster time counts from the epoch, so it never wraps around
+      ClusterEntry current = entry.getValue();
+      long invalidatedAt = current == null ? ClusterEntry.NEVER_INVALIDATED : current.invalidatedAt;
+      if (invalidatedAt >= invalidatedBefore) return false;
+      entry.setValue(new ClusterEntry(user, invalidatedAt));
+      return true;
+    }
+  }
+}
@@ -0,0 +1,164 @@
+package timekeeper.users.changes;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import timekeeper.users.models.ChangeCursor;
+import timekeeper.users.models.ChangeFeedPage;
+import timekeeper.users.services.contracts.UserChangeService;
+
+/**
+ * Pushes new changes to long-poll and SSE subscribers.
+ *
+ * <p>A single thread polls for the latest cursor and only fetches pages for the subscribers that
+ * are behind it, so idle subscribers cost one cheap query per interval between them, not one each.
+ * Polling rather than relying on local commit hooks also picks up changes written by other
+ * instances.
+ *
+ * <p>Each subscriber's pages are fetched and delivered on a thread of its own, one delivery at a
+ * time, so a subscriber that is slow to take its changes, such as an SSE client on a poor
+ * connection, holds up nobody else. A subscriber still taking one delivery after {@code
+ * users.changes.max-delivery-time} is dropped.
+ */
+@Component
+public class ChangeFeedNotifier {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(ChangeFeedNotifier.class);
+
+  private final UserChangeService userChangeService;
+  private final Duration pollInterval;
+  private final Duration maxDeliveryTime;
+  private final Set<Subscription> subscriptions = ConcurrentHashMap.newKeySet();
+  private final ScheduledExecutorService scheduler =
+      Executors.newSingleThreadScheduledExecutor(
+          runnable -> {
+            Thread thread = new Thread(runnable, "change-feed-notifier");
+            thread.setDaemon(true);
+            return thread;
+          });
+  // Unbounded, but each subscriber has at most one delivery running
+  private final ExecutorService dispatcher =
+      Executors.newCachedThreadPool(
+          runnable -> {
+            Thread thread = new Thread(runnable, "change-feed-dispatch");
+            thread.setDaemon(true);
+            return thread;
+          });
+
+  @Autowired
+  public ChangeFeedNotifier(
+      UserChangeService userChangeService,
+      @Value("${users.changes.poll-interval:500ms}") Duration pollInterval,
+      @Value("${users.changes.max-delivery-time:10s}") Duration maxDeliveryTime) {
+    this.userChangeService = userChangeService;
+    this.pollInterval = pollInterval;
+    this.maxDeliveryTime = maxDeliveryTime;
+  }
+
+  @PostConstruct
+  public void start() {
+    long intervalMillis = pollInterval.toMillis();
+    scheduler.scheduleWithFixedDelay(
+        this::poll, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+  }
+
+  @PreDestroy
+  public void stop() {
+    scheduler.shutdownNow();
+    dispatcher.shutdownNow();
+  }
+
+  /**
+   * Calls the listener with each page of changes after the cursor, until it returns false or the
+   * subscription is cancelled.
+   */
+  public Subscription subscribe(ChangeCursor after, int limit, Predicate<ChangeFeedPage> listener) {
+    return subscribe(after, limit, listener, () -> {});
+  }
+
+  /**
+   * Like {@link #subscribe(ChangeCursor, int, Predicate)}, and runs {@code onDropped} if the
+   * listener takes longer than the maximum delivery time and the subscriber is dropped.
+   */
+  public Subscription subscribe(
+      ChangeCursor after, int limit, Predicate<ChangeFeedPage> listener, Runnable onDropped) {
+    Subscription subscription = new Subscription(after, limit, listener, onDropped);
+    subscriptions.add(subscription);
+    return subscription;
+  }
+
+  void poll() {
+    if (subscriptions.isEmpty()) return;
+    try {
+      ChangeCursor latest = userChangeService.getLatestCursor();
+      long now = System.nanoTime();
+      for (Subscription subscription : subscriptions) {
+        if (subscription.delivering) {
+          if (now - subscription.deliveryStartedNanos > maxDeliveryTime.toNanos())
+            drop(subscription);
+        } else if (latest.compareTo(subscription.cursor) > 0) {
+          subscription.delivering = true;
+          subscription.deliveryStartedNanos = now;
+          dispatcher.execute(() -> deliver(subscription, latest));
+        }
+      }
+    } catch (RuntimeException e) {
+      LOGGER.warn("Failed to poll for user changes", e);
+    }
+  }
+
+  private void deliver(Subscription subscription, ChangeCursor latest) {
+    try {
+      while (subscriptions.contains(subscription) && latest.compareTo(subscription.cursor) > 0) {
+        ChangeFeedPage page = userChangeService.getChanges(subscription.cursor, subscription.limit);
+        if (page.getChanges().isEmpty()) break;
+        subscription.cursor = ChangeCursor.parse(page.getCursor());
+        if (!subscription.listener.test(page)) subscription.cancel();
+      }
+    } catch (RuntimeException e) {
+      LOGGER.warn("Failed to deliver user changes", e);
+    } finally {
+      subscription.delivering = false;
+    }
+  }
+
+  private void drop(Subscription subscription) {
+    if (!subscriptions.remove(subscription)) return;
+    LOGGER.warn("Dropped a change feed subscriber still taking changes after {}", maxDeliveryTime);
+    // The listener may be blocked in a call onDropped has to wait for
+    dispatcher.execute(subscription.onDropped);
+  }
+
+  public class Subscription {
+    private volatile ChangeCursor cursor;
+    private final int limit;
+    private final Predicate<ChangeFeedPage> listener;
+    private final Runnable onDropped;
+    private volatile boolean delivering;
+    private volatile long deliveryStartedNanos;
+
+    private Subscription(
+        ChangeCursor cursor, int limit, Predicate<ChangeFeedPage> listener, Runnable onDropped) {
+      this.cursor = cursor;
+      this.limit = limit;
+      this.listener = listener;
+      this.onDropped = onDropped;
+    }
+
+    public void cancel() {
+      subscriptions.remove(this);
+    }
+  }
+}
@@ -0,0 +1,17 @@
+package timekeeper.users.coalescing;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Lets concurrent calls of a read method with equal arguments share one invocation, see {@link
+ * CoalescingAspect}. The result is handed to every caller that shared it, so callers must not
+ * modify it.
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface Coalesced {}
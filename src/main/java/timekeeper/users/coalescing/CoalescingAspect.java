@@ -0,0 +1,92 @@
+package timekeeper.users.coalescing;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.AfterReturning;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Runs each {@link Coalesced} method once per distinct set of arguments at a time. A call that
+ * arrives while an identical one is in flight waits for its result, or its exception, instead of
+ * querying again, which spares the database when many requests ask for the same approver at once.
+ *
+ * <p>It runs outside the transaction, so waiting callers hold no connection. A call made inside a
+ * read-write transaction always runs on its own, as it may need to see that transaction's writes.
+ * Calls already in flight when a read-write service method returns are not joined by later callers,
+ * so a caller always sees its own earlier writes.
+ */
+@Aspect
+@Component
+// Outside the transaction advice, but behind the interceptor that exposes the invocation to
+// argument binding
+@Order(Ordered.HIGHEST_PRECEDENCE + 1)
+@ConditionalOnProperty(name = "users.coalescing.enabled", matchIfMissing = true)
+public class CoalescingAspect {
+
+  private final MeterRegistry meterRegistry;
+  private final ConcurrentMap<List<Object>, CompletableFuture<Object>> inFlight =
+      new ConcurrentHashMap<>();
+
+  @Autowired
+  public CoalescingAspect(MeterRegistry meterRegistry) {
+    this.meterRegistry = meterRegistry;
+  }
+
+  @Around("@annotation(timekeeper.users.coalescing.Coalesced)")
+  public Object coalesce(ProceedingJoinPoint joinPoint) throws Throwable {
+    if (TransactionSynchronizationManager.isActualTransactionActive()
+        && !TransactionSynchronizationManager.isCurrentTransactionReadOnly())
+      return joinPoint.proceed();
+
+    List<Object> key = new ArrayList<>();
+    key.add(((MethodSignature) joinPoint.getSignature()).getMethod());
+    key.addAll(Arrays.asList(joinPoint.getArgs()));
+    CompletableFuture<Object> call = new CompletableFuture<>();
+    CompletableFuture<Object> leader = inFlight.putIfAbsent(key, call);
+    if (leader != null) {
+      Counter.builder("users.service.coalesced")
+          .description("UserService calls that shared an identical call's result")
+          .tag("method", joinPoint.getSignature().getName())
+          .register(meterRegistry)
+          .increment();
+      try {
+        return leader.join();
+      } catch (CompletionException e) {
+        throw e.getCause();
+      }
+    }
+
+    try {
+      Object result = joinPoint.proceed();
+      call.complete(result);
+      return result;
+    } catch (Throwable t) {
+      call.completeExceptionally(t);
+      throw t;
+    } finally {
+      inFlight.remove(key, call);
+    }
+  }
+
+  @AfterReturning("@annotation(transactional) && within(timekeeper.users.services.impls..*)")
+  public void forgetInFlightCalls(Transactional transactional) {
+    if (!transactional.readOnly()) inFlight.clear();
+  }
+}
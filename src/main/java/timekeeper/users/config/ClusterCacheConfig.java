@@ -0,0 +1,70 @@
+package timekeeper.users.config;
+
+import com.hazelcast.config.Config;
+import com.hazelcast.config.EvictionConfig;
+import com.hazelcast.config.EvictionPolicy;
+import com.hazelcast.config.InMemoryFormat;
+import com.hazelcast.config.JoinConfig;
+import com.hazelcast.config.MaxSizeConfig;
+import com.hazelcast.config.NearCacheConfig;
+import java.time.Duration;
+import java.util.List;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Joins the instances listed in {@code users.cache.cluster.members} into an embedded Hazelcast
+ * cluster that holds the cached users by id, so a write on any instance evicts the user everywhere.
+ * Each instance keeps a near cache of the users it reads, invalidated by the cluster on every
+ * change. Spring Boot starts the member from this config.
+ */
+@Configuration
+@ConditionalOnProperty(name = "users.cache.cluster.enabled", havingValue = "true")
+public class ClusterCacheConfig {
+
+  public static final String HAZELCAST_INSTANCE = "hazelcastInstance";
+  public static final String USERS_MAP = "usersById";
+
+  @Bean
+  public Config hazelcastConfig(
+      @Value("${users.cache.cluster.name:timekeeper-users}") String clusterName,
+      @Value("${users.cache.cluster.members}") List<String> members,
+      @Value("${users.cache.cluster.port:5701}") int port,
+      @Value("${users.cache.maximum-size:10000}") int maximumSize,
+      @Value("${users.cache.expire-after-write:5m}") Duration expireAfterWrite) {
+    Config config = new Config();
+    config.getGroupConfig().setName(clusterName);
+    config.setProperty("hazelcast.logging.type", "slf4j");
+    config.setProperty("hazelcast.phone.home.enabled", "false");
+    // Send each invalidation to the other near caches straight away rather than in batches
+    config.setProperty("hazelcast.map.invalidation.batch.enabled", "false");
+
+    config.getNetworkConfig().setPort(port).setPortAutoIncrement(true);
+    JoinConfig join = config.getNetworkConfig().getJoin();
+    join.getMulticastConfig().setEnabled(false);
+    join.getTcpIpConfig().setEnabled(true).setMembers(members);
+
+    int timeToLiveSeconds = (int) expireAfterWrite.getSeconds();
+    config
+        .getMapConfig(USERS_MAP)
+        // Entries can always be reloaded from the database, so none are kept twice
+        .setBackupCount(0)
+        .setTimeToLiveSeconds(timeToLiveSeconds)
+        .setEvictionPolicy(EvictionPolicy.LRU)
+        .setMaxSizeConfig(new MaxSizeConfig(maximumSize, MaxSizeConfig.MaxSizePolicy.PER_NODE))
+        .setNearCacheConfig(
+            new NearCacheConfig()
+                .setInMemoryFormat(InMemoryFormat.OBJECT)
+                .setInvalidateOnChange(true)
+                .setCacheLocalEntries(true)
+                .setTimeToLiveSeconds(timeToLiveSeconds)
+                .setEvictionConfig(
+                    new EvictionConfig(
+                        maximumSize,
+                        EvictionConfig.MaxSizePolicy.ENTRY_COUNT,
+                        EvictionPolicy.LRU)));
+    return config;
+  }
+}
@@ -0,0 +1,22 @@
+package timekeeper.users.config;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.env.EnvironmentPostProcessor;
+import org.springframework.context.index.CandidateComponentsIndexLoader;
+import org.springframework.core.SpringProperties;
+import org.springframework.core.env.ConfigurableEnvironment;
+
+/**
+ * Falls back to classpath scanning while Swagger is enabled. Once a component index is on the
+ * classpath Spring only scans what is indexed, and Springfox finds its own beans by scanning
+ * packages that have no index, so the index built from this project is only used without it.
+ */
+public class ComponentIndexEnvironmentPostProcessor implements EnvironmentPostProcessor {
+
+  @Override
+  public void postProcessEnvironment(
+      ConfigurableEnvironment environment, SpringApplication application) {
+    if (environment.getProperty("users.swagger.enabled", Boolean.class, true))
+      SpringProperties.setFlag(CandidateComponentsIndexLoader.IGNORE_INDEX);
+  }
+}
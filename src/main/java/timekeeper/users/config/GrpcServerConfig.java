@@ -0,0 +1,55 @@
+package timekeeper.users.config;
+
+import io.grpc.Server;
+import io.grpc.netty.shaded.io.grpc.netty.NettyServerBuilder;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import timekeeper.users.rpc.UserLookupService;
+
+/**
+ * Serves the gRPC lookups on their own port, next to the REST API. Netty's event loop handles the
+ * HTTP/2 connections and the calls run on a bounded pool, so internal callers and REST traffic do
+ * not share Tomcat's threads.
+ */
+@Configuration
+public class GrpcServerConfig {
+
+  public static final String GRPC_SERVER = "grpcServer";
+
+  private ExecutorService executor;
+
+  @Bean(name = GRPC_SERVER, destroyMethod = "shutdown")
+  public Server grpcServer(
+      UserLookupService userLookupService,
+      @Value("${users.grpc.port:9090}") int port,
+      @Value("${users.grpc.threads:16}") int threads,
+      @Value("${users.grpc.keep-alive-time:1m}") Duration keepAliveTime)
+      throws IOException {
+    CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("grpc-users-");
+    threadFactory.setDaemon(true);
+    executor = Executors.newFixedThreadPool(threads, threadFactory);
+    return NettyServerBuilder.forPort(port)
+        .addService(userLookupService)
+        .executor(executor)
+        .permitKeepAliveTime(keepAliveTime.toMillis(), TimeUnit.MILLISECONDS)
+        .build()
+        .start();
+  }
+
+  /**
+   * The server depends on this configuration, so it has already been shut down and takes no new
+   * calls. Calls still running finish on the pool's threads.
+   */
+  @PreDestroy
+  public void shutdownExecutor() {
+    if (executor != null) executor.shutdown();
+  }
+}
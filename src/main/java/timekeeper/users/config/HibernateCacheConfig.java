@@ -0,0 +1,141 @@
+package timekeeper.users.config;
+
+import com.hazelcast.cache.impl.HazelcastServerCachingProvider;
+import com.hazelcast.config.CacheConfig;
+import com.hazelcast.config.EvictionConfig;
+import com.hazelcast.config.EvictionPolicy;
+import com.hazelcast.core.HazelcastInstance;
+import java.net.URI;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import javax.cache.CacheException;
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import javax.cache.configuration.Factory;
+import javax.cache.expiry.CreatedExpiryPolicy;
+import javax.cache.expiry.EternalExpiryPolicy;
+import javax.cache.expiry.ExpiryPolicy;
+import org.ehcache.config.builders.CacheConfigurationBuilder;
+import org.ehcache.config.builders.ConfigurationBuilder;
+import org.ehcache.config.builders.ExpiryPolicyBuilder;
+import org.ehcache.config.builders.ResourcePoolsBuilder;
+import org.ehcache.jsr107.EhcacheCachingProvider;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.hibernate.cache.spi.RegionFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Builds the regions of Hibernate's second-level cache: users by id in {@value #USERS_REGION}, the
+ * results of the cached finder queries in {@value #USER_QUERIES_REGION}, and the last change to
+ * each table, which tells Hibernate when a cached query result is out of date.
+ *
+ * <p>The regions are local Ehcache caches. When the cache cluster is enabled they are JCache caches
+ * held by the cluster instead, shared by every instance, so no instance reads a user or query
+ * result that another instance has changed.
+ */
+@Configuration
+public class HibernateCacheConfig {
+
+  public static final String USERS_REGION = "users";
+  public static final String USER_QUERIES_REGION = "users-queries";
+
+  @Bean(destroyMethod = "close")
+  public CacheManager hibernateCacheManager(
+      ObjectProvider<HazelcastInstance> hazelcastInstance,
+      @Value("${users.hibernate-cache.users.maximum-size:10000}") int usersMaximumSize,
+      @Value("${users.hibernate-cache.users.time-to-live:5m}") Duration usersTimeToLive,
+      @Value("${users.hibernate-cache.queries.maximum-size:10000}") int queriesMaximumSize,
+      @Value("${users.hibernate-cache.queries.time-to-live:5m}") Duration queriesTimeToLive) {
+    List<Region> regions =
+        Arrays.asList(
+            new Region(USERS_REGION, usersMaximumSize, usersTimeToLive),
+            new Region(USER_QUERIES_REGION, queriesMaximumSize, queriesTimeToLive),
+            new Region(
+                RegionFactory.DEFAULT_QUERY_RESULTS_REGION_UNQUALIFIED_NAME,
+                queriesMaximumSize,
+                queriesTimeToLive),
+            // Must never lose an entry, or a stale query result would be taken as current. It
+            // holds one entry per table.
+            new Region(RegionFactory.DEFAULT_UPDATE_TIMESTAMPS_REGION_UNQUALIFIED_NAME, 100, null));
+    HazelcastInstance cluster = hazelcastInstance.getIfAvailable();
+    return cluster != null ? clusterCacheManager(cluster, regions) : localCacheManager(regions);
+  }
+
+  @Bean
+  public HibernatePropertiesCustomizer hibernateCacheManagerCustomizer(
+      CacheManager hibernateCacheManager) {
+    return properties -> properties.put(ConfigSettings.CACHE_MANAGER, hibernateCacheManager);
+  }
+
+  private static CacheManager localCacheManager(List<Region> regions) {
+    ConfigurationBuilder configuration = ConfigurationBuilder.newConfigurationBuilder();
+    for (Region region : regions) {
+      configuration =
+          configuration.addCache(
+              region.name,
+              CacheConfigurationBuilder.newCacheConfigurationBuilder(
+                      Object.class, Object.class, ResourcePoolsBuilder.heap(region.maximumSize))
+                  .withExpiry(
+                      region.timeToLive == null
+                          ? ExpiryPolicyBuilder.noExpiration()
+                          : ExpiryPolicyBuilder.timeToLiveExpiration(region.timeToLive))
+                  .build());
+    }
+    EhcacheCachingProvider provider =
+        (EhcacheCachingProvider) Caching.getCachingProvider(EhcacheCachingProvider.class.getName());
+    // Each application context gets its own cache manager, and so its own caches
+    return provider.getCacheManager(
+        URI.create("urn:timekeeper-users:hibernate:" + UUID.randomUUID()), configuration.build());
+  }
+
+  private static CacheManager clusterCacheManager(
+      HazelcastInstance hazelcastInstance, List<Region> regions) {
+    // The cache names include the cache manager's URI, so every instance uses the default one
+    CacheManager cacheManager =
+        HazelcastServerCachingProvider.createCachingProvider(hazelcastInstance).getCacheManager();
+    for (Region region : regions) {
+      if (cacheManager.getCache(region.name) != null) continue;
+      Factory<ExpiryPolicy> expiry =
+          region.timeToLive == null
+              ? EternalExpiryPolicy.factoryOf()
+              : CreatedExpiryPolicy.factoryOf(
+                  new javax.cache.expiry.Duration(
+                      TimeUnit.SECONDS, region.timeToLive.getSeconds()));
+      CacheConfig<Object, Object> config =
+          new CacheConfig<>()
+              // Only the update timestamps cannot be reloaded from the database
+              .setBackupCount(region.timeToLive == null ? 1 : 0)
+              .setEvictionConfig(
+                  new EvictionConfig(
+                      region.maximumSize,
+                      EvictionConfig.MaxSizePolicy.ENTRY_COUNT,
+                      EvictionPolicy.LRU));
+      config.setExpiryPolicyFactory(expiry);
+      try {
+        cacheManager.createCache(region.name, config);
+      } catch (CacheException e) {
+        // Another instance created it first
+      }
+    }
+    return cacheManager;
+  }
+
+  private static class Region {
+    final String name;
+    final int maximumSize;
+    final Duration timeToLive;
+
+    Region(String name, int maximumSize, Duration timeToLive) {
+      this.name = name;
+      this.maximumSize = maximumSize;
+      this.timeToLive = timeToLive;
+    }
+  }
+}
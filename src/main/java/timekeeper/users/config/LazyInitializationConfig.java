@@ -0,0 +1,41 @@
+package timekeeper.users.config;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import org.springframework.beans.factory.config.BeanFactoryPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Creates beans on first use rather than at startup, as {@code spring.main.lazy-initialization}
+ * does in later Spring Boot versions.
+ *
+ * <p>The entity manager factory stays eager. It is needed by the first request anyway, the Flyway
+ * migrations it depends on should fail startup rather than a request, and with deferred repository
+ * bootstrapping it is built in the background while the rest of the context starts. The gRPC server
+ * has nothing that would ask for it, so it must be started eagerly too, as must the cache cluster
+ * member so that it has joined the other instances before the first request.
+ */
+@Configuration
+@ConditionalOnProperty(name = "users.lazy-initialization", havingValue = "true")
+public class LazyInitializationConfig {
+
+  static final Set<String> EAGER_BEANS =
+      new HashSet<>(
+          Arrays.asList(
+              "entityManagerFactory",
+              GrpcServerConfig.GRPC_SERVER,
+              ClusterCacheConfig.HAZELCAST_INSTANCE));
+
+  @Bean
+  public static BeanFactoryPostProcessor lazyInitializationBeanFactoryPostProcessor() {
+    return beanFactory -> {
+      for (String beanName : beanFactory.getBeanDefinitionNames()) {
+        if (!EAGER_BEANS.contains(beanName))
+          beanFactory.getBeanDefinition(beanName).setLazyInit(true);
+      }
+    };
+  }
+}
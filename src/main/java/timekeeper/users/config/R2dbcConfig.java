@@ -0,0 +1,42 @@
+package timekeeper.users.config;
+
+import static io.r2dbc.spi.ConnectionFactoryOptions.PASSWORD;
+import static io.r2dbc.spi.ConnectionFactoryOptions.USER;
+
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.ConnectionPoolConfiguration;
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.ConnectionFactoryOptions;
+import java.time.Duration;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Non-blocking connection pool used by the reactive read endpoints. It is separate from the JDBC
+ * pool, so a burst of reactive lookups cannot starve the blocking endpoints of connections.
+ */
+@Configuration
+public class R2dbcConfig {
+
+  @Bean(destroyMethod = "dispose")
+  public ConnectionPool r2dbcConnectionPool(
+      @Value("${users.r2dbc.url}") String url,
+      @Value("${spring.datasource.username}") String username,
+      @Value("${spring.datasource.password}") String password,
+      @Value("${users.r2dbc.pool.max-size:20}") int maxSize,
+      @Value("${users.r2dbc.pool.max-acquire-time:5s}") Duration maxAcquireTime) {
+    ConnectionFactoryOptions options =
+        ConnectionFactoryOptions.parse(url)
+            .mutate()
+            .option(USER, username)
+            .option(PASSWORD, password)
+            .build();
+    return new ConnectionPool(
+        ConnectionPoolConfiguration.builder(ConnectionFactories.get(options))
+            .name("users-r2dbc")
+            .maxSize(maxSize)
+            .maxAcquireTime(maxAcquireTime)
+            .build());
+  }
+}
@@ -0,0 +1,103 @@
+package timekeeper.users.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import javax.sql.DataSource;
+import org.hibernate.CacheMode;
+import org.hibernate.Session;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.orm.jpa.EntityManagerHolder;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import timekeeper.users.datasource.ReplicaRoutingDataSource;
+
+/**
+ * Replaces the single auto-configured pool with a primary pool and one pool per read replica when
+ * {@code users.datasource.replicas.urls} is set. Replicas share the primary's credentials and
+ * {@code spring.datasource.hikari} settings. Flyway and anything else outside a read-only
+ * transaction get the primary.
+ *
+ * <p>Entities and query results read from a replica are not put into Hibernate's second-level
+ * cache, which would otherwise keep a row the replica had not yet caught up on for as long as the
+ * cache keeps anything.
+ */
+@Configuration
+@ConditionalOnProperty("users.datasource.replicas.urls")
+public class ReplicaDataSourceConfig {
+
+  @Bean
+  @Primary
+  public DataSource dataSource(
+      DataSourceProperties properties,
+      Environment environment,
+      @Value("${users.datasource.replicas.urls}") List<String> replicaUrls,
+      @Value("${users.datasource.replicas.max-lag:5s}") Duration maxLag,
+      @Value("${users.datasource.replicas.lag-check-interval:1s}") Duration lagCheckInterval) {
+    HikariDataSource primary = newPool(properties, environment, properties.determineUrl());
+    primary.setPoolName(ReplicaRoutingDataSource.PRIMARY);
+    Map<String, DataSource> replicas = new LinkedHashMap<>();
+    for (String url : replicaUrls) {
+      HikariDataSource replica = newPool(properties, environment, url);
+      replica.setPoolName("replica-" + (replicas.size() + 1));
+      replica.setReadOnly(true);
+      replicas.put(replica.getPoolName(), replica);
+    }
+    ReplicaRoutingDataSource routing =
+        new ReplicaRoutingDataSource(primary, replicas, maxLag, lagCheckInterval);
+    routing.setReplicaReadListener(ReplicaDataSourceConfig::stopCachePuts);
+    routing.afterPropertiesSet();
+    return new LazyConnectionDataSourceProxy(routing);
+  }
+
+  /**
+   * The routing data source behind {@link #dataSource}, registered so that it is started, closed
+   * and bound to the meter registry. It is built inside that bean rather than injected into it, as
+   * initializing any DataSource bean runs the schema initializer, which asks for the primary one.
+   */
+  @Bean
+  public ReplicaRoutingDataSource replicaRoutingDataSource(DataSource dataSource)
+      throws SQLException {
+    return dataSource.unwrap(ReplicaRoutingDataSource.class);
+  }
+
+  /** Has the transaction's session read from the second-level cache without adding to it. */
+  static void stopCachePuts() {
+    if (!TransactionSynchronizationManager.isSynchronizationActive()) return;
+    for (Object resource : TransactionSynchronizationManager.getResourceMap().values()) {
+      if (!(resource instanceof EntityManagerHolder)) continue;
+      Session session = ((EntityManagerHolder) resource).getEntityManager().unwrap(Session.class);
+      CacheMode cacheMode = session.getCacheMode();
+      if (!cacheMode.isPutEnabled()) continue;
+      session.setCacheMode(CacheMode.GET);
+      // The session outlives the transaction when it is held open for the whole web request
+      TransactionSynchronizationManager.registerSynchronization(
+          new TransactionSynchronizationAdapter() {
+            @Override
+            public void afterCompletion(int status) {
+              session.setCacheMode(cacheMode);
+            }
+          });
+    }
+  }
+
+  private static HikariDataSource newPool(
+      DataSourceProperties properties, Environment environment, String url) {
+    HikariDataSource pool =
+        properties.initializeDataSourceBuilder().type(HikariDataSource.class).url(url).build();
+    Binder.get(environment).bind("spring.datasource.hikari", Bindable.ofInstance(pool));
+    return pool;
+  }
+}
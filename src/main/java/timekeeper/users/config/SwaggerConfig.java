@@ -1,6 +1,7 @@
 package timekeeper.users.config;
 
 import java.util.Collections;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import springfox.documentation.builders.PathSelectors;
@@ -12,6 +13,7 @@ import springfox.documentation.spring.web.plugins.Docket;
 import springfox.documentation.swagger2.annotations.EnableSwagger2;
 
 @Configuration
+@ConditionalOnProperty(name = "users.swagger.enabled", matchIfMissing = true)
 @EnableSwagger2
 public class SwaggerConfig {
   @Bean
@@ -0,0 +1,42 @@
+package timekeeper.users.config;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import timekeeper.users.limits.ConcurrencyLimitInterceptor;
+import timekeeper.users.metrics.QueryCountInterceptor;
+
+@Configuration
+public class WebConfig implements WebMvcConfigurer {
+
+  /** Requests answered after their handler returns, from another thread. */
+  static final String[] ASYNC_PATHS = {
+    "/export-users", "/get-user-changes", "/stream-user-changes", "/reactive/**"
+  };
+
+  private final QueryCountInterceptor queryCountInterceptor;
+  private final ConcurrencyLimitInterceptor concurrencyLimitInterceptor;
+
+  @Autowired
+  public WebConfig(
+      QueryCountInterceptor queryCountInterceptor,
+      ConcurrencyLimitInterceptor concurrencyLimitInterceptor) {
+    this.queryCountInterceptor = queryCountInterceptor;
+    this.concurrencyLimitInterceptor = concurrencyLimitInterceptor;
+  }
+
+  @Override
+  public void addInterceptors(InterceptorRegistry registry) {
+    // Their statements run on other threads or through R2DBC, where the per-thread count used by
+    // the interceptor cannot see them
+    registry.addInterceptor(queryCountInterceptor).excludePathPatterns(ASYNC_PATHS);
+    // Exports and the change feed hold requests open for minutes and the reactive lookups are
+    // bounded by their own pool, so none of them should take or skew a slot meant for ordinary
+    // requests
+    registry
+        .addInterceptor(concurrencyLimitInterceptor)
+        .excludePathPatterns(ASYNC_PATHS)
+        .excludePathPatterns("/error", "/swagger-resources/**", "/v2/api-docs");
+  }
+}
@@ -0,0 +1,17 @@
+package timekeeper.users.datasource;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Sends the read-only transactions of a method to the primary rather than a replica, see {@link
+ * ReadFromPrimaryAspect}. For reads whose results are cached: a replica may still hold a row the
+ * primary has since changed, and once cached it would be served long after the replica caught up.
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface ReadFromPrimary {}
@@ -0,0 +1,34 @@
+package timekeeper.users.datasource;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.stereotype.Component;
+
+/**
+ * Has {@link ReplicaRoutingDataSource} hand out primary connections while a {@link ReadFromPrimary}
+ * method runs on the current thread.
+ *
+ * <p>A method that joins a transaction already reading from a replica would read through that
+ * connection regardless, so it fails rather than cache what the replica returns. Its callers must
+ * read from the primary too.
+ */
+@Aspect
+@Component
+public class ReadFromPrimaryAspect {
+
+  @Around("@annotation(timekeeper.users.datasource.ReadFromPrimary)")
+  public Object readFromPrimary(ProceedingJoinPoint joinPoint) throws Throwable {
+    if (ReplicaRoutingDataSource.isReadingFromPrimary()) return joinPoint.proceed();
+    if (ReplicaRoutingDataSource.isReadingFromReplica())
+      throw new IllegalStateException(
+          joinPoint.getSignature().toShortString()
+              + " must read from the primary but joined a transaction reading from a replica");
+    ReplicaRoutingDataSource.setReadingFromPrimary(true);
+    try {
+      return joinPoint.proceed();
+    } finally {
+      ReplicaRoutingDataSource.setReadingFromPrimary(false);
+    }
+  }
+}
@@ -0,0 +1,252 @@
+package timekeeper.users.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.sql.DataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Sends read-only transactions to a replica and everything else to the primary.
+ *
+ * <p>Reads made by a {@link ReadFromPrimary} method also go to the primary, so results that are
+ * cached never come from a replica that is behind. The replica read listener runs whenever a
+ * connection is taken from a replica, to keep what is read there out of any other cache.
+ *
+ * <p>Replicas are checked for replication lag in the background. One that cannot be reached or has
+ * fallen more than {@code maxLag} behind stops receiving reads until it catches up, and when no
+ * replica is usable reads fall back to the primary. The decision is made when a connection is first
+ * taken, so this must sit behind a {@link
+ * org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy} for the transaction's
+ * read-only flag to be set by then.
+ */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource implements MeterBinder {
+
+  public static final String PRIMARY = "primary";
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(ReplicaRoutingDataSource.class);
+
+  private static final ThreadLocal<Boolean> READING_FROM_PRIMARY =
+      ThreadLocal.withInitial(() -> false);
+
+  // Set while the current transaction holds a replica connection
+  private static final ThreadLocal<Boolean> READING_FROM_REPLICA =
+      ThreadLocal.withInitial(() -> false);
+
+  // Zero when the replica has replayed everything it received, so an idle primary does not make
+  // the replica look further and further behind
+  static final String REPLICATION_LAG_QUERY =
+      "select case when not pg_is_in_recovery()"
+          + " or pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() then 0"
+          + " else extract(epoch from now() - pg_last_xact_replay_timestamp()) end";
+
+  private final Map<Object, Object> targetDataSources = new LinkedHashMap<>();
+  private final List<Replica> replicas;
+  private final Duration maxLag;
+  private final Duration lagCheckInterval;
+  private final Map<String, LongAdder> routedConnections = new HashMap<>();
+  private final LongAdder fallbacks = new LongAdder();
+  private final AtomicInteger nextReplica = new AtomicInteger();
+  private Runnable replicaReadListener = () -> {};
+  private final ScheduledExecutorService scheduler =
+      Executors.newSingleThreadScheduledExecutor(
+          runnable -> {
+            Thread thread = new Thread(runnable, "replica-lag-monitor");
+            thread.setDaemon(true);
+            return thread;
+          });
+
+  public ReplicaRoutingDataSource(
+      DataSource primary,
+      Map<String, DataSource> replicas,
+      Duration maxLag,
+      Duration lagCheckInterval) {
+    this.replicas =
+        replicas.entrySet().stream()
+            .map(replica -> new Replica(replica.getKey(), replica.getValue()))
+            .collect(Collectors.toList());
+    this.maxLag = maxLag;
+    this.lagCheckInterval = lagCheckInterval;
+
+    targetDataSources.put(PRIMARY, primary);
+    targetDataSources.putAll(replicas);
+    setTargetDataSources(targetDataSources);
+    setDefaultTargetDataSource(primary);
+    targetDataSources
+        .keySet()
+        .forEach(name -> routedConnections.put((String) name, new LongAdder()));
+  }
+
+  static boolean isReadingFromPrimary() {
+    return READING_FROM_PRIMARY.get();
+  }
+
+  static void setReadingFromPrimary(boolean readingFromPrimary) {
+    if (readingFromPrimary) READING_FROM_PRIMARY.set(true);
+    else READING_FROM_PRIMARY.remove();
+  }
+
+  /** Whether the current transaction has already been given a replica connection. */
+  static boolean isReadingFromReplica() {
+    return READING_FROM_REPLICA.get();
+  }
+
+  /** Runs on the reading thread each time a transaction is given a replica connection. */
+  public void setReplicaReadListener(Runnable replicaReadListener) {
+    this.replicaReadListener = replicaReadListener;
+  }
+
+  @PostConstruct
+  public void start() {
+    scheduler.scheduleWithFixedDelay(
+        this::checkReplicas, 0, lagCheckInterval.toMillis(), TimeUnit.MILLISECONDS);
+  }
+
+  @PreDestroy
+  public void close() {
+    scheduler.shutdownNow();
+    for (Object dataSource : targetDataSources.values()) {
+      if (dataSource instanceof AutoCloseable) {
+        try {
+          ((AutoCloseable) dataSource).close();
+        } catch (Exception e) {
+          LOGGER.warn("Failed to close {}", dataSource, e);
+        }
+      }
+    }
+  }
+
+  @Override
+  protected Object determineCurrentLookupKey() {
+    String target = PRIMARY;
+    if (TransactionSynchronizationManager.isCurrentTransactionReadOnly()
+        && !isReadingFromPrimary()) {
+      target = nextAvailableReplica();
+      if (target == null) {
+        fallbacks.increment();
+        target = PRIMARY;
+      } else {
+        markReadingFromReplica();
+        replicaReadListener.run();
+      }
+    }
+    routedConnections.get(target).increment();
+    return target;
+  }
+
+  private static void markReadingFromReplica() {
+    if (isReadingFromReplica() || !TransactionSynchronizationManager.isSynchronizationActive())
+      return;
+    READING_FROM_REPLICA.set(true);
+    TransactionSynchronizationManager.registerSynchronization(
+        new TransactionSynchronizationAdapter() {
+          @Override
+          public void afterCompletion(int status) {
+            READING_FROM_REPLICA.remove();
+          }
+        });
+  }
+
+  private String nextAvailableReplica() {
+    List<Replica> available = new ArrayList<>(replicas.size());
+    for (Replica replica : replicas) {
+      if (replica.available) available.add(replica);
+    }
+    if (available.isEmpty()) return null;
+    return available.get(Math.floorMod(nextReplica.getAndIncrement(), available.size())).name;
+  }
+
+  void checkReplicas() {
+    for (Replica replica : replicas) {
+      boolean wasAvailable = replica.available;
+      try {
+        replica.lagSeconds = queryReplicationLag(replica.dataSource);
+        replica.available = replica.lagSeconds * 1000 <= maxLag.toMillis();
+      } catch (SQLException | RuntimeException e) {
+        replica.lagSeconds = Double.NaN;
+        replica.available = false;
+        if (wasAvailable) LOGGER.warn("Replica {} is unreachable", replica.name, e);
+      }
+      if (wasAvailable != replica.available)
+        LOGGER.info(
+            "Replica {} is {} (lag {}s)",
+            replica.name,
+            replica.available ? "taking reads" : "skipped for reads",
+            replica.lagSeconds);
+    }
+  }
+
+  private static double queryReplicationLag(DataSource dataSource) throws SQLException {
+    try (Connection connection = dataSource.getConnection();
+        Statement statement = connection.createStatement();
+        ResultSet resultSet = statement.executeQuery(REPLICATION_LAG_QUERY)) {
+      resultSet.next();
+      return resultSet.getDouble(1);
+    }
+  }
+
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    // Set here rather than when the pools are built, as the registry needs this data source first
+    for (Object dataSource : targetDataSources.values()) {
+      if (dataSource instanceof HikariDataSource)
+        ((HikariDataSource) dataSource).setMetricRegistry(registry);
+    }
+    routedConnections.forEach(
+        (name, count) ->
+            FunctionCounter.builder("users.datasource.routed", count, LongAdder::doubleValue)
+                .description("Connections handed out by the routing data source")
+                .tag("datasource", name)
+                .register(registry));
+    FunctionCounter.builder("users.datasource.replica.fallbacks", fallbacks, LongAdder::doubleValue)
+        .description("Read-only transactions sent to the primary because no replica was usable")
+        .register(registry);
+    for (Replica replica : replicas) {
+      Gauge.builder("users.datasource.replica.lag", replica, r -> r.lagSeconds)
+          .description("Replication lag in seconds, NaN while the replica is unreachable")
+          .baseUnit("seconds")
+          .tag("datasource", replica.name)
+          .register(registry);
+      Gauge.builder("users.datasource.replica.available", replica, r -> r.available ? 1 : 0)
+          .description("Whether the replica is taking reads")
+          .tag("datasource", replica.name)
+          .register(registry);
+    }
+  }
+
+  private static class Replica {
+    private final String name;
+    private final DataSource dataSource;
+    private volatile double lagSeconds = Double.NaN;
+    private volatile boolean available;
+
+    private Replica(String name, DataSource dataSource) {
+      this.name = name;
+      this.dataSource = dataSource;
+    }
+  }
+}
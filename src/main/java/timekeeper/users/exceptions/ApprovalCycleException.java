@@ -0,0 +1,9 @@
+package timekeeper.users.exceptions;
+
+public class ApprovalCycleException extends RuntimeException {
+  private static final long serialVersionUID = -2231407125917862409L;
+
+  public ApprovalCycleException(final String message) {
+    super(message);
+  }
+}
@@ -0,0 +1,9 @@
+package timekeeper.users.exceptions;
+
+public class InvalidImportException extends RuntimeException {
+  private static final long serialVersionUID = 3384914012377612945L;
+
+  public InvalidImportException(final String message) {
+    super(message);
+  }
+}
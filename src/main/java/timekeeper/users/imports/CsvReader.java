@@ -0,0 +1,105 @@
+package timekeeper.users.imports;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+import timekeeper.users.exceptions.InvalidImportException;
+
+/**
+ * Reads RFC 4180 CSV one record at a time, so a file of any size is never held in memory. Quoted
+ * fields may contain commas, doubled quotes and line breaks, and a leading byte order mark is
+ * skipped. A field longer than {@link #MAX_FIELD_LENGTH}, usually the sign of an unbalanced quote,
+ * ends the read.
+ */
+public class CsvReader implements Closeable {
+
+  static final int MAX_FIELD_LENGTH = 65536;
+
+  private static final int BYTE_ORDER_MARK = '\uFEFF';
+
+  private final Reader reader;
+  private long line = 1;
+  private long recordLine;
+  private boolean started;
+  private boolean skipLineFeed;
+
+  public CsvReader(Reader reader) {
+    this.reader = reader instanceof BufferedReader ? reader : new BufferedReader(reader, 65536);
+  }
+
+  /** Returns the fields of the next record, or null at the end of the input. */
+  public List<String> readRecord() throws IOException {
+    int c = read();
+    if (!started) {
+      started = true;
+      if (c == BYTE_ORDER_MARK) c = read();
+    }
+    if (c == -1) return null;
+    recordLine = line;
+
+    List<String> fields = new ArrayList<>();
+    StringBuilder field = new StringBuilder();
+    boolean quoted = false;
+    while (true) {
+      if (quoted) {
+        if (c == -1)
+          throw new InvalidImportException(
+              "The quoted field on line " + recordLine + " is never closed");
+        if (c == '"') {
+          c = read();
+          if (c != '"') {
+            quoted = false;
+            continue;
+          }
+        } else if (c == '\n') {
+          line++;
+        }
+        append(field, c);
+      } else if (c == ',') {
+        fields.add(field.toString());
+        field.setLength(0);
+      } else if (c == '\n' || c == '\r') {
+        skipLineFeed = c == '\r';
+        line++;
+        break;
+      } else if (c == -1) {
+        break;
+      } else if (c == '"' && field.length() == 0) {
+        quoted = true;
+      } else {
+        append(field, c);
+      }
+      c = read();
+    }
+    fields.add(field.toString());
+    return fields;
+  }
+
+  private void append(StringBuilder field, int c) {
+    if (field.length() == MAX_FIELD_LENGTH)
+      throw new InvalidImportException("A field on line " + recordLine + " is too long");
+    field.append((char) c);
+  }
+
+  private int read() throws IOException {
+    int c = reader.read();
+    if (skipLineFeed) {
+      skipLineFeed = false;
+      if (c == '\n') c = reader.read();
+    }
+    return c;
+  }
+
+  /** Returns the line the record last returned by {@link #readRecord} started on. */
+  public long getRecordLine() {
+    return recordLine;
+  }
+
+  @Override
+  public void close() throws IOException {
+    reader.close();
+  }
+}
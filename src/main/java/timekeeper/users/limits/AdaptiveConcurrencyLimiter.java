@@ -0,0 +1,98 @@
+package timekeeper.users.limits;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Caps the number of requests in flight, adjusting the cap from the latency of the requests that
+ * get through (additive increase, multiplicative decrease).
+ *
+ * <p>Each endpoint keeps a slow-moving average of its own latency, so a request is only judged
+ * against requests like it: a cache miss is not slow next to a cache hit, nor a batch lookup next
+ * to a single one. While requests complete within {@code tolerance} times their endpoint's average
+ * the limit grows by one. Over each window of at least {@code limit} completions the latencies,
+ * relative to their endpoints' averages, are averaged; if that is above {@code tolerance}, or a
+ * request failed, the limit shrinks by {@code backoffRatio}.
+ *
+ * <p>Only requests that completed while at least half of the limit was in use move it. Below that
+ * the requests are not queueing on each other, so their latency says nothing about how many may run
+ * at once.
+ */
+public class AdaptiveConcurrencyLimiter {
+
+  /** Small enough to react within seconds, large enough that a few outliers cannot swing it. */
+  static final int MIN_WINDOW_SAMPLES = 50;
+
+  /** Weight of each new sample in its endpoint's average, so it follows a few hundred requests. */
+  static final double AVERAGE_WEIGHT = 0.005;
+
+  private final int minLimit;
+  private final int maxLimit;
+  private final double tolerance;
+  private final double backoffRatio;
+  private final AtomicInteger inFlight = new AtomicInteger();
+  private final Map<String, Double> averageNanosByEndpoint = new HashMap<>();
+
+  private volatile int limit;
+  private int windowSamples;
+  private double windowRelativeLatency;
+  private boolean windowFailed;
+
+  public AdaptiveConcurrencyLimiter(
+      int initialLimit, int minLimit, int maxLimit, double tolerance, double backoffRatio) {
+    if (minLimit < 1 || minLimit > initialLimit || initialLimit > maxLimit)
+      throw new IllegalArgumentException(
+          "Limits must satisfy 1 <= minLimit <= initialLimit <= maxLimit");
+    this.limit = initialLimit;
+    this.minLimit = minLimit;
+    this.maxLimit = maxLimit;
+    this.tolerance = tolerance;
+    this.backoffRatio = backoffRatio;
+  }
+
+  /** Takes a slot if one is free. Every successful call must be paired with {@link #release}. */
+  public boolean tryAcquire() {
+    while (true) {
+      int current = inFlight.get();
+      if (current >= limit) return false;
+      if (inFlight.compareAndSet(current, current + 1)) return true;
+    }
+  }
+
+  /** Frees a slot and feeds the outcome of a request to the given endpoint into the limit. */
+  public void release(String endpoint, long latencyNanos, boolean failed) {
+    int inFlightBefore = inFlight.getAndDecrement();
+    synchronized (this) {
+      boolean used = inFlightBefore * 2 >= limit;
+      Double average = averageNanosByEndpoint.get(endpoint);
+      double relativeLatency = average == null ? 1.0 : latencyNanos / average;
+      if (!failed)
+        averageNanosByEndpoint.put(
+            endpoint,
+            average == null ? latencyNanos : average + (latencyNanos - average) * AVERAGE_WEIGHT);
+
+      if (!used) return;
+
+      if (!failed && relativeLatency <= tolerance) limit = Math.min(maxLimit, limit + 1);
+      windowSamples++;
+      windowRelativeLatency += relativeLatency;
+      windowFailed |= failed;
+      if (windowSamples < Math.max(limit, MIN_WINDOW_SAMPLES)) return;
+
+      if (windowFailed || windowRelativeLatency / windowSamples > tolerance)
+        limit = Math.max(minLimit, (int) (limit * backoffRatio));
+      windowSamples = 0;
+      windowRelativeLatency = 0;
+      windowFailed = false;
+    }
+  }
+
+  public int getLimit() {
+    return limit;
+  }
+
+  public int getInFlight() {
+    return inFlight.get();
+  }
+}
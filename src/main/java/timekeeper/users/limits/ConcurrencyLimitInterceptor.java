@@ -0,0 +1,143 @@
+package timekeeper.users.limits;
+
+import static org.springframework.http.HttpHeaders.RETRY_AFTER;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import java.io.IOException;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import javax.servlet.DispatcherType;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+/**
+ * Bulkheads reads from writes: each class of request has its own {@link
+ * AdaptiveConcurrencyLimiter}, so slow bulk writes cannot take every thread and connection away
+ * from lookups. A request that finds its limiter full is rejected straight away with a 503 and a
+ * Retry-After header instead of queueing.
+ *
+ * <p>The slot is taken on the initial dispatch and held until the request completes, including any
+ * async processing.
+ */
+@Component
+public class ConcurrencyLimitInterceptor implements AsyncHandlerInterceptor, MeterBinder {
+
+  static final String RETRY_AFTER_SECONDS = "1";
+  private static final String PERMIT_ATTRIBUTE = ConcurrencyLimitInterceptor.class + ".permit";
+  private static final double TOLERANCE = 2.0;
+  private static final double BACKOFF_RATIO = 0.9;
+
+  enum RequestClass {
+    READ,
+    WRITE
+  }
+
+  private final Map<RequestClass, AdaptiveConcurrencyLimiter> limiters =
+      new EnumMap<>(RequestClass.class);
+  private final Map<RequestClass, Counter> rejections = new EnumMap<>(RequestClass.class);
+
+  @Autowired
+  public ConcurrencyLimitInterceptor(
+      @Value("${users.limits.read.initial-limit:20}") int readInitialLimit,
+      @Value("${users.limits.read.max-limit:200}") int readMaxLimit,
+      @Value("${users.limits.write.initial-limit:4}") int writeInitialLimit,
+      @Value("${users.limits.write.max-limit:8}") int writeMaxLimit) {
+    limiters.put(
+        RequestClass.READ,
+        new AdaptiveConcurrencyLimiter(
+            readInitialLimit, 1, readMaxLimit, TOLERANCE, BACKOFF_RATIO));
+    limiters.put(
+        RequestClass.WRITE,
+        new AdaptiveConcurrencyLimiter(
+            writeInitialLimit, 1, writeMaxLimit, TOLERANCE, BACKOFF_RATIO));
+  }
+
+  @Override
+  public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler)
+      throws IOException {
+    if (request.getDispatcherType() != DispatcherType.REQUEST) return true;
+    RequestClass requestClass = classify(request);
+    if (!limiters.get(requestClass).tryAcquire()) {
+      Counter rejected = rejections.get(requestClass);
+      if (rejected != null) rejected.increment();
+      response.setHeader(RETRY_AFTER, RETRY_AFTER_SECONDS);
+      response.sendError(
+          HttpStatus.SERVICE_UNAVAILABLE.value(), "Too many concurrent requests, try again later");
+      return false;
+    }
+    Object endpoint = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+    request.setAttribute(
+        PERMIT_ATTRIBUTE,
+        new Permit(
+            requestClass, endpoint == null ? "UNKNOWN" : endpoint.toString(), System.nanoTime()));
+    return true;
+  }
+
+  @Override
+  public void afterCompletion(
+      HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+    Permit permit = (Permit) request.getAttribute(PERMIT_ATTRIBUTE);
+    if (permit == null) return;
+    request.removeAttribute(PERMIT_ATTRIBUTE);
+    boolean failed = ex != null || response.getStatus() >= 500;
+    limiters
+        .get(permit.requestClass)
+        .release(permit.endpoint, System.nanoTime() - permit.startNanos, failed);
+  }
+
+  static RequestClass classify(HttpServletRequest request) {
+    String method = request.getMethod();
+    return HttpMethod.GET.matches(method) || HttpMethod.HEAD.matches(method)
+        ? RequestClass.READ
+        : RequestClass.WRITE;
+  }
+
+  AdaptiveConcurrencyLimiter getLimiter(RequestClass requestClass) {
+    return limiters.get(requestClass);
+  }
+
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    limiters.forEach(
+        (requestClass, limiter) -> {
+          String tag = requestClass.name().toLowerCase(Locale.ROOT);
+          Gauge.builder("users.limiter.limit", limiter, AdaptiveConcurrencyLimiter::getLimit)
+              .description("The current concurrency limit")
+              .tag("class", tag)
+              .register(registry);
+          Gauge.builder("users.limiter.in.flight", limiter, AdaptiveConcurrencyLimiter::getInFlight)
+              .description("The number of requests currently holding a slot")
+              .tag("class", tag)
+              .register(registry);
+          rejections.put(
+              requestClass,
+              Counter.builder("users.limiter.rejected")
+                  .description("Requests turned away with a 503 because the limit was reached")
+                  .tag("class", tag)
+                  .register(registry));
+        });
+  }
+
+  private static class Permit {
+    private final RequestClass requestClass;
+    private final String endpoint;
+    private final long startNanos;
+
+    Permit(RequestClass requestClass, String endpoint, long startNanos) {
+      this.requestClass = requestClass;
+      this.endpoint = endpoint;
+      this.startNanos = startNanos;
+    }
+  }
+}
@@ -0,0 +1,45 @@
+package timekeeper.users.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+/**
+ * Records the number of SQL statements each request ran as {@code users.http.queries}. The count
+ * only covers statements run on the request thread, so streamed, long-polling and reactive requests
+ * are left out, see {@link timekeeper.users.config.WebConfig}.
+ */
+@Component
+public class QueryCountInterceptor implements HandlerInterceptor {
+
+  private final MeterRegistry meterRegistry;
+
+  @Autowired
+  public QueryCountInterceptor(MeterRegistry meterRegistry) {
+    this.meterRegistry = meterRegistry;
+  }
+
+  @Override
+  public boolean preHandle(
+      HttpServletRequest request, HttpServletResponse response, Object handler) {
+    QueryCountingStatementInspector.reset();
+    return true;
+  }
+
+  @Override
+  public void afterCompletion(
+      HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+    Object uri = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+    DistributionSummary.builder("users.http.queries")
+        .description("The number of SQL statements run while handling a request")
+        .tag("uri", uri == null ? "UNKNOWN" : uri.toString())
+        .publishPercentiles(0.5, 0.99)
+        .register(meterRegistry)
+        .record(QueryCountingStatementInspector.getQueryCount());
+  }
+}
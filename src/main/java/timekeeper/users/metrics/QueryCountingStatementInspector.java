@@ -0,0 +1,27 @@
+package timekeeper.users.metrics;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+/**
+ * Counts the SQL statements Hibernate prepares on the current thread, so {@link
+ * QueryCountInterceptor} can record how many queries each request ran.
+ */
+public class QueryCountingStatementInspector implements StatementInspector {
+  private static final long serialVersionUID = 2675373620418366281L;
+
+  private static final ThreadLocal<int[]> QUERY_COUNT = ThreadLocal.withInitial(() -> new int[1]);
+
+  @Override
+  public String inspect(String sql) {
+    QUERY_COUNT.get()[0]++;
+    return sql;
+  }
+
+  public static void reset() {
+    QUERY_COUNT.get()[0] = 0;
+  }
+
+  public static int getQueryCount() {
+    return QUERY_COUNT.get()[0];
+  }
+}
@@ -0,0 +1,41 @@
+package timekeeper.users.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/** Times every {@link timekeeper.users.services.contracts.UserService} call by method. */
+@Aspect
+@Component
+public class UserServiceMetricsAspect {
+
+  private final MeterRegistry meterRegistry;
+
+  @Autowired
+  public UserServiceMetricsAspect(MeterRegistry meterRegistry) {
+    this.meterRegistry = meterRegistry;
+  }
+
+  @Around("execution(* timekeeper.users.services.contracts.UserService.*(..))")
+  public Object time(ProceedingJoinPoint joinPoint) throws Throwable {
+    Timer.Sample sample = Timer.start(meterRegistry);
+    String exception = "none";
+    try {
+      return joinPoint.proceed();
+    } catch (Throwable t) {
+      exception = t.getClass().getSimpleName();
+      throw t;
+    } finally {
+      sample.stop(
+          Timer.builder("users.service")
+              .description("The time taken by UserService methods")
+              .tag("method", joinPoint.getSignature().getName())
+              .tag("exception", exception)
+              .register(meterRegistry));
+    }
+  }
+}
@@ -0,0 +1,30 @@
+package timekeeper.users.models;
+
+import io.swagger.annotations.ApiModelProperty;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CacheStatistics {
+
+  @ApiModelProperty(notes = "The name of the cache")
+  private String name;
+
+  @ApiModelProperty(notes = "The approximate number of entries in the cache")
+  private long size;
+
+  @ApiModelProperty(notes = "The number of lookups that were served from the cache")
+  private long hitCount;
+
+  @ApiModelProperty(notes = "The number of lookups that had to go to the database")
+  private long missCount;
+
+  @ApiModelProperty(notes = "The ratio of hits to lookups")
+  private double hitRate;
+
+  @ApiModelProperty(notes = "The number of entries evicted for size or age")
+  private long evictionCount;
+}
@@ -0,0 +1,45 @@
+package timekeeper.users.models;
+
+import lombok.Value;
+
+/**
+ * A position in the user change feed, written as {@code <txId>-<changeId>}. Cursors order by the
+ * writing transaction first, see {@link UserChange}.
+ */
+@Value
+public class ChangeCursor implements Comparable<ChangeCursor> {
+
+  public static final ChangeCursor START = new ChangeCursor(0L, 0L);
+
+  private final long txId;
+  private final long changeId;
+
+  public static ChangeCursor of(UserChange change) {
+    return new ChangeCursor(change.getTxId(), change.getChangeId());
+  }
+
+  /** Parses a cursor, treating a missing one as the start of the feed. */
+  public static ChangeCursor parse(String cursor) {
+    if (cursor == null || cursor.trim().isEmpty()) return START;
+    int separator = cursor.indexOf('-');
+    if (separator < 0) throw new IllegalArgumentException("Invalid change cursor: " + cursor);
+    try {
+      return new ChangeCursor(
+          Long.parseLong(cursor.substring(0, separator).trim()),
+          Long.parseLong(cursor.substring(separator + 1).trim()));
+    } catch (NumberFormatException e) {
+      throw new IllegalArgumentException("Invalid change cursor: " + cursor);
+    }
+  }
+
+  @Override
+  public int compareTo(ChangeCursor other) {
+    int byTx = Long.compare(txId, other.txId);
+    return byTx != 0 ? byTx : Long.compare(changeId, other.changeId);
+  }
+
+  @Override
+  public String toString() {
+    return txId + "-" + changeId;
+  }
+}
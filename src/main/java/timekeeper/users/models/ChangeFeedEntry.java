@@ -0,0 +1,28 @@
+package timekeeper.users.models;
+
+import io.swagger.annotations.ApiModelProperty;
+import java.time.Instant;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ChangeFeedEntry {
+
+  @ApiModelProperty(notes = "The position of this change, to resume the feed from")
+  private String cursor;
+
+  @ApiModelProperty(notes = "The id of the user that changed")
+  private Long userId;
+
+  @ApiModelProperty(notes = "Whether the user was created, updated or deleted")
+  private ChangeType changeType;
+
+  @ApiModelProperty(notes = "When the change was made")
+  private Instant changedAt;
+
+  @ApiModelProperty(notes = "The current state of the user, or null if it has since been deleted")
+  private User user;
+}
@@ -0,0 +1,19 @@
+package timekeeper.users.models;
+
+import io.swagger.annotations.ApiModelProperty;
+import java.util.List;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ChangeFeedPage {
+
+  @ApiModelProperty(notes = "The changes after the requested cursor, oldest first")
+  private List<ChangeFeedEntry> changes;
+
+  @ApiModelProperty(notes = "The cursor to ask for next")
+  private String cursor;
+}
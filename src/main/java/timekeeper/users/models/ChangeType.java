@@ -0,0 +1,7 @@
+package timekeeper.users.models;
+
+public enum ChangeType {
+  CREATED,
+  UPDATED,
+  DELETED
+}
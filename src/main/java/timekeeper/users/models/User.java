@@ -1,20 +1,30 @@
 package timekeeper.users.models;
 
 import io.swagger.annotations.ApiModelProperty;
+import java.io.Serializable;
 import javax.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import timekeeper.users.config.HibernateCacheConfig;
 
 @Data
 @Entity
 @Table(name = "users")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = HibernateCacheConfig.USERS_REGION)
 @NoArgsConstructor
 @AllArgsConstructor
-public class User {
+public class User implements Serializable {
 
   @Id
-  @GeneratedValue(strategy = GenerationType.AUTO)
+  @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "user_id_generator")
+  @SequenceGenerator(
+      name = "user_id_generator",
+      sequenceName = "hibernate_sequence",
+      allocationSize = 50)
   @ApiModelProperty(notes = "The database generated employee ID")
   private Long userId;
 
@@ -33,4 +43,14 @@ public class User {
   @Column(name = "approver_id")
   @ApiModelProperty(notes = "The userId of the user that can approve this users absences")
   private Long approverId;
+
+  @Version
+  @Column(name = "version", nullable = false)
+  @ApiModelProperty(notes = "Incremented on every change, used as the users ETag")
+  private Long version;
+
+  public User(
+      Long userId, String firstName, String lastName, String emailAddress, Long approverId) {
+    this(userId, firstName, lastName, emailAddress, approverId, null);
+  }
 }
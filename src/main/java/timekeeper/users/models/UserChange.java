@@ -0,0 +1,41 @@
+package timekeeper.users.models;
+
+import java.time.Instant;
+import javax.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Entity
+@Table(name = "user_changes")
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserChange {
+
+  @Id
+  @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "user_change_id_generator")
+  @SequenceGenerator(
+      name = "user_change_id_generator",
+      sequenceName = "user_changes_seq",
+      allocationSize = 50)
+  private Long changeId;
+
+  @Column(name = "user_id", nullable = false)
+  private Long userId;
+
+  @Enumerated(EnumType.STRING)
+  @Column(name = "change_type", nullable = false)
+  private ChangeType changeType;
+
+  @Column(name = "changed_at", nullable = false)
+  private Instant changedAt;
+
+  /** Set by the database to the id of the writing transaction. */
+  @Column(name = "tx_id", insertable = false, updatable = false)
+  private Long txId;
+
+  public UserChange(Long userId, ChangeType changeType) {
+    this(null, userId, changeType, Instant.now(), null);
+  }
+}
@@ -0,0 +1,52 @@
+package timekeeper.users.models;
+
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.function.Function;
+
+/** The properties of a {@link User} a caller can ask for with a {@code fields} parameter. */
+public enum UserField {
+  USER_ID("userId", User::getUserId),
+  FIRST_NAME("firstName", User::getFirstName),
+  LAST_NAME("lastName", User::getLastName),
+  EMAIL_ADDRESS("emailAddress", User::getEmailAddress),
+  APPROVER_ID("approverId", User::getApproverId),
+  VERSION("version", User::getVersion);
+
+  private final String property;
+  private final Function<User, Object> getter;
+
+  UserField(String property, Function<User, Object> getter) {
+    this.property = property;
+    this.getter = getter;
+  }
+
+  public String getProperty() {
+    return property;
+  }
+
+  public Object valueOf(User user) {
+    return getter.apply(user);
+  }
+
+  /**
+   * Parses a comma-separated list of property names. The userId is always included, as it
+   * identifies the user in every response.
+   */
+  public static Set<UserField> parse(String fields) {
+    Set<UserField> parsed = EnumSet.of(USER_ID);
+    for (String name : fields.split(",")) {
+      String property = name.trim();
+      if (property.isEmpty()) continue;
+      parsed.add(forProperty(property));
+    }
+    return parsed;
+  }
+
+  private static UserField forProperty(String property) {
+    for (UserField field : values()) {
+      if (field.property.equals(property)) return field;
+    }
+    throw new IllegalArgumentException("Unknown user field: " + property);
+  }
+}
@@ -0,0 +1,39 @@
+package timekeeper.users.models;
+
+import com.fasterxml.jackson.annotation.JsonValue;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+
+/**
+ * Some of the properties of a user, read as plain values rather than as a managed entity. It is
+ * written to JSON as just those properties, in {@link UserField} order.
+ */
+@EqualsAndHashCode
+@ToString
+public class UserFields {
+
+  private final Map<String, Object> values;
+
+  public UserFields(Map<String, Object> values) {
+    this.values = Collections.unmodifiableMap(values);
+  }
+
+  public static UserFields of(User user, Set<UserField> fields) {
+    Map<String, Object> values = new LinkedHashMap<>();
+    for (UserField field : fields) values.put(field.getProperty(), field.valueOf(user));
+    return new UserFields(values);
+  }
+
+  public Long getUserId() {
+    return (Long) values.get(UserField.USER_ID.getProperty());
+  }
+
+  @JsonValue
+  public Map<String, Object> getValues() {
+    return values;
+  }
+}
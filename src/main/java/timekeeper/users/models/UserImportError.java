@@ -0,0 +1,18 @@
+package timekeeper.users.models;
+
+import io.swagger.annotations.ApiModelProperty;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserImportError {
+
+  @ApiModelProperty(notes = "The line of the file the rejected row starts on, the header being 1")
+  private long lineNumber;
+
+  @ApiModelProperty(notes = "Why the row was not imported")
+  private String message;
+}
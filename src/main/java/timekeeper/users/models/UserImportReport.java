@@ -0,0 +1,22 @@
+package timekeeper.users.models;
+
+import io.swagger.annotations.ApiModelProperty;
+import java.util.List;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserImportReport {
+
+  @ApiModelProperty(notes = "The number of users created")
+  private long imported;
+
+  @ApiModelProperty(notes = "The number of rows that were not imported")
+  private long rejected;
+
+  @ApiModelProperty(notes = "Why rows were rejected, in file order. Only the first 1000 are listed")
+  private List<UserImportError> errors;
+}
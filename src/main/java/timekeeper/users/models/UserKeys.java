@@ -0,0 +1,19 @@
+package timekeeper.users.models;
+
+import io.swagger.annotations.ApiModelProperty;
+import java.util.List;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserKeys {
+
+  @ApiModelProperty(notes = "The ids of the users")
+  private List<Long> userIds;
+
+  @ApiModelProperty(notes = "The email addresses of the users")
+  private List<String> emailAddresses;
+}
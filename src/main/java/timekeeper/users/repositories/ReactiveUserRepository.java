@@ -0,0 +1,90 @@
+package timekeeper.users.repositories;
+
+import io.r2dbc.spi.Connection;
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.Row;
+import io.r2dbc.spi.Statement;
+import java.util.Optional;
+import java.util.function.Function;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import timekeeper.users.models.User;
+
+/** Read-only user queries over R2DBC. Nothing here blocks the calling thread. */
+@Repository
+public class ReactiveUserRepository {
+
+  private static final String USER_COLUMNS =
+      "u.user_id, u.first_name, u.last_name, u.email_address, u.approver_id, u.version";
+
+  private final ConnectionFactory connectionFactory;
+
+  @Autowired
+  public ReactiveUserRepository(ConnectionFactory connectionFactory) {
+    this.connectionFactory = connectionFactory;
+  }
+
+  public Mono<User> findById(long userId) {
+    return query(
+            "select " + USER_COLUMNS + " from users u where u.user_id = $1",
+            statement -> statement.bind("$1", userId))
+        .next();
+  }
+
+  public Mono<User> findByEmailAddress(String emailAddress) {
+    return query(
+            "select " + USER_COLUMNS + " from users u where u.email_address = $1",
+            statement -> statement.bind("$1", emailAddress))
+        .next();
+  }
+
+  public Mono<User> findByFirstNameAndLastName(String firstName, String lastName) {
+    return query(
+            "select "
+                + USER_COLUMNS
+                + " from users u where u.first_name = $1 and u.last_name = $2 limit 1",
+            statement -> statement.bind("$1", firstName).bind("$2", lastName))
+        .next();
+  }
+
+  /**
+   * Same shape as {@link UserRepository#findAllByApproverId}: one row per report with a userId
+   * greater than {@code after}, or a single empty row when the approver has none. No rows at all
+   * means the approver does not exist.
+   */
+  public Flux<Optional<User>> findAllByApproverId(long approverId, long after, int limit) {
+    return query(
+        "select "
+            + USER_COLUMNS
+            + " from users a left join users u on u.approver_id = a.user_id and u.user_id > $2"
+            + " where a.user_id = $1 order by u.user_id limit $3",
+        statement -> statement.bind("$1", approverId).bind("$2", after).bind("$3", limit),
+        row -> row.get("user_id") == null ? Optional.empty() : Optional.of(toUser(row)));
+  }
+
+  private Flux<User> query(String sql, Function<Statement, Statement> binder) {
+    return query(sql, binder, ReactiveUserRepository::toUser);
+  }
+
+  private <T> Flux<T> query(
+      String sql, Function<Statement, Statement> binder, Function<Row, T> mapper) {
+    return Flux.usingWhen(
+        connectionFactory.create(),
+        connection ->
+            Flux.from(binder.apply(connection.createStatement(sql)).execute())
+                .flatMap(result -> result.map((row, metadata) -> mapper.apply(row))),
+        Connection::close);
+  }
+
+  private static User toUser(Row row) {
+    return new User(
+        row.get("user_id", Long.class),
+        row.get("first_name", String.class),
+        row.get("last_name", String.class),
+        row.get("email_address", String.class),
+        row.get("approver_id", Long.class),
+        row.get("version", Long.class));
+  }
+}
@@ -0,0 +1,37 @@
+package timekeeper.users.repositories;
+
+import java.util.List;
+import java.util.Optional;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import timekeeper.users.models.UserChange;
+
+@Repository
+public interface UserChangeRepository extends JpaRepository<UserChange, Long> {
+
+  /**
+   * Returns the changes after the (txId, changeId) cursor, skipping any transaction at or beyond
+   * the oldest one still running. Everything returned is committed and nothing can later appear
+   * before it.
+   */
+  @Query(
+      value =
+          "select c.* from user_changes c"
+              + " where (c.tx_id, c.change_id) > (:txId, :changeId)"
+              + " and c.tx_id < txid_snapshot_xmin(txid_current_snapshot())"
+              + " order by c.tx_id, c.change_id limit :limit",
+      nativeQuery = true)
+  List<UserChange> findChangesAfter(
+      @Param("txId") long txId, @Param("changeId") long changeId, @Param("limit") int limit);
+
+  /** Returns the latest change that {@link #findChangesAfter} can serve. */
+  @Query(
+      value =
+          "select c.* from user_changes c"
+              + " where c.tx_id < txid_snapshot_xmin(txid_current_snapshot())"
+              + " order by c.tx_id desc, c.change_id desc limit 1",
+      nativeQuery = true)
+  Optional<UserChange> findLatestChange();
+}
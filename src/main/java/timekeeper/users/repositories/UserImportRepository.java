@@ -0,0 +1,281 @@
+package timekeeper.users.repositories;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.sql.DataSource;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.PGCopyOutputStream;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementSetter;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import timekeeper.users.models.UserImportError;
+import timekeeper.users.models.UserImportReport;
+
+/**
+ * Bulk loads users through a temporary staging table. Rows are streamed in with COPY, then checked
+ * and merged into users with a handful of set-based statements rather than one insert per user.
+ * Every method must run in the same transaction, as the staging table is dropped at commit.
+ */
+@Repository
+@Transactional(propagation = Propagation.MANDATORY)
+public class UserImportRepository {
+
+  // Must match the allocationSize of the User and UserChange sequence generators
+  static final int ID_BLOCK_SIZE = 50;
+
+  private static final String COPY_INTO_STAGING =
+      "copy user_import (line_number, first_name, last_name, email_address, approver_id,"
+          + " approver_email_address, error) from stdin (format csv)";
+
+  private final JdbcTemplate jdbcTemplate;
+  private final DataSource dataSource;
+
+  @PersistenceContext private EntityManager entityManager;
+
+  @Autowired
+  public UserImportRepository(JdbcTemplate jdbcTemplate) {
+    this.jdbcTemplate = jdbcTemplate;
+    this.dataSource = jdbcTemplate.getDataSource();
+  }
+
+  public void createStagingTable() {
+    jdbcTemplate.execute(
+        "create temporary table user_import ("
+            + " line_number int8 primary key,"
+            + " first_name text,"
+            + " last_name text,"
+            + " email_address text,"
+            + " approver_id int8,"
+            + " approver_email_address text,"
+            + " error text,"
+            + " user_id int8"
+            + ") on commit drop");
+  }
+
+  /**
+   * Opens a COPY into the staging table. Nothing else can use the connection until it is closed.
+   */
+  public StagingWriter openStagingWriter() throws SQLException {
+    Connection connection = DataSourceUtils.getConnection(dataSource);
+    return new StagingWriter(
+        new PGCopyOutputStream(connection.unwrap(PGConnection.class), COPY_INTO_STAGING, 65536));
+  }
+
+  /**
+   * Rejects staged rows that repeat an email address from earlier in the file or from an existing
+   * user, that are part of an approval cycle within the file, or whose approver cannot be found. An
+   * approver named by email address may be another row of the same file, so rejections are repeated
+   * until rows whose approver was rejected are too. A row naming its own email address as approver
+   * is kept: as everywhere else, a user who approves themselves is the top of their chain.
+   */
+  public void rejectInvalidRows() {
+    jdbcTemplate.execute("create index on user_import (email_address) where error is null");
+    jdbcTemplate.execute("analyze user_import");
+    jdbcTemplate.update(
+        "update user_import s set error = 'Email address appears earlier on line ' || f.first_line"
+            + " from (select email_address, min(line_number) as first_line from user_import"
+            + " where error is null group by email_address having count(*) > 1) f"
+            + " where s.error is null and s.email_address = f.email_address"
+            + " and s.line_number > f.first_line");
+    jdbcTemplate.update(
+        "update user_import s set error = 'User already exists with email address: '"
+            + " || s.email_address"
+            + " from users u where s.error is null and u.email_address = s.email_address");
+    jdbcTemplate.update(
+        "update user_import s set error = 'No approver found with id: ' || s.approver_id"
+            + " where s.error is null and s.approver_id is not null"
+            + " and not exists (select 1 from users u where u.user_id = s.approver_id)");
+    // Walking down from the rows whose approver is themselves or not another row of the file
+    // reaches every row except those in a cycle or whose chain of approvers leads into one
+    jdbcTemplate.update(
+        "with recursive acyclic (line_number, email_address) as ("
+            + " select s.line_number, s.email_address from user_import s"
+            + " where s.error is null and not exists (select 1 from user_import a"
+            + " where a.error is null and a.email_address = s.approver_email_address"
+            + " and a.line_number <> s.line_number)"
+            + " union all"
+            + " select s.line_number, s.email_address from user_import s"
+            + " join acyclic a on s.approver_email_address = a.email_address"
+            + " where s.error is null and s.line_number <> a.line_number)"
+            + " update user_import s set error = 'Approval cycle through email address: '"
+            + " || s.approver_email_address"
+            + " where s.error is null"
+            + " and not exists (select 1 from acyclic a where a.line_number = s.line_number)");
+    int rejected;
+    do {
+      rejected =
+          jdbcTemplate.update(
+              "update user_import s set error = 'No approver found with email address: '"
+                  + " || s.approver_email_address"
+                  + " where s.error is null and s.approver_email_address is not null"
+                  + " and not exists (select 1 from users u"
+                  + " where u.email_address = s.approver_email_address)"
+                  + " and not exists (select 1 from user_import a"
+                  + " where a.error is null and a.email_address = s.approver_email_address)");
+    } while (rejected > 0);
+  }
+
+  /**
+   * Inserts every staged row that was not rejected, along with its CREATED change, and returns the
+   * number of users created. A row that names itself as approver gets its own new user_id.
+   */
+  public int insertStagedUsers() {
+    int staged =
+        jdbcTemplate.queryForObject(
+            "select count(*) from user_import where error is null", Integer.class);
+    if (staged == 0) return 0;
+    // Cached queries may have found no user with these email addresses, or fewer reports
+    UserRepositoryCustomImpl.evictCachedUsers(entityManager);
+    jdbcTemplate.update(
+        "update user_import s set user_id = b.hi - "
+            + (ID_BLOCK_SIZE - 1)
+            + " + n.position % "
+            + ID_BLOCK_SIZE
+            + " from (select line_number, row_number() over (order by line_number) - 1 as position"
+            + " from user_import where error is null) n"
+            + " join unnest(?) with ordinality as b(hi, block) on b.block = n.position / "
+            + ID_BLOCK_SIZE
+            + " + 1"
+            + " where s.line_number = n.line_number",
+        idBlocks(allocateIdBlocks("hibernate_sequence", staged)));
+    jdbcTemplate.update(
+        "update user_import s set approver_id = coalesce("
+            + "(select u.user_id from users u where u.email_address = s.approver_email_address),"
+            + " (select a.user_id from user_import a"
+            + " where a.error is null and a.email_address = s.approver_email_address))"
+            + " where s.error is null and s.approver_email_address is not null");
+    int inserted =
+        jdbcTemplate.update(
+            "insert into users (user_id, first_name, last_name, email_address, approver_id,"
+                + " version)"
+                + " select user_id, first_name, last_name, email_address, approver_id, 0"
+                + " from user_import where error is null order by user_id");
+    jdbcTemplate.update(
+        "insert into user_changes (change_id, user_id, change_type)"
+            + " select b.hi - "
+            + (ID_BLOCK_SIZE - 1)
+            + " + n.position % "
+            + ID_BLOCK_SIZE
+            + ", n.user_id, 'CREATED'"
+            + " from (select user_id, row_number() over (order by user_id) - 1 as position"
+            + " from user_import where error is null) n"
+            + " join unnest(?) with ordinality as b(hi, block) on b.block = n.position / "
+            + ID_BLOCK_SIZE
+            + " + 1",
+        idBlocks(allocateIdBlocks("user_changes_seq", staged)));
+    return inserted;
+  }
+
+  /**
+   * Takes enough values from a sequence for {@code count} ids. Hibernate's pooled optimizer treats
+   * each value as the last id of a block of {@link #ID_BLOCK_SIZE}, so these blocks never overlap
+   * the ids it hands out. The first value of a new sequence would give ids below 1 and is skipped.
+   */
+  private Long[] allocateIdBlocks(String sequence, int count) {
+    int blocks = (count + ID_BLOCK_SIZE - 1) / ID_BLOCK_SIZE;
+    List<Long> his = new ArrayList<>(blocks);
+    while (his.size() < blocks) {
+      for (Long hi :
+          jdbcTemplate.queryForList(
+              "select nextval('" + sequence + "') from generate_series(1, ?)",
+              Long.class,
+              blocks - his.size())) {
+        if (hi >= ID_BLOCK_SIZE) his.add(hi);
+      }
+    }
+    return his.toArray(new Long[0]);
+  }
+
+  private static PreparedStatementSetter idBlocks(Long[] his) {
+    return ps -> ps.setArray(1, ps.getConnection().createArrayOf("int8", his));
+  }
+
+  /** Returns the rows that were rejected, in file order, listing at most {@code maxErrors}. */
+  public UserImportReport report(int imported, int maxErrors) {
+    long rejected =
+        jdbcTemplate.queryForObject(
+            "select count(*) from user_import where error is not null", Long.class);
+    List<UserImportError> errors =
+        jdbcTemplate.query(
+            "select line_number, error from user_import where error is not null"
+                + " order by line_number limit ?",
+            (row, rowNumber) -> new UserImportError(row.getLong(1), row.getString(2)),
+            maxErrors);
+    return new UserImportReport(imported, rejected, errors);
+  }
+
+  /** Writes rows into the staging table as CSV, which COPY parses far faster than inserts. */
+  public static class StagingWriter implements Closeable {
+
+    private final Writer writer;
+
+    private StagingWriter(PGCopyOutputStream copy) {
+      this.writer = new BufferedWriter(new OutputStreamWriter(copy, StandardCharsets.UTF_8), 65536);
+    }
+
+    public void stage(
+        long lineNumber,
+        String firstName,
+        String lastName,
+        String emailAddress,
+        Long approverId,
+        String approverEmailAddress)
+        throws IOException {
+      writeRow(
+          lineNumber, firstName, lastName, emailAddress, approverId, approverEmailAddress, null);
+    }
+
+    public void reject(long lineNumber, String error) throws IOException {
+      writeRow(lineNumber, null, null, null, null, null, error);
+    }
+
+    private void writeRow(
+        long lineNumber,
+        String firstName,
+        String lastName,
+        String emailAddress,
+        Long approverId,
+        String approverEmailAddress,
+        String error)
+        throws IOException {
+      writer.write(Long.toString(lineNumber));
+      writeText(firstName);
+      writeText(lastName);
+      writeText(emailAddress);
+      writer.write(',');
+      if (approverId != null) writer.write(Long.toString(approverId));
+      writeText(approverEmailAddress);
+      writeText(error);
+      writer.write('\n');
+    }
+
+    // An unquoted empty field is NULL to COPY, so every present value is quoted
+    private void writeText(String value) throws IOException {
+      writer.write(',');
+      if (value == null) return;
+      writer.write('"');
+      writer.write(value.replace("\"", "\"\""));
+      writer.write('"');
+    }
+
+    /** Ends the COPY, at which point the server reports any row it could not load. */
+    @Override
+    public void close() throws IOException {
+      writer.close();
+    }
+  }
+}
@@ -1,16 +1,123 @@
 package timekeeper.users.repositories;
 
+import static org.hibernate.jpa.QueryHints.HINT_CACHEABLE;
+import static org.hibernate.jpa.QueryHints.HINT_CACHE_REGION;
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.QueryHints.HINT_READONLY;
+
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
+import javax.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import timekeeper.users.config.HibernateCacheConfig;
 import timekeeper.users.models.User;
 
 @Repository
-public interface UserRepository extends JpaRepository<User, Long> {
+public interface UserRepository extends JpaRepository<User, Long>, UserRepositoryCustom {
+  // Not cached queries: the user cache already answers repeated lookups by name and email address
   Optional<User> findUserByFirstNameAndLastName(String firstName, String lastName);
 
   Optional<User> findUserByEmailAddress(String emailAddress);
 
-  Optional<List<User>> findAllByApproverId(long approverId);
+  /**
+   * Returns one row per report of the approver with a userId greater than {@code after}, as an
+   * [approver, report] pair, or a single [approver, null] row when there are none. No rows at all
+   * means the approver does not exist.
+   */
+  @QueryHints({
+    @QueryHint(name = HINT_CACHEABLE, value = "true"),
+    @QueryHint(name = HINT_CACHE_REGION, value = HibernateCacheConfig.USER_QUERIES_REGION)
+  })
+  @Query(
+      "select a, u from User a left join User u on u.approverId = a.userId and u.userId > :after"
+          + " where a.userId = :approverId order by u.userId")
+  List<Object[]> findAllByApproverId(
+      @Param("approverId") long approverId, @Param("after") long after, Pageable pageable);
+
+  /**
+   * Walks the approverId tree down from the approver. The path array stops the walk at a cycle, and
+   * the approver itself is never returned.
+   */
+  @Query(
+      value =
+          "with recursive reports(user_id, path) as ("
+              + " select u.user_id, array[u.approver_id, u.user_id] from users u"
+              + " where u.approver_id = :approverId and u.user_id <> :approverId"
+              + " union all"
+              + " select u.user_id, r.path || u.user_id from users u"
+              + " join reports r on u.approver_id = r.user_id"
+              + " where u.user_id <> all(r.path))"
+              + " select u.* from users u join reports r on r.user_id = u.user_id"
+              + " order by u.user_id",
+      nativeQuery = true)
+  List<User> findAllReportsOfApprover(@Param("approverId") long approverId);
+
+  /**
+   * Walks the approverId tree up from the user, returning the user first and the root last. The
+   * path array stops the walk at a cycle.
+   */
+  @Query(
+      value =
+          "with recursive chain(user_id, approver_id, depth, path) as ("
+              + " select u.user_id, u.approver_id, 0, array[u.user_id] from users u"
+              + " where u.user_id = :userId"
+              + " union all"
+              + " select u.user_id, u.approver_id, c.depth + 1, c.path || u.user_id from users u"
+              + " join chain c on u.user_id = c.approver_id"
+              + " where u.user_id <> all(c.path))"
+              + " select u.* from users u join chain c on c.user_id = u.user_id"
+              + " order by c.depth",
+      nativeQuery = true)
+  List<User> findApprovalChain(@Param("userId") long userId);
+
+  /**
+   * Finds users whose first name, last name, full name or email address, lower-cased, falls in
+   * [from, to). Callers pass a lower-cased prefix as {@code from} and the first string after every
+   * string starting with it as {@code to}, comparing code points as the pattern operators do.
+   */
+  @Query(
+      value =
+          "select u.* from users u where"
+              + " (lower(u.first_name) ~>=~ :from and lower(u.first_name) ~<~ :to)"
+              + " or (lower(u.last_name) ~>=~ :from and lower(u.last_name) ~<~ :to)"
+              + " or (lower(u.first_name || ' ' || u.last_name) ~>=~ :from"
+              + " and lower(u.first_name || ' ' || u.last_name) ~<~ :to)"
+              + " or (lower(u.email_address) ~>=~ :from and lower(u.email_address) ~<~ :to)"
+              + " order by u.last_name, u.first_name, u.user_id limit :limit",
+      nativeQuery = true)
+  List<User> searchByPrefix(
+      @Param("from") String from, @Param("to") String to, @Param("limit") int limit);
+
+  /** Like {@link #searchByPrefix} with no upper bound, for a prefix no string comes after. */
+  @Query(
+      value =
+          "select u.* from users u where lower(u.first_name) ~>=~ :from"
+              + " or lower(u.last_name) ~>=~ :from"
+              + " or lower(u.first_name || ' ' || u.last_name) ~>=~ :from"
+              + " or lower(u.email_address) ~>=~ :from"
+              + " order by u.last_name, u.first_name, u.user_id limit :limit",
+      nativeQuery = true)
+  List<User> searchFromPrefix(@Param("from") String from, @Param("limit") int limit);
+
+  List<User> findAllByUserIdIn(Collection<Long> userIds);
+
+  List<User> findAllByEmailAddressIn(Collection<String> emailAddresses);
+
+  @QueryHints({
+    @QueryHint(name = HINT_FETCH_SIZE, value = "1000"),
+    @QueryHint(name = HINT_READONLY, value = "true")
+  })
+  @Query("select u from User u order by u.userId")
+  Stream<User> streamAllUsers();
+
+  @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "10000"))
+  @Query("select u.emailAddress from User u")
+  Stream<String> streamAllEmailAddresses();
 }
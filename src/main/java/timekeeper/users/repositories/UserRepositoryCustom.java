@@ -0,0 +1,45 @@
+package timekeeper.users.repositories;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import timekeeper.users.models.User;
+import timekeeper.users.models.UserField;
+import timekeeper.users.models.UserFields;
+
+public interface UserRepositoryCustom {
+
+  List<User> insertAllInBatches(List<User> users);
+
+  int patchUser(
+      Long userId,
+      String firstName,
+      String lastName,
+      String emailAddress,
+      Long approverId,
+      boolean clearApprover,
+      Long expectedVersion);
+
+  /**
+   * Moves every report of one approver to another, bumping their versions, in a single statement.
+   * Neither approver is moved, so an approver that approves their own absences keeps doing so, and
+   * a report taking over from their approver keeps reporting to them.
+   */
+  List<User> reassignReports(long fromApproverId, long toApproverId);
+
+  /** Deletes the users in a single statement, returning the rows that were removed. */
+  List<User> deleteAllByUserIdInReturning(Collection<Long> userIds);
+
+  void detach(User user);
+
+  List<UserFields> findFieldsByUserIdIn(Collection<Long> userIds, Set<UserField> fields);
+
+  List<UserFields> findFieldsByEmailAddressIn(
+      Collection<String> emailAddresses, Set<UserField> fields);
+
+  Optional<UserFields> findFieldsByName(String firstName, String lastName, Set<UserField> fields);
+
+  List<UserFields> findFieldsByApproverId(
+      long approverId, long after, int limit, Set<UserField> fields);
+}
@@ -0,0 +1,247 @@
+package timekeeper.users.repositories;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.BiFunction;
+import java.util.stream.Collectors;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.Tuple;
+import javax.persistence.TypedQuery;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.CriteriaUpdate;
+import javax.persistence.criteria.Path;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import javax.persistence.criteria.Selection;
+import org.hibernate.CacheMode;
+import org.hibernate.action.internal.BulkOperationCleanupAction;
+import org.hibernate.action.spi.AfterTransactionCompletionProcess;
+import org.hibernate.cache.spi.access.EntityDataAccess;
+import org.hibernate.cache.spi.access.SoftLock;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.persister.entity.EntityPersister;
+import org.hibernate.query.NativeQuery;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.transaction.annotation.Transactional;
+import timekeeper.users.models.User;
+import timekeeper.users.models.UserField;
+import timekeeper.users.models.UserFields;
+
+public class UserRepositoryCustomImpl implements UserRepositoryCustom {
+
+  @PersistenceContext private EntityManager entityManager;
+
+  @Value("${spring.jpa.properties.hibernate.jdbc.batch_size:50}")
+  private int batchSize;
+
+  /**
+   * Persists new users, flushing and clearing the persistence context after every JDBC batch so
+   * memory stays flat however many users are inserted. The returned users are detached.
+   */
+  @Transactional
+  @Override
+  public List<User> insertAllInBatches(List<User> users) {
+    for (int i = 0; i < users.size(); i++) {
+      entityManager.persist(users.get(i));
+      if ((i + 1) % batchSize == 0) {
+        entityManager.flush();
+        entityManager.clear();
+      }
+    }
+    entityManager.flush();
+    entityManager.clear();
+    return users;
+  }
+
+  /**
+   * Sets only the non-null fields and bumps the version in a single UPDATE, without loading the
+   * user first. A null approverId leaves the approver as it is, so clearing it takes {@code
+   * clearApprover}. Returns the number of rows updated, which is 0 when no user has the given id
+   * (and version, when one is expected).
+   */
+  @Transactional
+  @Override
+  public int patchUser(
+      Long userId,
+      String firstName,
+      String lastName,
+      String emailAddress,
+      Long approverId,
+      boolean clearApprover,
+      Long expectedVersion) {
+    CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+    CriteriaUpdate<User> update = builder.createCriteriaUpdate(User.class);
+    Root<User> user = update.from(User.class);
+    if (firstName != null) update.set(user.get("firstName"), firstName);
+    if (lastName != null) update.set(user.get("lastName"), lastName);
+    if (emailAddress != null) update.set(user.get("emailAddress"), emailAddress);
+    if (approverId != null) update.set(user.get("approverId"), approverId);
+    if (clearApprover) update.set(user.<Long>get("approverId"), builder.nullLiteral(Long.class));
+    Path<Long> version = user.get("version");
+    update.set(version, builder.sum(version, 1L));
+
+    Predicate matches = builder.equal(user.get("userId"), userId);
+    if (expectedVersion != null)
+      matches = builder.and(matches, builder.equal(version, expectedVersion));
+    update.where(matches);
+    int updated = entityManager.createQuery(update).executeUpdate();
+    lockCachedUsers(Collections.singleton(userId));
+    return updated;
+  }
+
+  @Transactional
+  @Override
+  public List<User> reassignReports(long fromApproverId, long toApproverId) {
+    List<User> reports =
+        bulkChange(
+                "update users set approver_id = :toApproverId, version = version + 1"
+                    + " where approver_id = :fromApproverId"
+                    + " and user_id not in (:fromApproverId, :toApproverId)"
+                    + " returning *")
+            .setParameter("fromApproverId", fromApproverId)
+            .setParameter("toApproverId", toApproverId)
+            .getResultList();
+    lockCachedUsers(reports.stream().map(User::getUserId).collect(Collectors.toList()));
+    return reports;
+  }
+
+  @Transactional
+  @Override
+  public List<User> deleteAllByUserIdInReturning(Collection<Long> userIds) {
+    NativeQuery<User> delete =
+        bulkChange("delete from users where user_id in (:userIds) returning *");
+    lockCachedUsers(userIds);
+    return delete.setParameterList("userIds", userIds).getResultList();
+  }
+
+  /**
+   * Prepares a native statement that changes users and returns the changed rows. Hibernate only
+   * sees a query, so the users returned are kept out of the second-level cache and the cached users
+   * are dropped as for a bulk update.
+   */
+  @SuppressWarnings("unchecked")
+  private NativeQuery<User> bulkChange(String sql) {
+    evictCachedUsers(entityManager);
+    return entityManager
+        .createNativeQuery(sql, User.class)
+        .unwrap(NativeQuery.class)
+        .setCacheMode(CacheMode.IGNORE);
+  }
+
+  /**
+   * Drops every cached user and cached query result on users, now and again once the transaction
+   * completes, as Hibernate does for its own bulk updates. Writes to users made without Hibernate
+   * must call this in the same transaction.
+   */
+  static void evictCachedUsers(EntityManager entityManager) {
+    SessionImplementor session = entityManager.unwrap(SessionImplementor.class);
+    session
+        .getActionQueue()
+        .addAction(new BulkOperationCleanupAction(session, Collections.singleton("users")));
+  }
+
+  /**
+   * Locks the users' second-level cache entries until the transaction completes, as Hibernate does
+   * for the users it updates or deletes one at a time. Clearing the cache is not enough on its own:
+   * a transaction that read a user before the change could put the old row back afterwards. Must be
+   * called once the statement's eviction is registered, so that the locks are released after it.
+   */
+  private void lockCachedUsers(Collection<Long> userIds) {
+    SessionImplementor session = entityManager.unwrap(SessionImplementor.class);
+    EntityPersister persister = session.getFactory().getMetamodel().entityPersister(User.class);
+    if (!persister.canWriteToCache()) return;
+    EntityDataAccess cache = persister.getCacheAccessStrategy();
+    for (Long userId : userIds) {
+      Object key =
+          cache.generateCacheKey(
+              userId, persister, session.getFactory(), session.getTenantIdentifier());
+      SoftLock lock = cache.lockItem(session, key, null);
+      session
+          .getActionQueue()
+          .registerProcess(
+              (AfterTransactionCompletionProcess)
+                  (success, completedSession) -> cache.unlockItem(completedSession, key, lock));
+    }
+  }
+
+  @Override
+  public void detach(User user) {
+    entityManager.detach(user);
+  }
+
+  @Override
+  public List<UserFields> findFieldsByUserIdIn(Collection<Long> userIds, Set<UserField> fields) {
+    return selectFields(fields, (builder, user) -> user.get("userId").in(userIds), null);
+  }
+
+  @Override
+  public List<UserFields> findFieldsByEmailAddressIn(
+      Collection<String> emailAddresses, Set<UserField> fields) {
+    return selectFields(
+        fields, (builder, user) -> user.get("emailAddress").in(emailAddresses), null);
+  }
+
+  @Override
+  public Optional<UserFields> findFieldsByName(
+      String firstName, String lastName, Set<UserField> fields) {
+    return selectFields(
+            fields,
+            (builder, user) ->
+                builder.and(
+                    builder.equal(user.get("firstName"), firstName),
+                    builder.equal(user.get("lastName"), lastName)),
+            1)
+        .stream()
+        .findFirst();
+  }
+
+  @Override
+  public List<UserFields> findFieldsByApproverId(
+      long approverId, long after, int limit, Set<UserField> fields) {
+    return selectFields(
+        fields,
+        (builder, user) ->
+            builder.and(
+                builder.equal(user.get("approverId"), approverId),
+                builder.greaterThan(user.get("userId"), after)),
+        limit);
+  }
+
+  /**
+   * Selects only the columns of the requested fields, ordered by userId. The rows come back as
+   * tuples of plain values, so nothing enters the persistence context and there is nothing to
+   * dirty-check at flush.
+   */
+  private List<UserFields> selectFields(
+      Set<UserField> fields,
+      BiFunction<CriteriaBuilder, Root<User>, Predicate> where,
+      Integer maxResults) {
+    CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+    CriteriaQuery<Tuple> query = builder.createTupleQuery();
+    Root<User> user = query.from(User.class);
+    query.multiselect(
+        fields.stream()
+            .<Selection<?>>map(field -> user.get(field.getProperty()).alias(field.getProperty()))
+            .collect(Collectors.toList()));
+    query.where(where.apply(builder, user));
+    query.orderBy(builder.asc(user.get("userId")));
+    TypedQuery<Tuple> typedQuery = entityManager.createQuery(query);
+    if (maxResults != null) typedQuery.setMaxResults(maxResults);
+    return typedQuery.getResultList().stream()
+        .map(tuple -> toUserFields(tuple, fields))
+        .collect(Collectors.toList());
+  }
+
+  private static UserFields toUserFields(Tuple tuple, Set<UserField> fields) {
+    Map<String, Object> values = new LinkedHashMap<>();
+    for (UserField field : fields) values.put(field.getProperty(), tuple.get(field.getProperty()));
+    return new UserFields(values);
+  }
+}
@@ -0,0 +1,229 @@
+package timekeeper.users.rpc;
+
+import io.grpc.Status;
+import io.grpc.stub.ServerCallStreamObserver;
+import io.grpc.stub.StreamObserver;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import timekeeper.users.exceptions.InvalidUserException;
+import timekeeper.users.services.contracts.UserService;
+
+/**
+ * gRPC front end to {@link UserService} for internal callers. Lookups return the same users as the
+ * REST API, encoded as protobuf over a single HTTP/2 connection instead of JSON per request.
+ */
+@Component
+public class UserLookupService extends UserLookupGrpc.UserLookupImplBase {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(UserLookupService.class);
+
+  static final int MAX_BATCH_SIZE = 1000;
+  static final int APPROVER_PAGE_SIZE = 500;
+
+  private final UserService userService;
+
+  @Autowired
+  public UserLookupService(UserService userService) {
+    this.userService = userService;
+  }
+
+  @Override
+  public void getUserById(UserIdRequest request, StreamObserver<User> responseObserver) {
+    respondWithUser(
+        () -> userService.getUserById(request.getUserId()),
+        "No user found with id: " + request.getUserId(),
+        responseObserver);
+  }
+
+  @Override
+  public void getUserByEmail(EmailRequest request, StreamObserver<User> responseObserver) {
+    respondWithUser(
+        () -> userService.getUserByEmail(request.getEmailAddress()),
+        "No user found with email address: " + request.getEmailAddress(),
+        responseObserver);
+  }
+
+  @Override
+  public void getUserByName(NameRequest request, StreamObserver<User> responseObserver) {
+    respondWithUser(
+        () -> userService.getUserByName(request.getFirstName(), request.getLastName()),
+        "No user found with name: " + request.getFirstName() + " " + request.getLastName(),
+        responseObserver);
+  }
+
+  @Override
+  public void getUsersByIds(UserIdsRequest request, StreamObserver<Users> responseObserver) {
+    respondWithUsers(request.getUserIdsList(), userService::getUsersByIds, responseObserver);
+  }
+
+  @Override
+  public void getUsersByEmails(EmailsRequest request, StreamObserver<Users> responseObserver) {
+    respondWithUsers(
+        request.getEmailAddressesList(), userService::getUsersByEmails, responseObserver);
+  }
+
+  /**
+   * Walks the reports a page at a time, and only while the caller is ready for more, so a large
+   * team is never held in memory at once, here or in gRPC's send buffers.
+   */
+  @Override
+  public void streamUsersByApprover(
+      ApproverRequest request, StreamObserver<User> responseObserver) {
+    ServerCallStreamObserver<User> serverObserver =
+        (ServerCallStreamObserver<User>) responseObserver;
+    ReportStreamer streamer = new ReportStreamer(request.getApproverId(), serverObserver);
+    serverObserver.setOnReadyHandler(streamer);
+    streamer.run();
+  }
+
+  @Override
+  public StreamObserver<UserIdRequest> streamUsersByIds(
+      StreamObserver<UserLookupReply> responseObserver) {
+    return new StreamObserver<UserIdRequest>() {
+      private boolean failed;
+
+      @Override
+      public void onNext(UserIdRequest request) {
+        if (failed) return;
+        try {
+          UserLookupReply.Builder reply =
+              UserLookupReply.newBuilder().setUserId(request.getUserId());
+          userService
+              .getUserById(request.getUserId())
+              .map(UserLookupService::toMessage)
+              .ifPresent(reply::setUser);
+          responseObserver.onNext(reply.build());
+        } catch (Exception e) {
+          failed = true;
+          responseObserver.onError(internalError(e));
+        }
+      }
+
+      @Override
+      public void onError(Throwable t) {
+        LOGGER.debug("Caller abandoned streamUsersByIds", t);
+      }
+
+      @Override
+      public void onCompleted() {
+        if (!failed) responseObserver.onCompleted();
+      }
+    };
+  }
+
+  /** Sends reports until the call stops being ready, and picks up there when it is ready again. */
+  private final class ReportStreamer implements Runnable {
+
+    private final long approverId;
+    private final ServerCallStreamObserver<User> responseObserver;
+    private Iterator<timekeeper.users.models.User> page = Collections.emptyIterator();
+    private Long after;
+    private boolean lastPage;
+    private boolean done;
+
+    private ReportStreamer(long approverId, ServerCallStreamObserver<User> responseObserver) {
+      this.approverId = approverId;
+      this.responseObserver = responseObserver;
+    }
+
+    @Override
+    public void run() {
+      if (done) return;
+      try {
+        while (responseObserver.isReady() && !responseObserver.isCancelled()) {
+          if (page.hasNext()) {
+            timekeeper.users.models.User user = page.next();
+            responseObserver.onNext(toMessage(user));
+            after = user.getUserId();
+          } else if (lastPage) {
+            done = true;
+            responseObserver.onCompleted();
+            return;
+          } else {
+            List<timekeeper.users.models.User> next =
+                userService.getUsersByApprover(approverId, after, APPROVER_PAGE_SIZE);
+            lastPage = next.size() < APPROVER_PAGE_SIZE;
+            page = next.iterator();
+          }
+        }
+      } catch (InvalidUserException e) {
+        done = true;
+        responseObserver.onError(
+            Status.NOT_FOUND.withDescription(e.getLocalizedMessage()).asRuntimeException());
+      } catch (Exception e) {
+        done = true;
+        responseObserver.onError(internalError(e));
+      }
+    }
+  }
+
+  private static void respondWithUser(
+      Supplier<Optional<timekeeper.users.models.User>> lookup,
+      String notFoundMessage,
+      StreamObserver<User> responseObserver) {
+    Optional<timekeeper.users.models.User> user;
+    try {
+      user = lookup.get();
+    } catch (Exception e) {
+      responseObserver.onError(internalError(e));
+      return;
+    }
+    if (user.isPresent()) {
+      responseObserver.onNext(toMessage(user.get()));
+      responseObserver.onCompleted();
+    } else {
+      responseObserver.onError(
+          Status.NOT_FOUND.withDescription(notFoundMessage).asRuntimeException());
+    }
+  }
+
+  private static <K> void respondWithUsers(
+      List<K> keys,
+      Function<Collection<K>, List<timekeeper.users.models.User>> lookup,
+      StreamObserver<Users> responseObserver) {
+    if (keys.isEmpty() || keys.size() > MAX_BATCH_SIZE) {
+      responseObserver.onError(
+          Status.INVALID_ARGUMENT
+              .withDescription("Between 1 and " + MAX_BATCH_SIZE + " keys must be supplied")
+              .asRuntimeException());
+      return;
+    }
+    Users.Builder users = Users.newBuilder();
+    try {
+      lookup.apply(keys).forEach(user -> users.addUsers(toMessage(user)));
+    } catch (Exception e) {
+      responseObserver.onError(internalError(e));
+      return;
+    }
+    responseObserver.onNext(users.build());
+    responseObserver.onCompleted();
+  }
+
+  static User toMessage(timekeeper.users.models.User user) {
+    User.Builder message =
+        User.newBuilder()
+            .setUserId(user.getUserId())
+            .setFirstName(user.getFirstName())
+            .setLastName(user.getLastName())
+            .setEmailAddress(user.getEmailAddress());
+    if (user.getApproverId() != null) message.setApproverId(user.getApproverId());
+    if (user.getVersion() != null) message.setVersion(user.getVersion());
+    return message.build();
+  }
+
+  private static RuntimeException internalError(Exception e) {
+    return Status.INTERNAL
+        .withDescription(e.getLocalizedMessage())
+        .withCause(e)
+        .asRuntimeException();
+  }
+}
@@ -0,0 +1,16 @@
+package timekeeper.users.services.contracts;
+
+import java.util.List;
+import reactor.core.publisher.Mono;
+import timekeeper.users.models.User;
+
+public interface ReactiveUserService {
+
+  Mono<User> getUserById(Long userId);
+
+  Mono<User> getUserByEmail(String emailAddress);
+
+  Mono<User> getUserByName(String firstName, String lastName);
+
+  Mono<List<User>> getUsersByApprover(Long approverId, Long after, int limit);
+}
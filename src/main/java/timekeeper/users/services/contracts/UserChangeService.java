@@ -0,0 +1,11 @@
+package timekeeper.users.services.contracts;
+
+import timekeeper.users.models.ChangeCursor;
+import timekeeper.users.models.ChangeFeedPage;
+
+public interface UserChangeService {
+
+  ChangeFeedPage getChanges(ChangeCursor after, int limit);
+
+  ChangeCursor getLatestCursor();
+}
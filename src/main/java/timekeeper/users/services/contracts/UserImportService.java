@@ -0,0 +1,10 @@
+package timekeeper.users.services.contracts;
+
+import java.io.IOException;
+import java.io.InputStream;
+import timekeeper.users.models.UserImportReport;
+
+public interface UserImportService {
+
+  UserImportReport importUsers(InputStream csv) throws IOException;
+}
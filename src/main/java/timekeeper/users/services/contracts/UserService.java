@@ -1,17 +1,42 @@
 package timekeeper.users.services.contracts;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
 import timekeeper.users.models.User;
+import timekeeper.users.models.UserField;
+import timekeeper.users.models.UserFields;
 
 public interface UserService {
 
   User createUser(String firstName, String lastName, String emailAddress, Long approverId);
 
+  List<User> createUsers(List<User> users);
+
   User deleteUser(Long userId);
 
+  List<User> deleteUsers(Collection<Long> userIds);
+
+  int reassignReports(Long fromApproverId, Long toApproverId);
+
   Optional<User> updateUser(
-      Long userId, String firstName, String lastName, String emailAddress, Long approverId);
+      Long userId,
+      String firstName,
+      String lastName,
+      String emailAddress,
+      Long approverId,
+      Long expectedVersion);
+
+  boolean patchUser(
+      Long userId,
+      String firstName,
+      String lastName,
+      String emailAddress,
+      Long approverId,
+      boolean clearApprover,
+      Long expectedVersion);
 
   Optional<User> getUserById(Long userId);
 
@@ -20,4 +45,32 @@ public interface UserService {
   Optional<User> getUserByName(String firstName, String lastName);
 
   List<User> getAllUsersByApprover(Long approverId);
+
+  List<User> getUsersByApprover(Long approverId, Long after, int limit);
+
+  List<User> getAllReportsOfApprover(Long approverId);
+
+  List<User> getApprovalChain(Long userId);
+
+  List<User> searchUsers(String query, int limit);
+
+  List<User> getUsersByIds(Collection<Long> userIds);
+
+  List<User> getUsersByEmails(Collection<String> emailAddresses);
+
+  void forEachUser(Consumer<User> action);
+
+  Optional<UserFields> getUserFieldsById(Long userId, Set<UserField> fields);
+
+  Optional<UserFields> getUserFieldsByEmail(String emailAddress, Set<UserField> fields);
+
+  Optional<UserFields> getUserFieldsByName(
+      String firstName, String lastName, Set<UserField> fields);
+
+  List<UserFields> getUserFieldsByApprover(
+      Long approverId, Long after, int limit, Set<UserField> fields);
+
+  List<UserFields> getUserFieldsByIds(Collection<Long> userIds, Set<UserField> fields);
+
+  List<UserFields> getUserFieldsByEmails(Collection<String> emailAddresses, Set<UserField> fields);
 }
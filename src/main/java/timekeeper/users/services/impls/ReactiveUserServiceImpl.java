@@ -0,0 +1,93 @@
+package timekeeper.users.services.impls;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Supplier;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+import timekeeper.users.cache.EmailFilter;
+import timekeeper.users.cache.UserCache;
+import timekeeper.users.exceptions.InvalidUserException;
+import timekeeper.users.models.User;
+import timekeeper.users.repositories.ReactiveUserRepository;
+import timekeeper.users.services.contracts.ReactiveUserService;
+
+/**
+ * Non-blocking counterpart of the read side of {@link UserServiceImpl}. It shares the same {@link
+ * UserCache}, so hits never touch the database and writes through the blocking service invalidate
+ * users for both. A clustered cache makes remote calls on a near cache miss and on every put, so
+ * those run on the bounded elastic scheduler rather than the event loop.
+ */
+@Service
+public class ReactiveUserServiceImpl implements ReactiveUserService {
+
+  private final ReactiveUserRepository reactiveUserRepository;
+  private final UserCache userCache;
+  private final EmailFilter emailFilter;
+  private final Scheduler cacheScheduler;
+
+  @Autowired
+  public ReactiveUserServiceImpl(
+      ReactiveUserRepository reactiveUserRepository, UserCache userCache, EmailFilter emailFilter) {
+    this.reactiveUserRepository = reactiveUserRepository;
+    this.userCache = userCache;
+    this.emailFilter = emailFilter;
+    this.cacheScheduler =
+        userCache.isClustered() ? Schedulers.boundedElastic() : Schedulers.immediate();
+  }
+
+  @Override
+  public Mono<User> getUserById(Long userId) {
+    return cachedOrLoad(
+        () -> userCache.getById(userId), () -> reactiveUserRepository.findById(userId));
+  }
+
+  @Override
+  public Mono<User> getUserByEmail(String emailAddress) {
+    return cachedOrLoad(
+        () -> userCache.getByEmail(emailAddress),
+        () ->
+            emailFilter.mightExist(emailAddress)
+                ? reactiveUserRepository.findByEmailAddress(emailAddress)
+                : Mono.empty());
+  }
+
+  @Override
+  public Mono<User> getUserByName(String firstName, String lastName) {
+    return cachedOrLoad(
+        () -> userCache.getByName(firstName, lastName),
+        () -> reactiveUserRepository.findByFirstNameAndLastName(firstName, lastName));
+  }
+
+  @Override
+  public Mono<List<User>> getUsersByApprover(Long approverId, Long after, int limit) {
+    return reactiveUserRepository
+        .findAllByApproverId(approverId, after == null ? 0L : after, limit)
+        .switchIfEmpty(
+            Mono.defer(
+                () ->
+                    Mono.error(
+                        new InvalidUserException("No approver found with id: " + approverId))))
+        .filter(Optional::isPresent)
+        .map(Optional::get)
+        .collectList();
+  }
+
+  private Mono<User> cachedOrLoad(
+      Supplier<Optional<User>> cacheLookup, Supplier<Mono<User>> loader) {
+    return Mono.fromSupplier(cacheLookup)
+        .subscribeOn(cacheScheduler)
+        .flatMap(
+            cachedUser -> {
+              if (cachedUser.isPresent()) return Mono.just(cachedUser.get());
+              long loadStartedAt = userCache.loadStarted();
+              return loader
+                  .get()
+                  .publishOn(cacheScheduler)
+                  .doOnNext(user -> userCache.put(user, loadStartedAt));
+            });
+  }
+}
@@ -0,0 +1,72 @@
+package timekeeper.users.services.impls;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import timekeeper.users.datasource.ReadFromPrimary;
+import timekeeper.users.models.ChangeCursor;
+import timekeeper.users.models.ChangeFeedEntry;
+import timekeeper.users.models.ChangeFeedPage;
+import timekeeper.users.models.User;
+import timekeeper.users.models.UserChange;
+import timekeeper.users.repositories.UserChangeRepository;
+import timekeeper.users.services.contracts.UserChangeService;
+import timekeeper.users.services.contracts.UserService;
+
+@Service
+public class UserChangeServiceImpl implements UserChangeService {
+
+  private final UserChangeRepository userChangeRepository;
+  private final UserService userService;
+
+  @Autowired
+  public UserChangeServiceImpl(UserChangeRepository userChangeRepository, UserService userService) {
+    this.userChangeRepository = userChangeRepository;
+    this.userService = userService;
+  }
+
+  /**
+   * Returns the next changes along with the current state of each user, looked up in one batch.
+   * Consumers get the latest state rather than the state at the time of each change, which is all
+   * they need to bring a copy up to date. The users are cached, so the page is read from the
+   * primary.
+   */
+  @ReadFromPrimary
+  @Transactional(readOnly = true)
+  @Override
+  public ChangeFeedPage getChanges(ChangeCursor after, int limit) {
+    List<UserChange> changes =
+        userChangeRepository.findChangesAfter(after.getTxId(), after.getChangeId(), limit);
+    if (changes.isEmpty()) return new ChangeFeedPage(Collections.emptyList(), after.toString());
+
+    Map<Long, User> usersById =
+        userService
+            .getUsersByIds(
+                changes.stream().map(UserChange::getUserId).distinct().collect(Collectors.toList()))
+            .stream()
+            .collect(Collectors.toMap(User::getUserId, Function.identity()));
+    List<ChangeFeedEntry> entries =
+        changes.stream()
+            .map(
+                change ->
+                    new ChangeFeedEntry(
+                        ChangeCursor.of(change).toString(),
+                        change.getUserId(),
+                        change.getChangeType(),
+                        change.getChangedAt(),
+                        usersById.get(change.getUserId())))
+            .collect(Collectors.toList());
+    return new ChangeFeedPage(entries, entries.get(entries.size() - 1).getCursor());
+  }
+
+  @Transactional(readOnly = true)
+  @Override
+  public ChangeCursor getLatestCursor() {
+    return userChangeRepository.findLatestChange().map(ChangeCursor::of).orElse(ChangeCursor.START);
+  }
+}
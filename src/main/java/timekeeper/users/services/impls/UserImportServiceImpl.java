@@ -0,0 +1,153 @@
+package timekeeper.users.services.impls;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import timekeeper.users.cache.EmailFilter;
+import timekeeper.users.exceptions.InvalidImportException;
+import timekeeper.users.exceptions.InvalidUserException;
+import timekeeper.users.imports.CsvReader;
+import timekeeper.users.models.UserImportReport;
+import timekeeper.users.repositories.UserImportRepository;
+import timekeeper.users.services.contracts.UserImportService;
+
+/**
+ * Imports users from CSV with a header row naming the firstName, lastName and emailAddress columns,
+ * and optionally an approverId or approverEmailAddress column. Other columns, such as the userId of
+ * an export, are ignored. Rows are validated as they are read and streamed straight into the
+ * database, and every row that is not imported is reported with the reason.
+ */
+@Service
+public class UserImportServiceImpl implements UserImportService {
+
+  static final int MAX_REPORTED_ERRORS = 1000;
+  static final int MAX_FIELD_LENGTH = 255;
+
+  static final String FIRST_NAME = "firstName";
+  static final String LAST_NAME = "lastName";
+  static final String EMAIL_ADDRESS = "emailAddress";
+  static final String APPROVER_ID = "approverId";
+  static final String APPROVER_EMAIL_ADDRESS = "approverEmailAddress";
+
+  private final UserImportRepository userImportRepository;
+  private final EmailFilter emailFilter;
+
+  @Autowired
+  public UserImportServiceImpl(UserImportRepository userImportRepository, EmailFilter emailFilter) {
+    this.userImportRepository = userImportRepository;
+    this.emailFilter = emailFilter;
+  }
+
+  @Transactional(rollbackFor = {IOException.class, SQLException.class})
+  @Override
+  public UserImportReport importUsers(InputStream csv) throws IOException {
+    CsvReader reader = new CsvReader(new InputStreamReader(csv, StandardCharsets.UTF_8));
+    List<String> header = reader.readRecord();
+    if (header == null) throw new InvalidImportException("The file is empty");
+    Map<String, Integer> columns = new HashMap<>();
+    for (int i = 0; i < header.size(); i++) columns.putIfAbsent(header.get(i).trim(), i);
+    if (!columns.containsKey(FIRST_NAME)
+        || !columns.containsKey(LAST_NAME)
+        || !columns.containsKey(EMAIL_ADDRESS))
+      throw new InvalidImportException(
+          "The header must name the firstName, lastName and emailAddress columns");
+
+    userImportRepository.createStagingTable();
+    try (UserImportRepository.StagingWriter staging = userImportRepository.openStagingWriter()) {
+      List<String> record;
+      while ((record = reader.readRecord()) != null) {
+        if (record.size() == 1 && record.get(0).trim().isEmpty()) continue;
+        stage(staging, reader.getRecordLine(), record, header.size(), columns);
+      }
+    } catch (SQLException e) {
+      throw new IOException("Could not start loading the file", e);
+    }
+
+    userImportRepository.rejectInvalidRows();
+    int imported;
+    try {
+      imported = userImportRepository.insertStagedUsers();
+    } catch (DuplicateKeyException e) {
+      throw new InvalidUserException("Users were created concurrently with the same emails");
+    }
+    return userImportRepository.report(imported, MAX_REPORTED_ERRORS);
+  }
+
+  private void stage(
+      UserImportRepository.StagingWriter staging,
+      long lineNumber,
+      List<String> record,
+      int expectedFields,
+      Map<String, Integer> columns)
+      throws IOException {
+    if (record.size() != expectedFields) {
+      staging.reject(
+          lineNumber, "Expected " + expectedFields + " fields but found " + record.size());
+      return;
+    }
+    String firstName = field(record, columns, FIRST_NAME);
+    String lastName = field(record, columns, LAST_NAME);
+    String emailAddress = field(record, columns, EMAIL_ADDRESS);
+    String approverId = field(record, columns, APPROVER_ID);
+    String approverEmailAddress = field(record, columns, APPROVER_EMAIL_ADDRESS);
+
+    String error = null;
+    if (firstName == null || lastName == null || emailAddress == null)
+      error = "A first name, last name and email address are required";
+    else if (isTooLong(firstName, lastName, emailAddress, approverId, approverEmailAddress))
+      error = "Fields may be at most " + MAX_FIELD_LENGTH + " characters long";
+    else if (containsNul(firstName, lastName, emailAddress, approverEmailAddress))
+      error = "Fields may not contain NUL characters";
+    else if (emailAddress.indexOf('@') < 1) error = "Not a valid email address: " + emailAddress;
+    else if (approverId != null && approverEmailAddress != null)
+      error = "Only one of approverId and approverEmailAddress may be given";
+    if (error != null) {
+      staging.reject(lineNumber, error);
+      return;
+    }
+
+    Long parsedApproverId = null;
+    if (approverId != null) {
+      try {
+        parsedApproverId = Long.valueOf(approverId);
+      } catch (NumberFormatException e) {
+        staging.reject(lineNumber, "Not a valid approverId: " + approverId);
+        return;
+      }
+    }
+    emailFilter.add(emailAddress);
+    staging.stage(
+        lineNumber, firstName, lastName, emailAddress, parsedApproverId, approverEmailAddress);
+  }
+
+  /** Returns the trimmed field, or null when the column is absent or the field is blank. */
+  private static String field(List<String> record, Map<String, Integer> columns, String column) {
+    Integer index = columns.get(column);
+    if (index == null) return null;
+    String value = record.get(index).trim();
+    return value.isEmpty() ? null : value;
+  }
+
+  private static boolean isTooLong(String... values) {
+    for (String value : values) {
+      if (value != null && value.length() > MAX_FIELD_LENGTH) return true;
+    }
+    return false;
+  }
+
+  private static boolean containsNul(String... values) {
+    for (String value : values) {
+      if (value != null && value.indexOf('\0') >= 0) return true;
+    }
+    return false;
+  }
+}
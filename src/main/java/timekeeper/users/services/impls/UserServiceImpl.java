@@ -1,88 +1,543 @@
 package timekeeper.users.services.impls;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import javax.annotation.Resource;
+import org.hibernate.exception.ConstraintViolationException;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import timekeeper.users.cache.EmailFilter;
+import timekeeper.users.cache.UserCache;
+import timekeeper.users.coalescing.Coalesced;
+import timekeeper.users.datasource.ReadFromPrimary;
+import timekeeper.users.exceptions.ApprovalCycleException;
 import timekeeper.users.exceptions.InvalidUserException;
+import timekeeper.users.models.ChangeType;
 import timekeeper.users.models.User;
+import timekeeper.users.models.UserChange;
+import timekeeper.users.models.UserField;
+import timekeeper.users.models.UserFields;
+import timekeeper.users.repositories.UserChangeRepository;
 import timekeeper.users.repositories.UserRepository;
 import timekeeper.users.services.contracts.UserService;
 
 @Service
 public class UserServiceImpl implements UserService {
 
+  static final int LOOKUP_CHUNK_SIZE = 500;
+  static final String EMAIL_ADDRESS_CONSTRAINT = "users_email_address_key";
+
   @Resource final UserRepository userRepository;
+  private final UserCache userCache;
+  private final UserChangeRepository userChangeRepository;
+  private final EmailFilter emailFilter;
 
   @Autowired
-  public UserServiceImpl(UserRepository userRepository) {
+  public UserServiceImpl(
+      UserRepository userRepository,
+      UserCache userCache,
+      UserChangeRepository userChangeRepository,
+      EmailFilter emailFilter) {
     this.userRepository = userRepository;
+    this.userCache = userCache;
+    this.userChangeRepository = userChangeRepository;
+    this.emailFilter = emailFilter;
   }
 
   @Transactional
   @Override
   public User createUser(String firstName, String lastName, String emailAddress, Long approverId) {
-    Optional<User> existingUser = getUserByEmail(emailAddress);
-    if (existingUser.isPresent())
+    emailFilter.add(emailAddress);
+    User createdUser;
+    try {
+      createdUser =
+          userRepository.saveAndFlush(
+              new User(null, firstName, lastName, emailAddress, approverId));
+    } catch (DataIntegrityViolationException e) {
+      if (isDuplicateEmail(e))
+        throw new InvalidUserException("User already exists with email address: " + emailAddress);
+      throw e;
+    }
+    userChangeRepository.save(new UserChange(createdUser.getUserId(), ChangeType.CREATED));
+    userCache.putAfterCommit(createdUser);
+    return createdUser;
+  }
+
+  @Transactional
+  @Override
+  public List<User> createUsers(List<User> users) {
+    Set<String> emailAddresses = new LinkedHashSet<>();
+    List<String> duplicateEmails = new ArrayList<>();
+    for (User user : users) {
+      if (!emailAddresses.add(user.getEmailAddress())) duplicateEmails.add(user.getEmailAddress());
+    }
+    if (!duplicateEmails.isEmpty())
       throw new InvalidUserException(
-          "User already exists with id: " + existingUser.get().getUserId());
-    return userRepository.save(new User(0L, firstName, lastName, emailAddress, approverId));
+          "Email addresses appear more than once in the request: " + duplicateEmails);
+
+    List<String> existingEmails =
+        getUsersByEmails(emailAddresses).stream()
+            .map(User::getEmailAddress)
+            .collect(Collectors.toList());
+    if (!existingEmails.isEmpty())
+      throw new InvalidUserException("Users already exist with email addresses: " + existingEmails);
+
+    emailAddresses.forEach(emailFilter::add);
+    List<User> createdUsers;
+    try {
+      createdUsers =
+          userRepository.insertAllInBatches(
+              users.stream()
+                  .map(
+                      user ->
+                          new User(
+                              null,
+                              user.getFirstName(),
+                              user.getLastName(),
+                              user.getEmailAddress(),
+                              user.getApproverId()))
+                  .collect(Collectors.toList()));
+    } catch (DataIntegrityViolationException e) {
+      if (isDuplicateEmail(e))
+        throw new InvalidUserException("Users were created concurrently with the same emails");
+      throw e;
+    }
+    userChangeRepository.saveAll(
+        createdUsers.stream()
+            .map(user -> new UserChange(user.getUserId(), ChangeType.CREATED))
+            .collect(Collectors.toList()));
+    return createdUsers;
   }
 
   @Transactional(rollbackFor = InvalidUserException.class)
   @Override
   public User deleteUser(Long userId) throws InvalidUserException {
-    Optional<User> toBeDeleted = userRepository.findById(userId);
-    if (toBeDeleted.isEmpty()) throw new InvalidUserException("No user found with id: " + userId);
-    userRepository.deleteById(userId);
-    return toBeDeleted.get();
+    List<User> deleted = deleteUsers(Collections.singletonList(userId));
+    if (deleted.isEmpty()) throw new InvalidUserException("No user found with id: " + userId);
+    return deleted.get(0);
+  }
+
+  /**
+   * Deletes the users in a single statement and returns the ones that existed. Their reports keep
+   * the deleted approverId until they are reassigned.
+   */
+  @Transactional
+  @Override
+  public List<User> deleteUsers(Collection<Long> userIds) {
+    List<User> deleted = userRepository.deleteAllByUserIdInReturning(userIds);
+    recordChanges(deleted, ChangeType.DELETED);
+    return deleted;
+  }
+
+  /**
+   * Moves every report of one approver to another in a single statement and returns how many were
+   * moved. The old approver need not exist any more, but the new one must. The new approver may be
+   * one of the reports, and is then left reporting to the old one, but may not be below another
+   * report, as that report would end up approving itself.
+   */
+  @Transactional
+  @Override
+  public int reassignReports(Long fromApproverId, Long toApproverId) {
+    List<User> newApproverChain = userRepository.findApprovalChain(toApproverId);
+    if (newApproverChain.isEmpty())
+      throw new InvalidUserException("No approver found with id: " + toApproverId);
+    Optional<User> movedAbove =
+        newApproverChain.stream()
+            .skip(1)
+            .filter(
+                user ->
+                    fromApproverId.equals(user.getApproverId())
+                        && !fromApproverId.equals(user.getUserId()))
+            .findFirst();
+    if (movedAbove.isPresent())
+      throw new ApprovalCycleException(
+          "User "
+              + toApproverId
+              + " reports to user "
+              + fromApproverId
+              + " through user "
+              + movedAbove.get().getUserId()
+              + ", who would then report to user "
+              + toApproverId);
+    List<User> reassigned = userRepository.reassignReports(fromApproverId, toApproverId);
+    recordChanges(reassigned, ChangeType.UPDATED);
+    return reassigned.size();
+  }
+
+  private void recordChanges(List<User> users, ChangeType changeType) {
+    userChangeRepository.saveAll(
+        users.stream()
+            .map(user -> new UserChange(user.getUserId(), changeType))
+            .collect(Collectors.toList()));
+    users.forEach(user -> userCache.invalidate(user.getUserId()));
   }
 
   @Transactional(rollbackFor = InvalidUserException.class)
   @Override
   public Optional<User> updateUser(
-      Long userId, String firstName, String lastName, String emailAddress, Long approverId) {
+      Long userId,
+      String firstName,
+      String lastName,
+      String emailAddress,
+      Long approverId,
+      Long expectedVersion) {
     Optional<User> toBeUpdated = userRepository.findById(userId);
     if (toBeUpdated.isEmpty()) return Optional.empty();
     User presentUser = toBeUpdated.get();
+    if (expectedVersion != null && !expectedVersion.equals(presentUser.getVersion()))
+      throw new ObjectOptimisticLockingFailureException(User.class, userId);
 
     presentUser.setFirstName(firstName);
     presentUser.setLastName(lastName);
     presentUser.setEmailAddress(emailAddress);
     presentUser.setApproverId(approverId);
 
-    return Optional.of(userRepository.save(presentUser));
+    emailFilter.add(emailAddress);
+    User updatedUser;
+    try {
+      updatedUser = userRepository.saveAndFlush(presentUser);
+    } catch (DataIntegrityViolationException e) {
+      if (isDuplicateEmail(e))
+        throw new InvalidUserException("User already exists with email address: " + emailAddress);
+      throw e;
+    }
+    userChangeRepository.save(new UserChange(userId, ChangeType.UPDATED));
+    userCache.invalidate(userId);
+    return Optional.of(updatedUser);
+  }
+
+  @Transactional
+  @Override
+  public boolean patchUser(
+      Long userId,
+      String firstName,
+      String lastName,
+      String emailAddress,
+      Long approverId,
+      boolean clearApprover,
+      Long expectedVersion) {
+    emailFilter.add(emailAddress);
+    int updatedRows;
+    try {
+      updatedRows =
+          userRepository.patchUser(
+              userId,
+              firstName,
+              lastName,
+              emailAddress,
+              approverId,
+              clearApprover,
+              expectedVersion);
+    } catch (DataIntegrityViolationException e) {
+      if (isDuplicateEmail(e))
+        throw new InvalidUserException("User already exists with email address: " + emailAddress);
+      throw e;
+    }
+    if (updatedRows == 0) {
+      if (expectedVersion != null && userRepository.existsById(userId))
+        throw new ObjectOptimisticLockingFailureException(User.class, userId);
+      return false;
+    }
+    userChangeRepository.save(new UserChange(userId, ChangeType.UPDATED));
+    userCache.invalidate(userId);
+    return true;
+  }
+
+  private static boolean isDuplicateEmail(DataIntegrityViolationException e) {
+    if (!(e.getCause() instanceof ConstraintViolationException)) return false;
+    String constraintName = ((ConstraintViolationException) e.getCause()).getConstraintName();
+    return constraintName != null
+        && constraintName.toLowerCase(Locale.ROOT).contains(EMAIL_ADDRESS_CONSTRAINT);
   }
 
+  @Coalesced
+  @ReadFromPrimary
   @Transactional(readOnly = true)
   @Override
   public Optional<User> getUserById(Long userId) {
-    return userRepository.findById(userId);
+    Optional<User> cachedUser = userCache.getById(userId);
+    if (cachedUser.isPresent()) return cachedUser;
+    long loadStartedAt = userCache.loadStarted();
+    Optional<User> user = userRepository.findById(userId);
+    user.ifPresent(found -> userCache.put(found, loadStartedAt));
+    return user;
   }
 
+  @Coalesced
+  @ReadFromPrimary
   @Transactional(readOnly = true)
   @Override
   public Optional<User> getUserByEmail(String emailAddress) {
-    return userRepository.findUserByEmailAddress(emailAddress);
+    Optional<User> cachedUser = userCache.getByEmail(emailAddress);
+    if (cachedUser.isPresent()) return cachedUser;
+    if (!emailFilter.mightExist(emailAddress)) return Optional.empty();
+    long loadStartedAt = userCache.loadStarted();
+    Optional<User> user = userRepository.findUserByEmailAddress(emailAddress);
+    if (user.isPresent()) userCache.put(user.get(), loadStartedAt);
+    else emailFilter.recordFalsePositive();
+    return user;
   }
 
+  @Coalesced
+  @ReadFromPrimary
   @Transactional(readOnly = true)
   @Override
   public Optional<User> getUserByName(String firstName, String lastName) {
-    return userRepository.findUserByFirstNameAndLastName(firstName, lastName);
+    Optional<User> cachedUser = userCache.getByName(firstName, lastName);
+    if (cachedUser.isPresent()) return cachedUser;
+    long loadStartedAt = userCache.loadStarted();
+    Optional<User> user = userRepository.findUserByFirstNameAndLastName(firstName, lastName);
+    user.ifPresent(found -> userCache.put(found, loadStartedAt));
+    return user;
   }
 
+  @Coalesced
   @Transactional(readOnly = true)
   @Override
   public List<User> getAllUsersByApprover(Long approverId) {
-    Optional<User> approver = userRepository.findById(approverId);
-    if (approver.isEmpty())
+    return toReports(
+        approverId, userRepository.findAllByApproverId(approverId, 0L, Pageable.unpaged()));
+  }
+
+  @Coalesced
+  @Transactional(readOnly = true)
+  @Override
+  public List<User> getUsersByApprover(Long approverId, Long after, int limit) {
+    return toReports(
+        approverId,
+        userRepository.findAllByApproverId(
+            approverId, after == null ? 0L : after, PageRequest.of(0, limit)));
+  }
+
+  @Coalesced
+  @Transactional(readOnly = true)
+  @Override
+  public List<User> getAllReportsOfApprover(Long approverId) {
+    List<User> reports = userRepository.findAllReportsOfApprover(approverId);
+    if (reports.isEmpty() && !userRepository.existsById(approverId))
+      throw new InvalidUserException("No approver found with id: " + approverId);
+    return reports;
+  }
+
+  @Coalesced
+  @Transactional(readOnly = true)
+  @Override
+  public List<User> getApprovalChain(Long userId) {
+    List<User> chain = userRepository.findApprovalChain(userId);
+    if (chain.isEmpty()) throw new InvalidUserException("No user found with id: " + userId);
+    User top = chain.get(chain.size() - 1);
+    if (top.getApproverId() != null
+        && !top.getApproverId().equals(top.getUserId())
+        && chain.stream().anyMatch(user -> user.getUserId().equals(top.getApproverId())))
+      throw new ApprovalCycleException(
+          "The approval chain of user " + userId + " loops back to user " + top.getApproverId());
+    return chain;
+  }
+
+  private static List<User> toReports(Long approverId, List<Object[]> approverAndReports) {
+    if (approverAndReports.isEmpty())
       throw new InvalidUserException("No approver found with id: " + approverId);
-    Optional<List<User>> userList = userRepository.findAllByApproverId(approverId);
-    if (userList.isEmpty())
-      throw new InvalidUserException("No users found for the approver with id: " + approverId);
-    return userList.get();
+    return approverAndReports.stream()
+        .map(row -> (User) row[1])
+        .filter(Objects::nonNull)
+        .collect(Collectors.toList());
+  }
+
+  @Transactional(readOnly = true)
+  @Override
+  public List<User> searchUsers(String query, int limit) {
+    String prefix = query.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    if (prefix.isEmpty()) return Collections.emptyList();
+    String upperBound = prefixUpperBound(prefix);
+    if (upperBound == null) return userRepository.searchFromPrefix(prefix, limit);
+    return userRepository.searchByPrefix(prefix, upperBound, limit);
+  }
+
+  /**
+   * Returns the first string after every string starting with the prefix, found by incrementing its
+   * last code point. Trailing U+10FFFF cannot be incremented and is dropped first, and a prefix of
+   * nothing else has no upper bound, so this returns null.
+   */
+  private static String prefixUpperBound(String prefix) {
+    int end = prefix.length();
+    while (end > 0) {
+      int last = prefix.codePointBefore(end);
+      end -= Character.charCount(last);
+      if (last < Character.MAX_CODE_POINT) {
+        int next = last + 1;
+        // Surrogates are not characters, and a lone one cannot be encoded
+        if (next >= Character.MIN_SURROGATE && next <= Character.MAX_SURROGATE)
+          next = Character.MAX_SURROGATE + 1;
+        return new StringBuilder(prefix.substring(0, end)).appendCodePoint(next).toString();
+      }
+    }
+    return null;
+  }
+
+  @ReadFromPrimary
+  @Transactional(readOnly = true)
+  @Override
+  public List<User> getUsersByIds(Collection<Long> userIds) {
+    return getUsersInChunks(userIds, userCache::getById, userRepository::findAllByUserIdIn);
+  }
+
+  @ReadFromPrimary
+  @Transactional(readOnly = true)
+  @Override
+  public List<User> getUsersByEmails(Collection<String> emailAddresses) {
+    List<String> candidates = mightExist(emailAddresses);
+    List<User> users =
+        getUsersInChunks(
+            candidates, userCache::getByEmail, userRepository::findAllByEmailAddressIn);
+    emailFilter.recordFalsePositives(candidates.size() - users.size());
+    return users;
+  }
+
+  /**
+   * Walks the whole users table through a server-side cursor, detaching each user once the action
+   * has run so the persistence context never holds more than one row.
+   */
+  @Transactional(readOnly = true)
+  @Override
+  public void forEachUser(Consumer<User> action) {
+    try (Stream<User> users = userRepository.streamAllUsers()) {
+      users.forEach(
+          user -> {
+            action.accept(user);
+            userRepository.detach(user);
+          });
+    }
+  }
+
+  /**
+   * Answers from the cached user when there is one, and otherwise selects only the requested
+   * columns. The partial rows are never cached. The other getUserFields lookups work the same way.
+   */
+  @Transactional(readOnly = true)
+  @Override
+  public Optional<UserFields> getUserFieldsById(Long userId, Set<UserField> fields) {
+    Optional<User> cachedUser = userCache.getById(userId);
+    if (cachedUser.isPresent()) return cachedUser.map(user -> UserFields.of(user, fields));
+    return userRepository.findFieldsByUserIdIn(Collections.singletonList(userId), fields).stream()
+        .findFirst();
+  }
+
+  @Transactional(readOnly = true)
+  @Override
+  public Optional<UserFields> getUserFieldsByEmail(String emailAddress, Set<UserField> fields) {
+    Optional<User> cachedUser = userCache.getByEmail(emailAddress);
+    if (cachedUser.isPresent()) return cachedUser.map(user -> UserFields.of(user, fields));
+    if (!emailFilter.mightExist(emailAddress)) return Optional.empty();
+    Optional<UserFields> user =
+        userRepository.findFieldsByEmailAddressIn(Collections.singletonList(emailAddress), fields)
+            .stream()
+            .findFirst();
+    if (user.isEmpty()) emailFilter.recordFalsePositive();
+    return user;
+  }
+
+  @Transactional(readOnly = true)
+  @Override
+  public Optional<UserFields> getUserFieldsByName(
+      String firstName, String lastName, Set<UserField> fields) {
+    Optional<User> cachedUser = userCache.getByName(firstName, lastName);
+    if (cachedUser.isPresent()) return cachedUser.map(user -> UserFields.of(user, fields));
+    return userRepository.findFieldsByName(firstName, lastName, fields);
+  }
+
+  @Transactional(readOnly = true)
+  @Override
+  public List<UserFields> getUserFieldsByApprover(
+      Long approverId, Long after, int limit, Set<UserField> fields) {
+    List<UserFields> reports =
+        userRepository.findFieldsByApproverId(
+            approverId, after == null ? 0L : after, limit, fields);
+    if (reports.isEmpty() && !userRepository.existsById(approverId))
+      throw new InvalidUserException("No approver found with id: " + approverId);
+    return reports;
+  }
+
+  @Transactional(readOnly = true)
+  @Override
+  public List<UserFields> getUserFieldsByIds(Collection<Long> userIds, Set<UserField> fields) {
+    return getUserFieldsInChunks(
+        userIds, fields, userCache::getById, userRepository::findFieldsByUserIdIn);
+  }
+
+  @Transactional(readOnly = true)
+  @Override
+  public List<UserFields> getUserFieldsByEmails(
+      Collection<String> emailAddresses, Set<UserField> fields) {
+    List<String> candidates = mightExist(emailAddresses);
+    List<UserFields> users =
+        getUserFieldsInChunks(
+            candidates, fields, userCache::getByEmail, userRepository::findFieldsByEmailAddressIn);
+    emailFilter.recordFalsePositives(candidates.size() - users.size());
+    return users;
+  }
+
+  /** The distinct addresses the filter lets through, each of which matches at most one user. */
+  private List<String> mightExist(Collection<String> emailAddresses) {
+    return emailAddresses.stream()
+        .distinct()
+        .filter(emailFilter::mightExist)
+        .collect(Collectors.toList());
+  }
+
+  private <K> List<UserFields> getUserFieldsInChunks(
+      Collection<K> keys,
+      Set<UserField> fields,
+      Function<K, Optional<User>> cacheLookup,
+      BiFunction<List<K>, Set<UserField>, List<UserFields>> chunkQuery) {
+    List<UserFields> users = new ArrayList<>();
+    List<K> misses = new ArrayList<>();
+    for (K key : new LinkedHashSet<>(keys)) {
+      Optional<User> cachedUser = cacheLookup.apply(key);
+      if (cachedUser.isPresent()) users.add(UserFields.of(cachedUser.get(), fields));
+      else misses.add(key);
+    }
+    for (int from = 0; from < misses.size(); from += LOOKUP_CHUNK_SIZE) {
+      List<K> chunk = misses.subList(from, Math.min(from + LOOKUP_CHUNK_SIZE, misses.size()));
+      users.addAll(chunkQuery.apply(chunk, fields));
+    }
+    return users;
+  }
+
+  private <K> List<User> getUsersInChunks(
+      Collection<K> keys,
+      Function<K, Optional<User>> cacheLookup,
+      Function<List<K>, List<User>> chunkQuery) {
+    List<User> users = new ArrayList<>();
+    List<K> misses = new ArrayList<>();
+    for (K key : new LinkedHashSet<>(keys)) {
+      Optional<User> cachedUser = cacheLookup.apply(key);
+      if (cachedUser.isPresent()) users.add(cachedUser.get());
+      else misses.add(key);
+    }
+    for (int from = 0; from < misses.size(); from += LOOKUP_CHUNK_SIZE) {
+      List<K> chunk = misses.subList(from, Math.min(from + LOOKUP_CHUNK_SIZE, misses.size()));
+      long loadStartedAt = userCache.loadStarted();
+      List<User> loadedUsers = chunkQuery.apply(chunk);
+      loadedUsers.forEach(user -> userCache.put(user, loadStartedAt));
+      users.addAll(loadedUsers);
+    }
+    return users;
   }
 }
@@ -0,0 +1,12 @@
+-- The schema as Hibernate generated it before migrations were introduced. Existing databases are
+-- baselined at this version, so this only runs against an empty database.
+create sequence if not exists hibernate_sequence start with 1 increment by 50;
+
+create table if not exists users (
+  user_id int8 not null,
+  approver_id int8,
+  email_address varchar(255) not null,
+  first_name varchar(255) not null,
+  last_name varchar(255) not null,
+  primary key (user_id)
+);
@@ -0,0 +1,10 @@
+-- User ids are allocated in blocks of 50 by Hibernate's pooled optimizer, so the sequence has to
+-- step by the same amount. Databases created under the old AUTO mapping still step by 1.
+alter sequence hibernate_sequence increment by 50;
+
+-- createUser relies on this constraint rather than checking for the email address first.
+alter table users add constraint users_email_address_key unique (email_address);
+
+create index users_first_name_last_name_idx on users (first_name, last_name);
+
+create index users_approver_id_idx on users (approver_id);
@@ -0,0 +1,10 @@
+-- Prefix indexes for the typeahead search. text_pattern_ops compares bytewise, so the range
+-- predicates in UserRepository.searchByPrefix can use them even from a generic prepared plan.
+create index users_first_name_prefix_idx on users (lower(first_name) text_pattern_ops);
+
+create index users_last_name_prefix_idx on users (lower(last_name) text_pattern_ops);
+
+create index users_full_name_prefix_idx
+  on users (lower(first_name || ' ' || last_name) text_pattern_ops);
+
+create index users_email_address_prefix_idx on users (lower(email_address) text_pattern_ops);
@@ -0,0 +1,3 @@
+-- Backs the users ETags and optimistic locking. Adding a column with a constant default does not
+-- rewrite the table.
+alter table users add column version int8 not null default 0;
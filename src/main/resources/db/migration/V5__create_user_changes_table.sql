@@ -0,0 +1,16 @@
+-- Transactional outbox behind the user change feed. Rows are written in the same transaction as
+-- the change to users. Change ids are allocated in blocks of 50 like user ids, so they do not follow
+-- commit order. The feed therefore orders by the id of the writing transaction and only serves
+-- transactions older than every one still running; those can no longer gain rows.
+create sequence user_changes_seq start with 1 increment by 50;
+
+create table user_changes (
+  change_id int8 not null,
+  user_id int8 not null,
+  change_type varchar(16) not null,
+  changed_at timestamp not null default now(),
+  tx_id int8 not null default txid_current(),
+  primary key (change_id)
+);
+
+create index user_changes_tx_id_change_id_idx on user_changes (tx_id, change_id);
@@ -0,0 +1,42 @@
+package timekeeper.users;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit4.SpringRunner;
+import timekeeper.users.models.User;
+import timekeeper.users.services.contracts.UserService;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("prod")
+public class ProdProfileTests {
+
+  @Autowired private TestRestTemplate restTemplate;
+  @Autowired private UserService userService;
+
+  @Test
+  public void servesLookupsAndMetrics() {
+    User user =
+        userService.createUser(
+            "Prod", "Profile", "prod.profile." + System.nanoTime() + "@example.com", null);
+
+    ResponseEntity<User> lookup =
+        restTemplate.getForEntity("/get-user-by-id?userId={userId}", User.class, user.getUserId());
+    assertEquals(HttpStatus.OK, lookup.getStatusCode());
+    assertEquals(user.getEmailAddress(), lookup.getBody().getEmailAddress());
+
+    ResponseEntity<String> metrics =
+        restTemplate.getForEntity("/actuator/prometheus", String.class);
+    assertEquals(HttpStatus.OK, metrics.getStatusCode());
+    assertTrue(metrics.getBody().contains("uri=\"/get-user-by-id\""));
+  }
+}
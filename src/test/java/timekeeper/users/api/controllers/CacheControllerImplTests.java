@@ -0,0 +1,45 @@
+package timekeeper.users.api.controllers;
+
+import static org.junit.Assert.assertEquals;
+
+import java.time.Duration;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.junit4.SpringRunner;
+import timekeeper.users.cache.UserCache;
+import timekeeper.users.models.CacheStatistics;
+import timekeeper.users.utils.TestUtils;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest
+public class CacheControllerImplTests {
+
+  private UserCache userCache;
+  private CacheControllerImpl controller;
+
+  @Before
+  public void setUp() {
+    userCache = new UserCache(100, Duration.ofMinutes(5));
+    controller = new CacheControllerImpl(userCache);
+  }
+
+  @Test
+  public void getUserCacheStatistics_Successful() {
+    userCache.put(TestUtils.getDefaultUser(), userCache.loadStarted());
+    userCache.getById(TestUtils.getDefaultUser().getUserId());
+    userCache.getById(999L);
+
+    ResponseEntity<List<CacheStatistics>> actual = controller.getUserCacheStatistics();
+
+    assertEquals(HttpStatus.OK, actual.getStatusCode());
+    CacheStatistics usersById = actual.getBody().get(0);
+    assertEquals("usersById", usersById.getName());
+    assertEquals(1, usersById.getHitCount());
+    assertEquals(1, usersById.getMissCount());
+  }
+}
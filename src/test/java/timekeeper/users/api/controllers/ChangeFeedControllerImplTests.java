@@ -0,0 +1,116 @@
+package timekeeper.users.api.controllers;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.function.Predicate;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.server.ResponseStatusException;
+import timekeeper.users.changes.ChangeFeedNotifier;
+import timekeeper.users.models.ChangeCursor;
+import timekeeper.users.models.ChangeFeedEntry;
+import timekeeper.users.models.ChangeFeedPage;
+import timekeeper.users.models.ChangeType;
+import timekeeper.users.services.contracts.UserChangeService;
+import timekeeper.users.services.impls.UserChangeServiceImpl;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest
+public class ChangeFeedControllerImplTests {
+
+  private UserChangeService mockUserChangeService;
+  private ChangeFeedNotifier mockChangeFeedNotifier;
+  private ChangeFeedControllerImpl controller;
+
+  @Before
+  public void setUp() {
+    mockUserChangeService = mock(UserChangeServiceImpl.class);
+    mockChangeFeedNotifier = mock(ChangeFeedNotifier.class);
+    controller =
+        new ChangeFeedControllerImpl(
+            mockUserChangeService, mockChangeFeedNotifier, Duration.ofMinutes(1));
+  }
+
+  @Test
+  public void getUserChanges_ReturnsAvailableChangesImmediately() {
+    ChangeFeedPage page = pageWithOneChange();
+    when(mockUserChangeService.getChanges(new ChangeCursor(10L, 5L), 100)).thenReturn(page);
+
+    DeferredResult<ResponseEntity<ChangeFeedPage>> result =
+        controller.getUserChanges("10-5", 100, 30);
+
+    assertEquals(new ResponseEntity<>(page, HttpStatus.OK), result.getResult());
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void getUserChanges_WaitsForNextChange() {
+    ChangeFeedPage empty = new ChangeFeedPage(Collections.emptyList(), "10-5");
+    when(mockUserChangeService.getChanges(new ChangeCursor(10L, 5L), 100)).thenReturn(empty);
+    ArgumentCaptor<Predicate<ChangeFeedPage>> listener = ArgumentCaptor.forClass(Predicate.class);
+    when(mockChangeFeedNotifier.subscribe(eq(new ChangeCursor(10L, 5L)), eq(100), any()))
+        .thenReturn(mock(ChangeFeedNotifier.Subscription.class));
+
+    DeferredResult<ResponseEntity<ChangeFeedPage>> result =
+        controller.getUserChanges("10-5", 100, 30);
+    assertFalse(result.hasResult());
+
+    Mockito.verify(mockChangeFeedNotifier)
+        .subscribe(eq(new ChangeCursor(10L, 5L)), eq(100), listener.capture());
+    ChangeFeedPage page = pageWithOneChange();
+    assertFalse(listener.getValue().test(page));
+    assertEquals(new ResponseEntity<>(page, HttpStatus.OK), result.getResult());
+  }
+
+  @Test
+  public void getUserChanges_NoWaitReturnsEmptyPage() {
+    ChangeFeedPage empty = new ChangeFeedPage(Collections.emptyList(), "10-5");
+    when(mockUserChangeService.getChanges(new ChangeCursor(10L, 5L), 100)).thenReturn(empty);
+
+    DeferredResult<ResponseEntity<ChangeFeedPage>> result =
+        controller.getUserChanges("10-5", 100, 0);
+
+    assertEquals(new ResponseEntity<>(empty, HttpStatus.OK), result.getResult());
+  }
+
+  @Test(expected = ResponseStatusException.class)
+  public void getUserChanges_InvalidCursor() {
+    controller.getUserChanges("yesterday", 100, 0);
+  }
+
+  @Test(expected = ResponseStatusException.class)
+  public void getUserChanges_WaitTooLong() {
+    controller.getUserChanges(null, 100, ChangeFeedControllerImpl.MAX_WAIT_SECONDS + 1);
+  }
+
+  @Test
+  public void getLatestUserChangeCursor_Successful() {
+    when(mockUserChangeService.getLatestCursor()).thenReturn(new ChangeCursor(12L, 52L));
+
+    assertEquals(
+        new ResponseEntity<>("12-52", HttpStatus.OK), controller.getLatestUserChangeCursor());
+  }
+
+  private static ChangeFeedPage pageWithOneChange() {
+    return new ChangeFeedPage(
+        Collections.singletonList(
+            new ChangeFeedEntry("11-51", 123L, ChangeType.UPDATED, Instant.now(), null)),
+        "11-51");
+  }
+}
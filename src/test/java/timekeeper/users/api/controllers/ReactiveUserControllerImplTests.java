@@ -0,0 +1,120 @@
+package timekeeper.users.api.controllers;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static timekeeper.users.utils.TestUtils.getDefaultUser;
+import static timekeeper.users.utils.TestUtils.getListOfUsers;
+
+import java.util.List;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Mono;
+import timekeeper.users.exceptions.InvalidUserException;
+import timekeeper.users.models.User;
+import timekeeper.users.services.contracts.ReactiveUserService;
+import timekeeper.users.services.impls.ReactiveUserServiceImpl;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest
+public class ReactiveUserControllerImplTests {
+
+  private ReactiveUserService mockReactiveUserService;
+  private ReactiveUserControllerImpl controller;
+
+  @Before
+  public void setUp() {
+    mockReactiveUserService = mock(ReactiveUserServiceImpl.class);
+    controller = new ReactiveUserControllerImpl(mockReactiveUserService);
+  }
+
+  @Test
+  public void getUserById_Successful() {
+    User expectedUser = getDefaultUser();
+    expectedUser.setVersion(2L);
+    when(mockReactiveUserService.getUserById(123L)).thenReturn(Mono.just(expectedUser));
+
+    ResponseEntity<User> actualResponse = controller.getUserById(123L, null).block();
+
+    assertEquals(HttpStatus.OK, actualResponse.getStatusCode());
+    assertEquals(expectedUser, actualResponse.getBody());
+    assertEquals("\"123-2\"", actualResponse.getHeaders().getETag());
+  }
+
+  @Test
+  public void getUserById_NotModified() {
+    User expectedUser = getDefaultUser();
+    expectedUser.setVersion(2L);
+    when(mockReactiveUserService.getUserById(123L)).thenReturn(Mono.just(expectedUser));
+
+    ResponseEntity<User> actualResponse = controller.getUserById(123L, "\"123-2\"").block();
+
+    assertEquals(HttpStatus.NOT_MODIFIED, actualResponse.getStatusCode());
+    assertNull(actualResponse.getBody());
+  }
+
+  @Test
+  public void getUserByEmail_NotFound() {
+    when(mockReactiveUserService.getUserByEmail("test@email.com")).thenReturn(Mono.empty());
+
+    ResponseEntity<User> actualResponse = controller.getUserByEmail("test@email.com", null).block();
+
+    assertEquals(HttpStatus.NOT_FOUND, actualResponse.getStatusCode());
+  }
+
+  @Test
+  public void getUserByName_InternalServerError() {
+    when(mockReactiveUserService.getUserByName("John", "Doe"))
+        .thenReturn(Mono.error(new RuntimeException("something broke")));
+
+    try {
+      controller.getUserByName("John", "Doe", null).block();
+    } catch (ResponseStatusException e) {
+      assertEquals(HttpStatus.INTERNAL_SERVER_ERROR, e.getStatus());
+      return;
+    }
+    throw new AssertionError("Expected a ResponseStatusException");
+  }
+
+  @Test
+  public void getUsersByApprover_FullPageHasNextLink() {
+    List<User> expectedUsers = getListOfUsers();
+    when(mockReactiveUserService.getUsersByApprover(1234L, null, 2))
+        .thenReturn(Mono.just(expectedUsers));
+
+    ResponseEntity<List<User>> actualResponse =
+        controller.getUsersByApprover(1234L, null, 2).block();
+
+    assertEquals(expectedUsers, actualResponse.getBody());
+    assertEquals(
+        "</reactive/get-users-by-approver?approverId=1234&after=124&limit=2>; rel=\"next\"",
+        actualResponse.getHeaders().getFirst(HttpHeaders.LINK));
+  }
+
+  @Test
+  public void getUsersByApprover_NotFound() {
+    when(mockReactiveUserService.getUsersByApprover(1234L, null, 10))
+        .thenReturn(Mono.error(new InvalidUserException("No approver found with id: 1234")));
+
+    try {
+      controller.getUsersByApprover(1234L, null, 10).block();
+    } catch (ResponseStatusException e) {
+      assertEquals(HttpStatus.NOT_FOUND, e.getStatus());
+      return;
+    }
+    throw new AssertionError("Expected a ResponseStatusException");
+  }
+
+  @Test(expected = ResponseStatusException.class)
+  public void getUsersByApprover_LimitTooLarge() {
+    controller.getUsersByApprover(1234L, null, UserControllerImpl.MAX_PAGE_SIZE + 1);
+  }
+}
@@ -1,25 +1,47 @@
 package timekeeper.users.api.controllers;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
 import static timekeeper.users.utils.TestUtils.getDefaultUser;
 import static timekeeper.users.utils.TestUtils.getListOfUsers;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
 import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.function.Consumer;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import timekeeper.users.exceptions.ApprovalCycleException;
 import timekeeper.users.exceptions.InvalidUserException;
 import timekeeper.users.models.User;
+import timekeeper.users.models.UserField;
+import timekeeper.users.models.UserFields;
+import timekeeper.users.models.UserKeys;
 import timekeeper.users.services.contracts.UserService;
 import timekeeper.users.services.impls.UserServiceImpl;
 
@@ -28,25 +50,44 @@ import timekeeper.users.services.impls.UserServiceImpl;
 public class UserControllerImplTests {
 
   @Autowired private UserControllerImpl controller;
+  @Autowired private ObjectMapper objectMapper;
 
   private UserService mockUserService;
 
   @Before
   public void setUp() {
     mockUserService = mock(UserServiceImpl.class);
-    controller = new UserControllerImpl(mockUserService);
+    controller = new UserControllerImpl(mockUserService, objectMapper);
   }
 
   @Test
   public void getUserById_Successful() {
     User expectedUser = getDefaultUser();
-    ResponseEntity<User> expectedResponse = new ResponseEntity<>(expectedUser, HttpStatus.OK);
+    expectedUser.setVersion(2L);
     when(mockUserService.getUserById(expectedUser.getUserId()))
         .thenReturn(Optional.of(expectedUser));
 
-    ResponseEntity<User> actualResponse = controller.getUserById(expectedUser.getUserId());
+    ResponseEntity<User> actualResponse = controller.getUserById(expectedUser.getUserId(), null);
 
-    assertEquals(expectedResponse, actualResponse);
+    assertEquals(HttpStatus.OK, actualResponse.getStatusCode());
+    assertEquals(expectedUser, actualResponse.getBody());
+    assertEquals("\"123-2\"", actualResponse.getHeaders().getETag());
+    assertEquals("no-cache, private", actualResponse.getHeaders().getCacheControl());
+  }
+
+  @Test
+  public void getUserById_NotModified() {
+    User expectedUser = getDefaultUser();
+    expectedUser.setVersion(2L);
+    when(mockUserService.getUserById(expectedUser.getUserId()))
+        .thenReturn(Optional.of(expectedUser));
+
+    ResponseEntity<User> actualResponse =
+        controller.getUserById(expectedUser.getUserId(), "\"123-1\", \"123-2\"");
+
+    assertEquals(HttpStatus.NOT_MODIFIED, actualResponse.getStatusCode());
+    assertNull(actualResponse.getBody());
+    assertEquals("\"123-2\"", actualResponse.getHeaders().getETag());
   }
 
   @Test
@@ -54,7 +95,7 @@ public class UserControllerImplTests {
     long userId = 12345;
     when(mockUserService.getUserById(userId)).thenReturn(Optional.empty());
 
-    ResponseEntity actual = controller.getUserById(userId);
+    ResponseEntity actual = controller.getUserById(userId, null);
 
     assertEquals(HttpStatus.NOT_FOUND, actual.getStatusCode());
   }
@@ -64,7 +105,7 @@ public class UserControllerImplTests {
     long userId = 12345;
     when(mockUserService.getUserById(userId)).thenThrow(new RuntimeException("something broke"));
 
-    ResponseEntity actual = controller.getUserById(userId);
+    ResponseEntity actual = controller.getUserById(userId, null);
 
     assertEquals(HttpStatus.INTERNAL_SERVER_ERROR, actual.getStatusCode());
     assertEquals("something broke", Objects.requireNonNull(actual.getBody()).toString());
@@ -73,13 +114,32 @@ public class UserControllerImplTests {
   @Test
   public void getUserByEmail_Successful() {
     User expectedUser = getDefaultUser();
-    ResponseEntity<User> expectedResponse = new ResponseEntity<>(expectedUser, HttpStatus.OK);
+    expectedUser.setVersion(2L);
     when(mockUserService.getUserByEmail(expectedUser.getEmailAddress()))
         .thenReturn(Optional.of(expectedUser));
 
-    ResponseEntity<User> actualResponse = controller.getUserByEmail(expectedUser.getEmailAddress());
+    ResponseEntity<User> actualResponse =
+        controller.getUserByEmail(expectedUser.getEmailAddress(), null);
 
-    assertEquals(expectedResponse, actualResponse);
+    assertEquals(HttpStatus.OK, actualResponse.getStatusCode());
+    assertEquals(expectedUser, actualResponse.getBody());
+    assertEquals("\"123-2\"", actualResponse.getHeaders().getETag());
+    assertEquals("no-cache, private", actualResponse.getHeaders().getCacheControl());
+  }
+
+  @Test
+  public void getUserByEmail_NotModified() {
+    User expectedUser = getDefaultUser();
+    expectedUser.setVersion(2L);
+    when(mockUserService.getUserByEmail(expectedUser.getEmailAddress()))
+        .thenReturn(Optional.of(expectedUser));
+
+    ResponseEntity<User> actualResponse =
+        controller.getUserByEmail(expectedUser.getEmailAddress(), "\"123-1\", \"123-2\"");
+
+    assertEquals(HttpStatus.NOT_MODIFIED, actualResponse.getStatusCode());
+    assertNull(actualResponse.getBody());
+    assertEquals("\"123-2\"", actualResponse.getHeaders().getETag());
   }
 
   @Test
@@ -87,7 +147,7 @@ public class UserControllerImplTests {
     String email = "test@email.com";
     when(mockUserService.getUserByEmail(email)).thenReturn(Optional.empty());
 
-    ResponseEntity actual = controller.getUserByEmail(email);
+    ResponseEntity actual = controller.getUserByEmail(email, null);
 
     assertEquals(HttpStatus.NOT_FOUND, actual.getStatusCode());
   }
@@ -97,7 +157,7 @@ public class UserControllerImplTests {
     String email = "test@email.com";
     when(mockUserService.getUserByEmail(email)).thenThrow(new RuntimeException("something broke"));
 
-    ResponseEntity actual = controller.getUserByEmail(email);
+    ResponseEntity actual = controller.getUserByEmail(email, null);
 
     assertEquals(HttpStatus.INTERNAL_SERVER_ERROR, actual.getStatusCode());
     assertEquals("something broke", Objects.requireNonNull(actual.getBody()).toString());
@@ -106,14 +166,14 @@ public class UserControllerImplTests {
   @Test
   public void getUserByName_Successful() {
     User expectedUser = getDefaultUser();
-    ResponseEntity<User> expectedResponse = new ResponseEntity<>(expectedUser, HttpStatus.OK);
     when(mockUserService.getUserByName(expectedUser.getFirstName(), expectedUser.getLastName()))
         .thenReturn(Optional.of(expectedUser));
 
     ResponseEntity<User> actualResponse =
-        controller.getUserByName(expectedUser.getFirstName(), expectedUser.getLastName());
+        controller.getUserByName(expectedUser.getFirstName(), expectedUser.getLastName(), null);
 
-    assertEquals(expectedResponse, actualResponse);
+    assertEquals(HttpStatus.OK, actualResponse.getStatusCode());
+    assertEquals(expectedUser, actualResponse.getBody());
   }
 
   @Test
@@ -122,7 +182,7 @@ public class UserControllerImplTests {
     String lastName = "Doe";
     when(mockUserService.getUserByName(firstName, lastName)).thenReturn(Optional.empty());
 
-    ResponseEntity actual = controller.getUserByName(firstName, lastName);
+    ResponseEntity actual = controller.getUserByName(firstName, lastName, null);
 
     assertEquals(HttpStatus.NOT_FOUND, actual.getStatusCode());
   }
@@ -134,7 +194,7 @@ public class UserControllerImplTests {
     when(mockUserService.getUserByName(firstName, lastName))
         .thenThrow(new RuntimeException("something broke"));
 
-    ResponseEntity actual = controller.getUserByName(firstName, lastName);
+    ResponseEntity actual = controller.getUserByName(firstName, lastName, null);
 
     assertEquals(HttpStatus.INTERNAL_SERVER_ERROR, actual.getStatusCode());
     assertEquals("something broke", Objects.requireNonNull(actual.getBody()).toString());
@@ -145,20 +205,50 @@ public class UserControllerImplTests {
     long approverId = 1234;
     ResponseEntity<List<User>> expectedResponse =
         new ResponseEntity<>(expectedUsers, HttpStatus.OK);
-    when(mockUserService.getAllUsersByApprover(approverId)).thenReturn(expectedUsers);
+    when(mockUserService.getUsersByApprover(approverId, null, 100)).thenReturn(expectedUsers);
 
-    ResponseEntity actualResponse = controller.getUsersByApprover(approverId);
+    ResponseEntity actualResponse = controller.getUsersByApprover(approverId, null, 100);
 
     assertEquals(expectedResponse, actualResponse);
   }
 
+  @Test
+  public void getUsersByApproverId_FullPageLinksToNextPage() {
+    List<User> expectedUsers = getListOfUsers();
+    long approverId = 1234;
+    when(mockUserService.getUsersByApprover(approverId, 100L, 2)).thenReturn(expectedUsers);
+
+    ResponseEntity actualResponse = controller.getUsersByApprover(approverId, 100L, 2);
+
+    assertEquals(expectedUsers, actualResponse.getBody());
+    assertEquals(
+        "</get-users-by-approver?approverId=1234&after=124&limit=2>; rel=\"next\"",
+        actualResponse.getHeaders().getFirst(HttpHeaders.LINK));
+  }
+
+  @Test
+  public void getUsersByApproverId_LastPageHasNoLink() {
+    List<User> expectedUsers = getListOfUsers();
+    long approverId = 1234;
+    when(mockUserService.getUsersByApprover(approverId, null, 100)).thenReturn(expectedUsers);
+
+    ResponseEntity actualResponse = controller.getUsersByApprover(approverId, null, 100);
+
+    assertEquals(null, actualResponse.getHeaders().getFirst(HttpHeaders.LINK));
+  }
+
+  @Test(expected = ResponseStatusException.class)
+  public void getUsersByApproverId_LimitTooLarge() {
+    controller.getUsersByApprover(1234, null, 5000);
+  }
+
   @Test(expected = ResponseStatusException.class)
   public void getUsersByApproverId_ApproverNotFound() {
     long approverId = 12345;
-    when(mockUserService.getAllUsersByApprover(approverId))
+    when(mockUserService.getUsersByApprover(approverId, null, 100))
         .thenThrow(new InvalidUserException("approver not found"));
 
-    ResponseEntity actual = controller.getUsersByApprover(approverId);
+    ResponseEntity actual = controller.getUsersByApprover(approverId, null, 100);
 
     assertEquals(HttpStatus.NOT_FOUND, actual.getStatusCode());
     assertEquals("approver not found", Objects.requireNonNull(actual.getBody()).toString());
@@ -167,15 +257,254 @@ public class UserControllerImplTests {
   @Test(expected = ResponseStatusException.class)
   public void getUsersByApproverId_InternalServerError() {
     long approverId = 12345;
-    when(mockUserService.getAllUsersByApprover(approverId))
+    when(mockUserService.getUsersByApprover(approverId, null, 100))
         .thenThrow(new RuntimeException("something broke"));
 
-    ResponseEntity actual = controller.getUsersByApprover(approverId);
+    ResponseEntity actual = controller.getUsersByApprover(approverId, null, 100);
 
     assertEquals(HttpStatus.INTERNAL_SERVER_ERROR, actual.getStatusCode());
     assertEquals("something broke", Objects.requireNonNull(actual.getBody()).toString());
   }
 
+  @Test
+  public void searchUsers_Successful() {
+    List<User> expectedUsers = getListOfUsers();
+    when(mockUserService.searchUsers("do", 10)).thenReturn(expectedUsers);
+
+    ResponseEntity<List<User>> actualResponse = controller.searchUsers("do", 10);
+
+    assertEquals(new ResponseEntity<>(expectedUsers, HttpStatus.OK), actualResponse);
+  }
+
+  @Test(expected = ResponseStatusException.class)
+  public void searchUsers_BlankQuery() {
+    controller.searchUsers(" ", 10);
+  }
+
+  @Test(expected = ResponseStatusException.class)
+  public void searchUsers_LimitTooLarge() {
+    controller.searchUsers("do", 500);
+  }
+
+  @Test
+  public void getAllReportsByApprover_Successful() {
+    List<User> expectedUsers = getListOfUsers();
+    when(mockUserService.getAllReportsOfApprover(1234L)).thenReturn(expectedUsers);
+
+    ResponseEntity<List<User>> actualResponse = controller.getAllReportsByApprover(1234L);
+
+    assertEquals(new ResponseEntity<>(expectedUsers, HttpStatus.OK), actualResponse);
+  }
+
+  @Test(expected = ResponseStatusException.class)
+  public void getAllReportsByApprover_ApproverNotFound() {
+    when(mockUserService.getAllReportsOfApprover(1234L))
+        .thenThrow(new InvalidUserException("approver not found"));
+
+    controller.getAllReportsByApprover(1234L);
+  }
+
+  @Test
+  public void getApprovalChain_Successful() {
+    List<User> expectedUsers = getListOfUsers();
+    when(mockUserService.getApprovalChain(123L)).thenReturn(expectedUsers);
+
+    ResponseEntity<List<User>> actualResponse = controller.getApprovalChain(123L);
+
+    assertEquals(new ResponseEntity<>(expectedUsers, HttpStatus.OK), actualResponse);
+  }
+
+  @Test
+  public void getApprovalChain_Cycle() {
+    when(mockUserService.getApprovalChain(123L))
+        .thenThrow(new ApprovalCycleException("loops back"));
+
+    try {
+      controller.getApprovalChain(123L);
+    } catch (ResponseStatusException e) {
+      assertEquals(HttpStatus.CONFLICT, e.getStatus());
+      return;
+    }
+    throw new AssertionError("Expected a ResponseStatusException");
+  }
+
+  @Test
+  public void getUsers_Successful() {
+    List<User> expectedUsers = getListOfUsers();
+    List<Long> userIds = Collections.singletonList(123L);
+    List<String> emails = Arrays.asList("john.doe@email.com", "jane.doe@email.com");
+    when(mockUserService.getUsersByIds(userIds)).thenReturn(expectedUsers.subList(0, 1));
+    when(mockUserService.getUsersByEmails(emails)).thenReturn(expectedUsers);
+
+    ResponseEntity<List<User>> actualResponse = controller.getUsers(new UserKeys(userIds, emails));
+
+    assertEquals(new ResponseEntity<>(expectedUsers, HttpStatus.OK), actualResponse);
+  }
+
+  @Test(expected = ResponseStatusException.class)
+  public void getUsers_NothingRequested() {
+    controller.getUsers(new UserKeys(null, Collections.emptyList()));
+  }
+
+  @Test(expected = ResponseStatusException.class)
+  public void getUsers_InternalServerError() {
+    List<Long> userIds = Collections.singletonList(123L);
+    when(mockUserService.getUsersByIds(userIds)).thenThrow(new RuntimeException("something broke"));
+
+    controller.getUsers(new UserKeys(userIds, null));
+  }
+
+  @Test
+  public void getUserFieldsById_Successful() {
+    User user = getDefaultUser();
+    UserFields expectedFields =
+        UserFields.of(user, EnumSet.of(UserField.USER_ID, UserField.EMAIL_ADDRESS));
+    when(mockUserService.getUserFieldsById(
+            123L, EnumSet.of(UserField.USER_ID, UserField.EMAIL_ADDRESS)))
+        .thenReturn(Optional.of(expectedFields));
+
+    ResponseEntity<UserFields> actualResponse =
+        controller.getUserFieldsById(123L, " emailAddress ,userId");
+
+    assertEquals(HttpStatus.OK, actualResponse.getStatusCode());
+    assertEquals(expectedFields, actualResponse.getBody());
+    assertEquals(Arrays.asList("userId", "emailAddress"), keys(actualResponse.getBody()));
+    assertNull(actualResponse.getHeaders().getETag());
+  }
+
+  @Test
+  public void getUserFieldsByEmail_NotFound() {
+    when(mockUserService.getUserFieldsByEmail(
+            "test@email.com", EnumSet.of(UserField.USER_ID, UserField.APPROVER_ID)))
+        .thenReturn(Optional.empty());
+
+    ResponseEntity<UserFields> actual =
+        controller.getUserFieldsByEmail("test@email.com", "approverId");
+
+    assertEquals(HttpStatus.NOT_FOUND, actual.getStatusCode());
+  }
+
+  @Test
+  public void getUserFieldsByName_UnknownField() {
+    try {
+      controller.getUserFieldsByName("John", "Doe", "firstName,password");
+      fail();
+    } catch (ResponseStatusException e) {
+      assertEquals(HttpStatus.BAD_REQUEST, e.getStatus());
+      assertEquals("Unknown user field: password", e.getReason());
+    }
+    verifyNoMoreInteractions(mockUserService);
+  }
+
+  @Test
+  public void getUserFieldsByApprover_FullPageLinksToNextPageWithFields() {
+    EnumSet<UserField> fields = EnumSet.of(UserField.USER_ID, UserField.FIRST_NAME);
+    List<UserFields> expectedUsers =
+        Arrays.asList(
+            UserFields.of(getListOfUsers().get(0), fields),
+            UserFields.of(getListOfUsers().get(1), fields));
+    when(mockUserService.getUserFieldsByApprover(1234L, 100L, 2, fields)).thenReturn(expectedUsers);
+
+    ResponseEntity<List<UserFields>> actualResponse =
+        controller.getUserFieldsByApprover(1234, 100L, 2, "firstName");
+
+    assertEquals(expectedUsers, actualResponse.getBody());
+    assertEquals(
+        "</get-users-by-approver?approverId=1234&after=124&limit=2&fields=userId,firstName>;"
+            + " rel=\"next\"",
+        actualResponse.getHeaders().getFirst(HttpHeaders.LINK));
+  }
+
+  @Test
+  public void getUserFields_MergesUsersFoundByIdAndEmail() {
+    EnumSet<UserField> fields = EnumSet.of(UserField.USER_ID, UserField.LAST_NAME);
+    List<UserFields> expectedUsers =
+        Arrays.asList(
+            UserFields.of(getListOfUsers().get(0), fields),
+            UserFields.of(getListOfUsers().get(1), fields));
+    List<Long> userIds = Collections.singletonList(123L);
+    List<String> emails = Arrays.asList("john.doe@email.com", "jane.doe@email.com");
+    when(mockUserService.getUserFieldsByIds(userIds, fields))
+        .thenReturn(expectedUsers.subList(0, 1));
+    when(mockUserService.getUserFieldsByEmails(emails, fields)).thenReturn(expectedUsers);
+
+    ResponseEntity<List<UserFields>> actualResponse =
+        controller.getUserFields(new UserKeys(userIds, emails), "lastName");
+
+    assertEquals(new ResponseEntity<>(expectedUsers, HttpStatus.OK), actualResponse);
+  }
+
+  private static List<String> keys(UserFields userFields) {
+    return new ArrayList<>(userFields.getValues().keySet());
+  }
+
+  @Test
+  public void exportUsers_Ndjson() throws Exception {
+    List<User> users = getListOfUsers();
+    users.forEach(user -> user.setVersion(0L));
+    mockForEachUser(users);
+
+    ResponseEntity<StreamingResponseBody> response = controller.exportUsers("ndjson");
+
+    assertEquals(
+        MediaType.parseMediaType("application/x-ndjson"), response.getHeaders().getContentType());
+    assertEquals(
+        "{\"userId\":123,\"firstName\":\"John\",\"lastName\":\"Doe\",\"emailAddress\":\"john.doe@email.com\",\"approverId\":1234,\"version\":0}\n"
+            + "{\"userId\":124,\"firstName\":\"Jane\",\"lastName\":\"Doe\",\"emailAddress\":\"jane.doe@email.com\",\"approverId\":1234,\"version\":0}\n",
+        writeBody(response));
+  }
+
+  @Test
+  public void exportUsers_NdjsonUsesApplicationObjectMapper() throws Exception {
+    ObjectMapper nonNullMapper =
+        objectMapper.copy().setSerializationInclusion(JsonInclude.Include.NON_NULL);
+    controller = new UserControllerImpl(mockUserService, nonNullMapper);
+    mockForEachUser(
+        Collections.singletonList(new User(125L, "Mary", "Smith", "mary@email.com", null)));
+
+    ResponseEntity<StreamingResponseBody> response = controller.exportUsers("ndjson");
+
+    assertEquals(
+        "{\"userId\":125,\"firstName\":\"Mary\",\"lastName\":\"Smith\",\"emailAddress\":\"mary@email.com\"}\n",
+        writeBody(response));
+  }
+
+  @Test
+  public void exportUsers_Csv() throws Exception {
+    User userWithComma = new User(125L, "Mary, Jr", "O\"Neil", "mary@email.com", null);
+    mockForEachUser(Collections.singletonList(userWithComma));
+
+    ResponseEntity<StreamingResponseBody> response = controller.exportUsers("csv");
+
+    assertEquals(MediaType.parseMediaType("text/csv"), response.getHeaders().getContentType());
+    assertEquals(
+        "userId,firstName,lastName,emailAddress,approverId\n"
+            + "125,\"Mary, Jr\",\"O\"\"Neil\",mary@email.com,\n",
+        writeBody(response));
+  }
+
+  @Test(expected = ResponseStatusException.class)
+  public void exportUsers_UnsupportedFormat() {
+    controller.exportUsers("xml");
+  }
+
+  @SuppressWarnings("unchecked")
+  private void mockForEachUser(List<User> users) {
+    doAnswer(
+            invocation -> {
+              users.forEach(invocation.<Consumer<User>>getArgument(0));
+              return null;
+            })
+        .when(mockUserService)
+        .forEachUser(any());
+  }
+
+  private static String writeBody(ResponseEntity<StreamingResponseBody> response) throws Exception {
+    ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+    Objects.requireNonNull(response.getBody()).writeTo(outputStream);
+    return new String(outputStream.toByteArray(), StandardCharsets.UTF_8);
+  }
+
   @Test
   public void createUser_Successful() {
     User userToCreate = getDefaultUser();
@@ -241,17 +570,45 @@ public class UserControllerImplTests {
     assertEquals("something broke", Objects.requireNonNull(actual.getBody()).toString());
   }
 
+  @Test
+  public void createUsers_Successful() {
+    List<User> usersToCreate = getListOfUsers();
+    when(mockUserService.createUsers(usersToCreate)).thenReturn(usersToCreate);
+
+    ResponseEntity<List<User>> actualResponse = controller.createUsers(usersToCreate);
+
+    assertEquals(new ResponseEntity<>(usersToCreate, HttpStatus.CREATED), actualResponse);
+  }
+
+  @Test(expected = ResponseStatusException.class)
+  public void createUsers_MissingEmailAddress() {
+    User userToCreate = getDefaultUser();
+    userToCreate.setEmailAddress(null);
+
+    controller.createUsers(Collections.singletonList(userToCreate));
+  }
+
+  @Test(expected = ResponseStatusException.class)
+  public void createUsers_AlreadyExists() {
+    List<User> usersToCreate = getListOfUsers();
+    when(mockUserService.createUsers(usersToCreate))
+        .thenThrow(new InvalidUserException("users already exist"));
+
+    controller.createUsers(usersToCreate);
+  }
+
   @Test
   public void updateUser_Successful() {
     User userToUpdate = getDefaultUser();
-    ResponseEntity<User> expectedResponse = new ResponseEntity<>(userToUpdate, HttpStatus.OK);
+    userToUpdate.setVersion(1L);
 
     when(mockUserService.updateUser(
             userToUpdate.getUserId(),
             userToUpdate.getFirstName(),
             userToUpdate.getLastName(),
             userToUpdate.getEmailAddress(),
-            userToUpdate.getApproverId()))
+            userToUpdate.getApproverId(),
+            null))
         .thenReturn(Optional.of(userToUpdate));
 
     ResponseEntity actualResponse =
@@ -260,9 +617,85 @@ public class UserControllerImplTests {
             userToUpdate.getFirstName(),
             userToUpdate.getLastName(),
             userToUpdate.getEmailAddress(),
-            userToUpdate.getApproverId());
+            userToUpdate.getApproverId(),
+            null);
 
-    assertEquals(expectedResponse, actualResponse);
+    assertEquals(HttpStatus.OK, actualResponse.getStatusCode());
+    assertEquals(userToUpdate, actualResponse.getBody());
+    assertEquals("\"123-1\"", actualResponse.getHeaders().getETag());
+  }
+
+  @Test
+  public void updateUser_IfMatch() {
+    User userToUpdate = getDefaultUser();
+    userToUpdate.setVersion(5L);
+    when(mockUserService.updateUser(
+            userToUpdate.getUserId(),
+            userToUpdate.getFirstName(),
+            userToUpdate.getLastName(),
+            userToUpdate.getEmailAddress(),
+            userToUpdate.getApproverId(),
+            4L))
+        .thenReturn(Optional.of(userToUpdate));
+
+    ResponseEntity actualResponse =
+        controller.updateUser(
+            userToUpdate.getUserId(),
+            userToUpdate.getFirstName(),
+            userToUpdate.getLastName(),
+            userToUpdate.getEmailAddress(),
+            userToUpdate.getApproverId(),
+            "\"123-4\"");
+
+    assertEquals(HttpStatus.OK, actualResponse.getStatusCode());
+    assertEquals("\"123-5\"", actualResponse.getHeaders().getETag());
+  }
+
+  @Test
+  public void updateUser_PreconditionFailed() {
+    User userToUpdate = getDefaultUser();
+    when(mockUserService.updateUser(
+            userToUpdate.getUserId(),
+            userToUpdate.getFirstName(),
+            userToUpdate.getLastName(),
+            userToUpdate.getEmailAddress(),
+            userToUpdate.getApproverId(),
+            4L))
+        .thenThrow(new ObjectOptimisticLockingFailureException(User.class, 123L));
+
+    try {
+      controller.updateUser(
+          userToUpdate.getUserId(),
+          userToUpdate.getFirstName(),
+          userToUpdate.getLastName(),
+          userToUpdate.getEmailAddress(),
+          userToUpdate.getApproverId(),
+          "\"123-4\"");
+    } catch (ResponseStatusException e) {
+      assertEquals(HttpStatus.PRECONDITION_FAILED, e.getStatus());
+      return;
+    }
+    throw new AssertionError("Expected a ResponseStatusException");
+  }
+
+  @Test
+  public void updateUser_IfMatchForAnotherUser() {
+    User userToUpdate = getDefaultUser();
+
+    try {
+      controller.updateUser(
+          userToUpdate.getUserId(),
+          userToUpdate.getFirstName(),
+          userToUpdate.getLastName(),
+          userToUpdate.getEmailAddress(),
+          userToUpdate.getApproverId(),
+          "\"124-4\"");
+    } catch (ResponseStatusException e) {
+      assertEquals(HttpStatus.PRECONDITION_FAILED, e.getStatus());
+      verifyNoMoreInteractions(mockUserService);
+      return;
+    }
+    throw new AssertionError("Expected a ResponseStatusException");
   }
 
   public void updateUser_NotFound() {
@@ -274,7 +707,8 @@ public class UserControllerImplTests {
             userToUpdate.getFirstName(),
             userToUpdate.getLastName(),
             userToUpdate.getEmailAddress(),
-            userToUpdate.getApproverId()))
+            userToUpdate.getApproverId(),
+            null))
         .thenReturn(Optional.empty());
 
     ResponseEntity actualResponse =
@@ -283,7 +717,8 @@ public class UserControllerImplTests {
             userToUpdate.getFirstName(),
             userToUpdate.getLastName(),
             userToUpdate.getEmailAddress(),
-            userToUpdate.getApproverId());
+            userToUpdate.getApproverId(),
+            null);
 
     assertEquals(expectedResponse, actualResponse);
   }
@@ -299,7 +734,8 @@ public class UserControllerImplTests {
             userToUpdate.getFirstName(),
             userToUpdate.getLastName(),
             userToUpdate.getEmailAddress(),
-            userToUpdate.getApproverId()))
+            userToUpdate.getApproverId(),
+            null))
         .thenThrow(new RuntimeException("something broke"));
 
     ResponseEntity actualResponse =
@@ -308,11 +744,96 @@ public class UserControllerImplTests {
             userToUpdate.getFirstName(),
             userToUpdate.getLastName(),
             userToUpdate.getEmailAddress(),
-            userToUpdate.getApproverId());
+            userToUpdate.getApproverId(),
+            null);
 
     assertEquals(expectedResponse, actualResponse);
   }
 
+  @Test
+  public void patchUser_Successful() {
+    when(mockUserService.patchUser(123L, null, null, null, 1235L, false, null)).thenReturn(true);
+
+    ResponseEntity actualResponse =
+        controller.patchUser(123L, null, null, null, 1235L, false, null);
+
+    assertEquals(
+        new ResponseEntity<>("User with userId 123 successfully updated.", HttpStatus.OK),
+        actualResponse);
+  }
+
+  @Test
+  public void patchUser_NotFound() {
+    when(mockUserService.patchUser(123L, "Thomas", null, null, null, false, null))
+        .thenReturn(false);
+
+    ResponseEntity actualResponse =
+        controller.patchUser(123L, "Thomas", null, null, null, false, null);
+
+    assertEquals(HttpStatus.NOT_FOUND, actualResponse.getStatusCode());
+  }
+
+  @Test
+  public void patchUser_NothingToUpdate() {
+    try {
+      controller.patchUser(123L, null, null, null, null, false, null);
+    } catch (ResponseStatusException e) {
+      assertEquals(HttpStatus.BAD_REQUEST, e.getStatus());
+      verifyNoMoreInteractions(mockUserService);
+      return;
+    }
+    throw new AssertionError("Expected a ResponseStatusException");
+  }
+
+  @Test
+  public void patchUser_ClearApprover() {
+    when(mockUserService.patchUser(123L, null, null, null, null, true, null)).thenReturn(true);
+
+    ResponseEntity actualResponse = controller.patchUser(123L, null, null, null, null, true, null);
+
+    assertEquals(HttpStatus.OK, actualResponse.getStatusCode());
+  }
+
+  @Test
+  public void patchUser_ApproverAndClearApprover() {
+    try {
+      controller.patchUser(123L, null, null, null, 1235L, true, null);
+    } catch (ResponseStatusException e) {
+      assertEquals(HttpStatus.BAD_REQUEST, e.getStatus());
+      verifyNoMoreInteractions(mockUserService);
+      return;
+    }
+    throw new AssertionError("Expected a ResponseStatusException");
+  }
+
+  @Test
+  public void patchUser_EmailTaken() {
+    when(mockUserService.patchUser(123L, null, null, "jane.doe@email.com", null, false, null))
+        .thenThrow(new InvalidUserException("email taken"));
+
+    try {
+      controller.patchUser(123L, null, null, "jane.doe@email.com", null, false, null);
+    } catch (ResponseStatusException e) {
+      assertEquals(HttpStatus.CONFLICT, e.getStatus());
+      return;
+    }
+    throw new AssertionError("Expected a ResponseStatusException");
+  }
+
+  @Test
+  public void patchUser_PreconditionFailed() {
+    when(mockUserService.patchUser(123L, "Thomas", null, null, null, false, 4L))
+        .thenThrow(new ObjectOptimisticLockingFailureException(User.class, 123L));
+
+    try {
+      controller.patchUser(123L, "Thomas", null, null, null, false, "\"123-4\"");
+    } catch (ResponseStatusException e) {
+      assertEquals(HttpStatus.PRECONDITION_FAILED, e.getStatus());
+      return;
+    }
+    throw new AssertionError("Expected a ResponseStatusException");
+  }
+
   @Test
   public void deleteUser_Successful() {
     long userIdToDelete = 1234;
@@ -348,4 +869,53 @@ public class UserControllerImplTests {
     assertEquals(HttpStatus.INTERNAL_SERVER_ERROR, actual.getStatusCode());
     assertEquals("something broke", Objects.requireNonNull(actual.getBody()).toString());
   }
+
+  @Test
+  public void deleteUsers_ReturnsDeletedUsers() {
+    List<User> deletedUsers = getListOfUsers();
+    List<Long> userIds = Arrays.asList(1L, 2L, 3L);
+    when(mockUserService.deleteUsers(userIds)).thenReturn(deletedUsers);
+
+    ResponseEntity<List<User>> actualResponse = controller.deleteUsers(userIds);
+
+    assertEquals(HttpStatus.OK, actualResponse.getStatusCode());
+    assertEquals(deletedUsers, actualResponse.getBody());
+  }
+
+  @Test
+  public void deleteUsers_TooManyIds() {
+    List<Long> userIds = new ArrayList<>();
+    for (long i = 0; i <= UserControllerImpl.MAX_BATCH_SIZE; i++) userIds.add(i);
+
+    try {
+      controller.deleteUsers(userIds);
+      fail("Expected a 400");
+    } catch (ResponseStatusException e) {
+      assertEquals(HttpStatus.BAD_REQUEST, e.getStatus());
+    }
+    verifyNoMoreInteractions(mockUserService);
+  }
+
+  @Test
+  public void reassignReports_Successful() {
+    when(mockUserService.reassignReports(1L, 2L)).thenReturn(12);
+
+    ResponseEntity actualResponse = controller.reassignReports(1L, 2L);
+
+    assertEquals(HttpStatus.OK, actualResponse.getStatusCode());
+    assertEquals("12 reports moved from approver 1 to approver 2.", actualResponse.getBody());
+  }
+
+  @Test
+  public void reassignReports_NewApproverReportsToOldOne() {
+    when(mockUserService.reassignReports(1L, 2L))
+        .thenThrow(new ApprovalCycleException("reports to user 1"));
+
+    try {
+      controller.reassignReports(1L, 2L);
+      fail("Expected a 409");
+    } catch (ResponseStatusException e) {
+      assertEquals(HttpStatus.CONFLICT, e.getStatus());
+    }
+  }
 }
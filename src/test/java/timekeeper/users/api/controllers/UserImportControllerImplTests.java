@@ -0,0 +1,88 @@
+package timekeeper.users.api.controllers;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collections;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.web.server.ResponseStatusException;
+import timekeeper.users.exceptions.InvalidImportException;
+import timekeeper.users.exceptions.InvalidUserException;
+import timekeeper.users.models.UserImportError;
+import timekeeper.users.models.UserImportReport;
+import timekeeper.users.services.contracts.UserImportService;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest
+public class UserImportControllerImplTests {
+
+  private UserImportControllerImpl controller;
+  private UserImportService mockUserImportService;
+  private InputStream csv;
+
+  @Before
+  public void setUp() {
+    mockUserImportService = mock(UserImportService.class);
+    controller = new UserImportControllerImpl(mockUserImportService);
+    csv = new ByteArrayInputStream(new byte[0]);
+  }
+
+  @Test
+  public void importUsers_Successful() throws IOException {
+    UserImportReport expectedReport =
+        new UserImportReport(
+            10,
+            1,
+            Collections.singletonList(
+                new UserImportError(4, "User already exists with email address: a@email.com")));
+    when(mockUserImportService.importUsers(csv)).thenReturn(expectedReport);
+
+    ResponseEntity<UserImportReport> actualResponse = controller.importUsers(csv);
+
+    assertEquals(new ResponseEntity<>(expectedReport, HttpStatus.OK), actualResponse);
+  }
+
+  @Test
+  public void importUsers_InvalidFile() throws IOException {
+    when(mockUserImportService.importUsers(any()))
+        .thenThrow(new InvalidImportException("The file is empty"));
+
+    assertEquals(HttpStatus.BAD_REQUEST, statusOf(csv));
+  }
+
+  @Test
+  public void importUsers_UnreadableFile() throws IOException {
+    when(mockUserImportService.importUsers(any())).thenThrow(new IOException("Connection reset"));
+
+    assertEquals(HttpStatus.BAD_REQUEST, statusOf(csv));
+  }
+
+  @Test
+  public void importUsers_CreatedConcurrently() throws IOException {
+    when(mockUserImportService.importUsers(any()))
+        .thenThrow(
+            new InvalidUserException("Users were created concurrently with the same emails"));
+
+    assertEquals(HttpStatus.CONFLICT, statusOf(csv));
+  }
+
+  private HttpStatus statusOf(InputStream csv) {
+    try {
+      controller.importUsers(csv);
+    } catch (ResponseStatusException e) {
+      return e.getStatus();
+    }
+    return HttpStatus.OK;
+  }
+}
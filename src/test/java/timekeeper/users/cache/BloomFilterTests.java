@@ -0,0 +1,30 @@
+package timekeeper.users.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class BloomFilterTests {
+
+  @Test
+  public void containsEverythingPutWithRoughlyTheTargetFalsePositiveRate() {
+    BloomFilter filter = new BloomFilter(100000, 0.01);
+    for (int i = 0; i < 100000; i++) filter.put("user" + i + "@email.com");
+
+    int falsePositives = 0;
+    for (int i = 0; i < 100000; i++) {
+      assertTrue(filter.mightContain("user" + i + "@email.com"));
+      if (filter.mightContain("other" + i + "@email.com")) falsePositives++;
+    }
+
+    assertEquals(0.01, falsePositives / 100000.0, 0.005);
+    assertEquals(0.01, filter.expectedFalsePositiveProbability(), 0.005);
+    assertEquals(100000, filter.approximateElementCount(), 2000);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void rejectsImpossibleFalsePositiveProbability() {
+    new BloomFilter(100, 1);
+  }
+}
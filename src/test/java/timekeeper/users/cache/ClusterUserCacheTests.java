@@ -0,0 +1,147 @@
+package timekeeper.users.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.hazelcast.config.Config;
+import com.hazelcast.core.Hazelcast;
+import com.hazelcast.core.HazelcastInstance;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import timekeeper.users.config.ClusterCacheConfig;
+import timekeeper.users.models.User;
+
+public class ClusterUserCacheTests {
+
+  private HazelcastInstance firstMember;
+  private HazelcastInstance secondMember;
+  private UserCache firstCache;
+  private UserCache secondCache;
+
+  @Before
+  public void setUp() {
+    firstMember = Hazelcast.newHazelcastInstance(memberConfig());
+    secondMember = Hazelcast.newHazelcastInstance(memberConfig());
+    firstCache = newCache(firstMember);
+    secondCache = newCache(secondMember);
+  }
+
+  private static Config memberConfig() {
+    Config config =
+        new ClusterCacheConfig()
+            .hazelcastConfig(
+                "users-cache-test",
+                Arrays.asList("127.0.0.1:5801", "127.0.0.1:5802"),
+                5801,
+                100,
+                Duration.ofMinutes(5));
+    config.setProperty("hazelcast.local.localAddress", "127.0.0.1");
+    config.setProperty("hazelcast.wait.seconds.before.join", "0");
+    return config;
+  }
+
+  private static UserCache newCache(HazelcastInstance member) {
+    return new UserCache(100, Duration.ofMinutes(5), member);
+  }
+
+  @After
+  public void tearDown() {
+    secondMember.shutdown();
+    firstMember.shutdown();
+  }
+
+  @Test
+  public void membersFormOneCluster() {
+    assertEquals(2, firstMember.getCluster().getMembers().size());
+  }
+
+  @Test
+  public void userCachedOnOneInstanceIsServedByAnother() throws InterruptedException {
+    firstCache.put(user(1L, "jane@example.com"), firstCache.loadStarted());
+
+    assertEquals(Optional.of(user(1L, "jane@example.com")), secondCache.getById(1L));
+    assertTrue(awaitNearCached(secondCache, 1L));
+    assertEquals(Optional.of(user(1L, "jane@example.com")), secondCache.getById(1L));
+  }
+
+  @Test
+  public void invalidationReachesTheOtherInstancesNearCache() throws InterruptedException {
+    firstCache.put(user(1L, "jane@example.com"), firstCache.loadStarted());
+    assertTrue(awaitNearCached(secondCache, 1L));
+
+    firstCache.invalidate(1L);
+
+    assertFalse(firstCache.getById(1L).isPresent());
+    assertTrue(awaitEvicted(secondCache, 1L));
+  }
+
+  @Test
+  public void changedUserIsNotFoundByItsOldEmailOnAnotherInstance() throws InterruptedException {
+    secondCache.put(user(1L, "jane@example.com"), secondCache.loadStarted());
+    assertTrue(secondCache.getByEmail("jane@example.com").isPresent());
+
+    firstCache.invalidate(1L);
+    Thread.sleep(UserCache.CLUSTER_CLOCK_TOLERANCE.toMillis() + 10);
+    firstCache.put(user(1L, "jane.doe@example.com"), firstCache.loadStarted());
+
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+    while (secondCache.getByEmail("jane@example.com").isPresent() && System.nanoTime() < deadline)
+      Thread.sleep(10);
+    assertFalse(secondCache.getByEmail("jane@example.com").isPresent());
+    assertEquals(Optional.of(user(1L, "jane.doe@example.com")), secondCache.getById(1L));
+  }
+
+  @Test
+  public void lookupThatStartedBeforeAnInvalidationOnAnotherInstanceIsNotCached() {
+    long loadStartedAt = secondCache.loadStarted();
+    firstCache.invalidate(1L);
+
+    secondCache.put(user(1L, "jane@example.com"), loadStartedAt);
+
+    assertFalse(secondCache.getById(1L).isPresent());
+    assertFalse(firstCache.getById(1L).isPresent());
+  }
+
+  @Test
+  public void staleLookupCannotReplaceAUserCachedAfterTheInvalidation()
+      throws InterruptedException {
+    long staleLoadStartedAt = secondCache.loadStarted();
+    firstCache.invalidate(1L);
+    Thread.sleep(UserCache.CLUSTER_CLOCK_TOLERANCE.toMillis() + 10);
+    firstCache.put(user(1L, "jane.doe@example.com"), firstCache.loadStarted());
+
+    secondCache.put(user(1L, "jane@example.com"), staleLoadStartedAt);
+
+    assertEquals(Optional.of(user(1L, "jane.doe@example.com")), firstCache.getById(1L));
+  }
+
+  // The invalidation sent by the put may arrive after the first read has filled the near cache
+  private static boolean awaitNearCached(UserCache cache, Long userId) throws InterruptedException {
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+    while (cache.getStatistics().get(0).getHitCount() == 0) {
+      if (System.nanoTime() > deadline) return false;
+      cache.getById(userId);
+      Thread.sleep(10);
+    }
+    return true;
+  }
+
+  private static boolean awaitEvicted(UserCache cache, Long userId) throws InterruptedException {
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+    while (cache.getById(userId).isPresent()) {
+      if (System.nanoTime() > deadline) return false;
+      Thread.sleep(10);
+    }
+    return true;
+  }
+
+  private static User user(Long userId, String emailAddress) {
+    return new User(userId, "Jane", "Doe", emailAddress, null, 0L);
+  }
+}
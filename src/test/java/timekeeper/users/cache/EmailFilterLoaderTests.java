@@ -0,0 +1,118 @@
+package timekeeper.users.cache;
+
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.transaction.PlatformTransactionManager;
+import timekeeper.users.changes.ChangeFeedNotifier;
+import timekeeper.users.models.ChangeCursor;
+import timekeeper.users.models.ChangeFeedEntry;
+import timekeeper.users.models.ChangeFeedPage;
+import timekeeper.users.models.ChangeType;
+import timekeeper.users.models.User;
+import timekeeper.users.repositories.UserRepository;
+import timekeeper.users.services.contracts.UserChangeService;
+
+public class EmailFilterLoaderTests {
+
+  private static final ChangeCursor BUILT_AT = new ChangeCursor(10L, 5L);
+
+  private EmailFilter emailFilter;
+  private ChangeFeedNotifier mockChangeFeedNotifier;
+  private EmailFilterLoader loader;
+
+  @Before
+  public void setUp() {
+    UserRepository mockUserRepository = mock(UserRepository.class);
+    when(mockUserRepository.count()).thenReturn(1L);
+    when(mockUserRepository.streamAllEmailAddresses())
+        .thenReturn(Stream.of("existing@example.com"));
+    UserChangeService mockUserChangeService = mock(UserChangeService.class);
+    when(mockUserChangeService.getLatestCursor()).thenReturn(BUILT_AT);
+    mockChangeFeedNotifier = mock(ChangeFeedNotifier.class);
+    emailFilter = new EmailFilter(0.01);
+    loader =
+        new EmailFilterLoader(
+            emailFilter,
+            mockUserRepository,
+            mockUserChangeService,
+            mockChangeFeedNotifier,
+            mock(PlatformTransactionManager.class),
+            Duration.ofHours(6));
+  }
+
+  @Test
+  public void rebuild_followsTheChangeFeedFromWhereTheScanStarted() {
+    loader.rebuild();
+
+    Predicate<ChangeFeedPage> listener = subscribedListener(BUILT_AT);
+    listener.test(page("11-51", "new@example.com"));
+
+    assertTrue(emailFilter.isBuilt());
+    assertTrue(emailFilter.mightExist("existing@example.com"));
+    assertTrue(emailFilter.mightExist("new@example.com"));
+  }
+
+  @Test
+  public void droppedFromTheChangeFeed_subscribesAgainFromTheLastPageAdded() {
+    loader.rebuild();
+    Predicate<ChangeFeedPage> listener = subscribedListener(BUILT_AT);
+    listener.test(page("11-51", "new@example.com"));
+
+    droppedCallback(BUILT_AT).run();
+
+    Predicate<ChangeFeedPage> resumed = subscribedListener(new ChangeCursor(11L, 51L));
+    resumed.test(page("12-60", "newer@example.com"));
+    assertTrue(emailFilter.mightExist("newer@example.com"));
+  }
+
+  @Test
+  public void droppedBeforeAnyPage_subscribesAgainFromWhereTheScanStarted() {
+    loader.rebuild();
+
+    droppedCallback(BUILT_AT).run();
+
+    verify(mockChangeFeedNotifier, times(2))
+        .subscribe(eq(BUILT_AT), eq(EmailFilterLoader.FEED_PAGE_SIZE), any(), any());
+  }
+
+  @SuppressWarnings("unchecked")
+  private Predicate<ChangeFeedPage> subscribedListener(ChangeCursor after) {
+    ArgumentCaptor<Predicate<ChangeFeedPage>> listener = ArgumentCaptor.forClass(Predicate.class);
+    verify(mockChangeFeedNotifier)
+        .subscribe(eq(after), eq(EmailFilterLoader.FEED_PAGE_SIZE), listener.capture(), any());
+    return listener.getValue();
+  }
+
+  private Runnable droppedCallback(ChangeCursor after) {
+    ArgumentCaptor<Runnable> onDropped = ArgumentCaptor.forClass(Runnable.class);
+    verify(mockChangeFeedNotifier)
+        .subscribe(eq(after), eq(EmailFilterLoader.FEED_PAGE_SIZE), any(), onDropped.capture());
+    return onDropped.getValue();
+  }
+
+  private static ChangeFeedPage page(String cursor, String emailAddress) {
+    return new ChangeFeedPage(
+        Collections.singletonList(
+            new ChangeFeedEntry(
+                cursor,
+                1L,
+                ChangeType.CREATED,
+                Instant.now(),
+                new User(1L, "Jane", "Doe", emailAddress, null, 0L))),
+        cursor);
+  }
+}
@@ -0,0 +1,85 @@
+package timekeeper.users.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.time.Duration;
+import java.util.Optional;
+import org.junit.After;
+import org.junit.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import timekeeper.users.models.User;
+
+public class UserCacheTests {
+
+  private final UserCache userCache = new UserCache(100, Duration.ofMinutes(5));
+
+  @After
+  public void tearDown() {
+    if (TransactionSynchronizationManager.isSynchronizationActive())
+      TransactionSynchronizationManager.clearSynchronization();
+  }
+
+  @Test
+  public void lookupThatReadTheRowBeforeACommitCannotCacheItAfterTheEviction() {
+    userCache.put(user("Old"), userCache.loadStarted());
+
+    // The writer invalidates inside its transaction, the lookup misses and reads the old row, and
+    // the writer commits before the lookup gets to cache what it read
+    TransactionSynchronizationManager.initSynchronization();
+    userCache.invalidate(1L);
+    long loadStartedAt = userCache.loadStarted();
+    commit();
+    userCache.put(user("Old"), loadStartedAt);
+
+    assertFalse(userCache.getById(1L).isPresent());
+    assertFalse(userCache.getByEmail("jane@example.com").isPresent());
+  }
+
+  @Test
+  public void lookupStartedAfterTheCommitIsCached() {
+    TransactionSynchronizationManager.initSynchronization();
+    userCache.invalidate(1L);
+    commit();
+
+    userCache.put(user("New"), userCache.loadStarted());
+
+    assertEquals(Optional.of(user("New")), userCache.getById(1L));
+  }
+
+  @Test
+  public void lookupCompletedBeforeTheCommitIsEvictedByIt() {
+    TransactionSynchronizationManager.initSynchronization();
+    userCache.invalidate(1L);
+    userCache.put(user("Old"), userCache.loadStarted());
+
+    commit();
+
+    assertFalse(userCache.getById(1L).isPresent());
+  }
+
+  @Test
+  public void loadOlderThanTheStampsIsNotCached() throws InterruptedException {
+    UserCache shortLivedCache = new UserCache(100, Duration.ofMillis(50));
+    long loadStartedAt = shortLivedCache.loadStarted();
+    Thread.sleep(100);
+
+    shortLivedCache.put(user("Old"), loadStartedAt);
+
+    assertFalse(shortLivedCache.getById(1L).isPresent());
+  }
+
+  private static void commit() {
+    for (TransactionSynchronization synchronization :
+        TransactionSynchronizationManager.getSynchronizations()) {
+      synchronization.afterCommit();
+      synchronization.afterCompletion(TransactionSynchronization.STATUS_COMMITTED);
+    }
+    TransactionSynchronizationManager.clearSynchronization();
+  }
+
+  private static User user(String firstName) {
+    return new User(1L, firstName, "Doe", "jane@example.com", null, 0L);
+  }
+}
@@ -0,0 +1,105 @@
+package timekeeper.users.changes;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import timekeeper.users.models.ChangeCursor;
+import timekeeper.users.models.ChangeFeedEntry;
+import timekeeper.users.models.ChangeFeedPage;
+import timekeeper.users.models.ChangeType;
+import timekeeper.users.services.contracts.UserChangeService;
+
+public class ChangeFeedNotifierTests {
+
+  private static final ChangeCursor START = new ChangeCursor(10L, 5L);
+
+  private UserChangeService mockUserChangeService;
+  private ChangeFeedNotifier notifier;
+  private final CountDownLatch unblock = new CountDownLatch(1);
+
+  @Before
+  public void setUp() {
+    mockUserChangeService = mock(UserChangeService.class);
+    when(mockUserChangeService.getLatestCursor()).thenReturn(new ChangeCursor(11L, 51L));
+    when(mockUserChangeService.getChanges(START, 100))
+        .thenReturn(
+            new ChangeFeedPage(
+                Collections.singletonList(
+                    new ChangeFeedEntry("11-51", 123L, ChangeType.UPDATED, Instant.now(), null)),
+                "11-51"));
+    notifier =
+        new ChangeFeedNotifier(
+            mockUserChangeService, Duration.ofMillis(500), Duration.ofMillis(100));
+  }
+
+  @After
+  public void tearDown() {
+    unblock.countDown();
+    notifier.stop();
+  }
+
+  @Test
+  public void slowSubscriberDoesNotHoldUpOthers() throws InterruptedException {
+    CountDownLatch slowCalled = new CountDownLatch(1);
+    CountDownLatch fastCalled = new CountDownLatch(1);
+    notifier.subscribe(START, 100, page -> block(slowCalled));
+    notifier.subscribe(
+        START,
+        100,
+        page -> {
+          fastCalled.countDown();
+          return true;
+        });
+
+    notifier.poll();
+
+    assertTrue(slowCalled.await(5, TimeUnit.SECONDS));
+    assertTrue(fastCalled.await(5, TimeUnit.SECONDS));
+  }
+
+  @Test
+  public void dropsSubscriberStillTakingChangesAfterMaxDeliveryTime() throws InterruptedException {
+    CountDownLatch called = new CountDownLatch(1);
+    CountDownLatch dropped = new CountDownLatch(1);
+    AtomicInteger deliveries = new AtomicInteger();
+    notifier.subscribe(
+        START,
+        100,
+        page -> {
+          deliveries.incrementAndGet();
+          return block(called);
+        },
+        dropped::countDown);
+
+    notifier.poll();
+    assertTrue(called.await(5, TimeUnit.SECONDS));
+    Thread.sleep(150);
+    notifier.poll();
+
+    assertTrue(dropped.await(5, TimeUnit.SECONDS));
+    unblock.countDown();
+    notifier.poll();
+    assertEquals(1, deliveries.get());
+  }
+
+  private boolean block(CountDownLatch called) {
+    called.countDown();
+    try {
+      unblock.await(10, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    return true;
+  }
+}
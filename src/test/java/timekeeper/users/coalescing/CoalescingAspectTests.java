@@ -0,0 +1,116 @@
+package timekeeper.users.coalescing;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+
+public class CoalescingAspectTests {
+
+  private SimpleMeterRegistry meterRegistry;
+  private ExecutorService executor;
+  private Lookups lookups;
+  private Lookups proxy;
+
+  @Before
+  public void setUp() {
+    meterRegistry = new SimpleMeterRegistry();
+    executor = Executors.newFixedThreadPool(4);
+    lookups = new Lookups();
+    AspectJProxyFactory proxyFactory = new AspectJProxyFactory(lookups);
+    proxyFactory.setProxyTargetClass(true);
+    proxyFactory.addAspect(new CoalescingAspect(meterRegistry));
+    proxy = proxyFactory.getProxy();
+  }
+
+  @After
+  public void tearDown() {
+    executor.shutdownNow();
+  }
+
+  @Test
+  public void concurrentIdenticalCallsShareOneInvocation() throws Exception {
+    Future<String> first = executor.submit(() -> proxy.lookUp(1L));
+    lookups.started.await(5, TimeUnit.SECONDS);
+    Future<String> second = executor.submit(() -> proxy.lookUp(1L));
+    Future<String> third = executor.submit(() -> proxy.lookUp(1L));
+    awaitCoalesced(2);
+    lookups.release.countDown();
+
+    assertSame(first.get(5, TimeUnit.SECONDS), second.get(5, TimeUnit.SECONDS));
+    assertSame(first.get(), third.get(5, TimeUnit.SECONDS));
+    assertEquals(1, lookups.invocations.get());
+  }
+
+  @Test
+  public void callsWithDifferentArgumentsRunSeparately() throws Exception {
+    lookups.release.countDown();
+
+    assertEquals("user 1", proxy.lookUp(1L));
+    assertEquals("user 2", proxy.lookUp(2L));
+    assertEquals("user 1", proxy.lookUp(1L));
+    assertEquals(3, lookups.invocations.get());
+  }
+
+  @Test
+  public void waitingCallsGetTheException() throws Exception {
+    Future<String> first = executor.submit(() -> proxy.lookUp(-1L));
+    lookups.started.await(5, TimeUnit.SECONDS);
+    Future<String> second = executor.submit(() -> proxy.lookUp(-1L));
+    awaitCoalesced(1);
+    lookups.release.countDown();
+
+    assertFailsWithNoUserFound(first);
+    assertFailsWithNoUserFound(second);
+    assertEquals(1, lookups.invocations.get());
+  }
+
+  private static void assertFailsWithNoUserFound(Future<String> call) throws Exception {
+    try {
+      call.get(5, TimeUnit.SECONDS);
+      fail("Expected the lookup to fail");
+    } catch (ExecutionException e) {
+      assertEquals(IllegalArgumentException.class, e.getCause().getClass());
+    }
+  }
+
+  private void awaitCoalesced(int calls) throws InterruptedException {
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+    while (coalesced() < calls && System.nanoTime() < deadline) Thread.sleep(5);
+    assertEquals(calls, coalesced(), 0);
+  }
+
+  private double coalesced() {
+    return meterRegistry.find("users.service.coalesced").tag("method", "lookUp").counters().stream()
+        .mapToDouble(Counter::count)
+        .sum();
+  }
+
+  public static class Lookups {
+    final AtomicInteger invocations = new AtomicInteger();
+    final CountDownLatch started = new CountDownLatch(1);
+    final CountDownLatch release = new CountDownLatch(1);
+
+    @Coalesced
+    public String lookUp(Long userId) throws InterruptedException {
+      invocations.incrementAndGet();
+      started.countDown();
+      release.await(5, TimeUnit.SECONDS);
+      if (userId < 0) throw new IllegalArgumentException("No user found with id: " + userId);
+      return new String("user " + userId);
+    }
+  }
+}
@@ -0,0 +1,204 @@
+package timekeeper.users.datasource;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import javax.persistence.EntityManagerFactory;
+import org.flywaydb.core.Flyway;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.support.PropertiesLoaderUtils;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import timekeeper.users.cache.UserCache;
+import timekeeper.users.models.ChangeCursor;
+import timekeeper.users.models.ChangeFeedEntry;
+import timekeeper.users.models.ChangeFeedPage;
+import timekeeper.users.models.User;
+import timekeeper.users.services.contracts.UserChangeService;
+import timekeeper.users.services.contracts.UserService;
+
+/**
+ * Reads through a "replica" that is a second schema in the test database, filled by hand, so it is
+ * exactly as far behind as each test makes it.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(
+    properties = {
+      "users.datasource.replicas.urls=jdbc:postgresql://localhost:5432/timekeeper-users?currentSchema="
+          + LaggingReplicaTests.REPLICA_SCHEMA,
+      "users.datasource.replicas.lag-check-interval=1h"
+    })
+public class LaggingReplicaTests {
+
+  static final String REPLICA_SCHEMA = "lagging_replica";
+
+  @Autowired private UserService userService;
+  @Autowired private UserCache userCache;
+  @Autowired private EntityManagerFactory entityManagerFactory;
+  @Autowired private JdbcTemplate jdbcTemplate;
+  @Autowired private UserChangeService userChangeService;
+  @Autowired private PlatformTransactionManager transactionManager;
+
+  @BeforeClass
+  public static void createReplica() throws IOException {
+    Flyway flyway = Flyway.configure().dataSource(testDatabase()).schemas(REPLICA_SCHEMA).load();
+    flyway.clean();
+    flyway.migrate();
+  }
+
+  @AfterClass
+  public static void dropReplica() throws IOException {
+    new JdbcTemplate(testDatabase()).execute("drop schema " + REPLICA_SCHEMA + " cascade");
+  }
+
+  private static DriverManagerDataSource testDatabase() throws IOException {
+    Properties properties =
+        PropertiesLoaderUtils.loadProperties(new ClassPathResource("application.properties"));
+    return new DriverManagerDataSource(
+        properties.getProperty("spring.datasource.url"),
+        properties.getProperty("spring.datasource.username").trim(),
+        properties.getProperty("spring.datasource.password").trim());
+  }
+
+  @Test
+  public void lookupsAfterAWriteDoNotCacheTheRowTheReplicaStillHas() {
+    User approver = createUser("Approver", null);
+    User user = createUser("Lagging", approver.getUserId());
+    copyToReplica(approver, user);
+
+    userService.patchUser(user.getUserId(), "Current", null, null, null, false, null);
+
+    assertEquals("Lagging", reportOf(approver).getFirstName());
+    assertEquals("Current", userService.getUserById(user.getUserId()).get().getFirstName());
+    assertEquals("Current", userCache.getById(user.getUserId()).get().getFirstName());
+    userCache.invalidate(user.getUserId());
+    assertEquals("Current", userService.getUsersByIds(ids(user)).get(0).getFirstName());
+    assertEquals("Current", userCache.getById(user.getUserId()).get().getFirstName());
+    userCache.invalidate(user.getUserId());
+    assertEquals(
+        "Current", userService.getUserByEmail(user.getEmailAddress()).get().getFirstName());
+    assertEquals("Current", userCache.getById(user.getUserId()).get().getFirstName());
+  }
+
+  @Test
+  public void rowsReadFromTheReplicaAreNotPutInTheSecondLevelCache() {
+    User approver = createUser("Approver", null);
+    User user = createUser("Lagging", approver.getUserId());
+    copyToReplica(approver, user);
+    // Behind Hibernate's back, so nothing in its cache is locked by the write
+    jdbcTemplate.update(
+        "update users set first_name = 'Current' where user_id = ?", user.getUserId());
+    entityManagerFactory.getCache().evict(User.class, user.getUserId());
+    userCache.invalidate(user.getUserId());
+
+    assertEquals("Lagging", reportOf(approver).getFirstName());
+    assertFalse(entityManagerFactory.getCache().contains(User.class, user.getUserId()));
+
+    assertEquals("Current", userService.getUserById(user.getUserId()).get().getFirstName());
+    assertTrue(entityManagerFactory.getCache().contains(User.class, user.getUserId()));
+  }
+
+  @Test
+  public void changeFeedDoesNotCacheTheRowTheReplicaStillHas() {
+    ChangeCursor before = latestCursorOnThePrimary();
+    User approver = createUser("Approver", null);
+    User user = createUser("Lagging", approver.getUserId());
+    copyToReplica(approver, user);
+
+    userService.patchUser(user.getUserId(), "Current", null, null, null, false, null);
+
+    assertEquals("Lagging", reportOf(approver).getFirstName());
+    List<ChangeFeedEntry> changes = changesOf(user, before);
+    assertEquals(2, changes.size());
+    for (ChangeFeedEntry change : changes) {
+      assertEquals("Current", change.getUser().getFirstName());
+    }
+    assertEquals("Current", userCache.getById(user.getUserId()).get().getFirstName());
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void primaryReadCannotJoinATransactionReadingFromTheReplica() {
+    User approver = createUser("Approver", null);
+    User user = createUser("Lagging", approver.getUserId());
+    copyToReplica(approver, user);
+    TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+    readOnly.setReadOnly(true);
+
+    readOnly.execute(
+        status -> {
+          reportOf(approver);
+          return userService.getUserById(user.getUserId());
+        });
+  }
+
+  private User createUser(String firstName, Long approverId) {
+    return userService.createUser(
+        firstName, "Reader", "lagging." + System.nanoTime() + "@example.com", approverId);
+  }
+
+  /** Read from the replica, as an approver's reports are not cached by the service. */
+  private User reportOf(User approver) {
+    return userService.getUsersByApprover(approver.getUserId(), null, 10).get(0);
+  }
+
+  private void copyToReplica(User... users) {
+    for (User user : users) {
+      jdbcTemplate.update(
+          "insert into " + REPLICA_SCHEMA + ".users select * from public.users where user_id = ?",
+          user.getUserId());
+      jdbcTemplate.update(
+          "insert into "
+              + REPLICA_SCHEMA
+              + ".user_changes select * from public.user_changes where user_id = ?",
+          user.getUserId());
+    }
+  }
+
+  private ChangeCursor latestCursorOnThePrimary() {
+    return jdbcTemplate
+        .query(
+            "select tx_id, change_id from user_changes order by tx_id desc, change_id desc limit 1",
+            (row, rowNumber) -> new ChangeCursor(row.getLong(1), row.getLong(2)))
+        .stream()
+        .findFirst()
+        .orElse(ChangeCursor.START);
+  }
+
+  /**
+   * Pages through the feed until both changes of the user show up, which takes until no transaction
+   * that started before them is still running.
+   */
+  private List<ChangeFeedEntry> changesOf(User user, ChangeCursor after) {
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+    List<ChangeFeedEntry> changes = new ArrayList<>();
+    ChangeCursor cursor = after;
+    while (changes.size() < 2 && System.nanoTime() < deadline) {
+      ChangeFeedPage page = userChangeService.getChanges(cursor, 100);
+      page.getChanges().stream()
+          .filter(change -> change.getUserId().equals(user.getUserId()))
+          .forEach(changes::add);
+      cursor = ChangeCursor.parse(page.getCursor());
+    }
+    return changes;
+  }
+
+  private static List<Long> ids(User user) {
+    return Collections.singletonList(user.getUserId());
+  }
+}
@@ -0,0 +1,152 @@
+package timekeeper.users.datasource;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.sql.DataSource;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+public class ReplicaRoutingDataSourceTests {
+
+  private SimpleMeterRegistry meterRegistry;
+  private Connection primaryConnection;
+  private Connection firstReplicaConnection;
+  private Connection secondReplicaConnection;
+  private ResultSet firstReplicaLag;
+  private DataSource secondReplica;
+  private ReplicaRoutingDataSource routingDataSource;
+
+  @Before
+  public void setUp() throws SQLException {
+    primaryConnection = mock(Connection.class);
+    firstReplicaConnection = mock(Connection.class);
+    secondReplicaConnection = mock(Connection.class);
+    firstReplicaLag = replicationLag(firstReplicaConnection, 0);
+    replicationLag(secondReplicaConnection, 0);
+    secondReplica = dataSource(secondReplicaConnection);
+
+    Map<String, DataSource> replicas = new LinkedHashMap<>();
+    replicas.put("replica-1", dataSource(firstReplicaConnection));
+    replicas.put("replica-2", secondReplica);
+    routingDataSource =
+        new ReplicaRoutingDataSource(
+            dataSource(primaryConnection), replicas, Duration.ofSeconds(5), Duration.ofSeconds(1));
+    routingDataSource.afterPropertiesSet();
+    meterRegistry = new SimpleMeterRegistry();
+    routingDataSource.bindTo(meterRegistry);
+  }
+
+  @After
+  public void tearDown() {
+    TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+    ReplicaRoutingDataSource.setReadingFromPrimary(false);
+  }
+
+  @Test
+  public void readWriteTransactionsUseThePrimary() throws SQLException {
+    routingDataSource.checkReplicas();
+
+    assertSame(primaryConnection, routingDataSource.getConnection());
+    assertEquals(1, routed("primary"), 0);
+  }
+
+  @Test
+  public void readOnlyTransactionsAlternateBetweenReplicas() throws SQLException {
+    routingDataSource.checkReplicas();
+    TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+    assertSame(firstReplicaConnection, routingDataSource.getConnection());
+    assertSame(secondReplicaConnection, routingDataSource.getConnection());
+    assertSame(firstReplicaConnection, routingDataSource.getConnection());
+    assertEquals(2, routed("replica-1"), 0);
+    assertEquals(1, routed("replica-2"), 0);
+  }
+
+  @Test
+  public void laggingReplicaIsSkippedUntilItCatchesUp() throws SQLException {
+    when(firstReplicaLag.getDouble(1)).thenReturn(30.0);
+    when(secondReplica.getConnection()).thenThrow(new SQLException("Connection refused"));
+    routingDataSource.checkReplicas();
+    TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+    assertSame(primaryConnection, routingDataSource.getConnection());
+    assertEquals(
+        1, meterRegistry.get("users.datasource.replica.fallbacks").functionCounter().count(), 0);
+    assertEquals(
+        30.0,
+        meterRegistry
+            .get("users.datasource.replica.lag")
+            .tag("datasource", "replica-1")
+            .gauge()
+            .value(),
+        0);
+
+    when(firstReplicaLag.getDouble(1)).thenReturn(1.0);
+    routingDataSource.checkReplicas();
+
+    assertSame(firstReplicaConnection, routingDataSource.getConnection());
+  }
+
+  @Test
+  public void readsFromPrimaryUseThePrimary() throws SQLException {
+    AtomicInteger replicaReads = new AtomicInteger();
+    routingDataSource.setReplicaReadListener(replicaReads::incrementAndGet);
+    routingDataSource.checkReplicas();
+    TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+    ReplicaRoutingDataSource.setReadingFromPrimary(true);
+
+    assertSame(primaryConnection, routingDataSource.getConnection());
+    assertEquals(0, replicaReads.get());
+
+    ReplicaRoutingDataSource.setReadingFromPrimary(false);
+    assertSame(firstReplicaConnection, routingDataSource.getConnection());
+    assertEquals(1, replicaReads.get());
+  }
+
+  @Test
+  public void replicasAreNotUsedBeforeTheirFirstCheck() throws SQLException {
+    TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+    assertSame(primaryConnection, routingDataSource.getConnection());
+  }
+
+  private double routed(String dataSource) {
+    return meterRegistry
+        .get("users.datasource.routed")
+        .tag("datasource", dataSource)
+        .functionCounter()
+        .count();
+  }
+
+  private static DataSource dataSource(Connection connection) throws SQLException {
+    DataSource dataSource = mock(DataSource.class);
+    when(dataSource.getConnection()).thenReturn(connection);
+    return dataSource;
+  }
+
+  private static ResultSet replicationLag(Connection connection, double lagSeconds)
+      throws SQLException {
+    Statement statement = mock(Statement.class);
+    ResultSet resultSet = mock(ResultSet.class);
+    when(connection.createStatement()).thenReturn(statement);
+    when(statement.executeQuery(ReplicaRoutingDataSource.REPLICATION_LAG_QUERY))
+        .thenReturn(resultSet);
+    when(resultSet.next()).thenReturn(true);
+    when(resultSet.getDouble(1)).thenReturn(lagSeconds);
+    return resultSet;
+  }
+}
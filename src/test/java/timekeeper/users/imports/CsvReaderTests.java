@@ -0,0 +1,60 @@
+package timekeeper.users.imports;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Arrays;
+import org.junit.Test;
+import timekeeper.users.exceptions.InvalidImportException;
+
+public class CsvReaderTests {
+
+  @Test
+  public void readsQuotedFieldsAndTracksLines() throws IOException {
+    CsvReader reader =
+        new CsvReader(
+            new StringReader(
+                "\uFEFFfirstName,lastName\r\n"
+                    + "\"Doe, Jr.\",\"He said \"\"hi\"\"\"\r\n"
+                    + "\"Two\nLines\",\n"
+                    + "Jane,Doe"));
+
+    assertEquals(Arrays.asList("firstName", "lastName"), reader.readRecord());
+    assertEquals(1, reader.getRecordLine());
+    assertEquals(Arrays.asList("Doe, Jr.", "He said \"hi\""), reader.readRecord());
+    assertEquals(2, reader.getRecordLine());
+    assertEquals(Arrays.asList("Two\nLines", ""), reader.readRecord());
+    assertEquals(3, reader.getRecordLine());
+    assertEquals(Arrays.asList("Jane", "Doe"), reader.readRecord());
+    assertEquals(5, reader.getRecordLine());
+    assertNull(reader.readRecord());
+  }
+
+  @Test
+  public void bareCarriageReturnEndsARecord() throws IOException {
+    CsvReader reader = new CsvReader(new StringReader("a,b\rc,d\r"));
+
+    assertEquals(Arrays.asList("a", "b"), reader.readRecord());
+    assertEquals(Arrays.asList("c", "d"), reader.readRecord());
+    assertEquals(2, reader.getRecordLine());
+    assertNull(reader.readRecord());
+  }
+
+  @Test(expected = InvalidImportException.class)
+  public void unclosedQuoteIsRejected() throws IOException {
+    CsvReader reader = new CsvReader(new StringReader("a,\"b\nc,d\n"));
+
+    reader.readRecord();
+  }
+
+  @Test(expected = InvalidImportException.class)
+  public void overlongFieldIsRejected() throws IOException {
+    char[] field = new char[CsvReader.MAX_FIELD_LENGTH + 1];
+    Arrays.fill(field, 'x');
+    CsvReader reader = new CsvReader(new StringReader(new String(field)));
+
+    reader.readRecord();
+  }
+}
@@ -0,0 +1,116 @@
+package timekeeper.users.limits;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class AdaptiveConcurrencyLimiterTests {
+
+  private static final long FAST = 1_000_000L;
+  private static final long SLOW = 10_000_000L;
+
+  @Test
+  public void rejectsOnceLimitIsReached() {
+    AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(2, 1, 10, 2.0, 0.5);
+
+    assertTrue(limiter.tryAcquire());
+    assertTrue(limiter.tryAcquire());
+    assertFalse(limiter.tryAcquire());
+
+    limiter.release("/get-user-by-id", FAST, false);
+    assertTrue(limiter.tryAcquire());
+  }
+
+  @Test
+  public void growsWhileLatencyStaysNearAverageAndLimitIsUsed() {
+    AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(2, 1, 3, 2.0, 0.5);
+
+    completeAtLimit(limiter, "/get-user-by-id", FAST, false, 5);
+
+    assertEquals(3, limiter.getLimit());
+  }
+
+  @Test
+  public void doesNotGrowWhenLimitIsMostlyUnused() {
+    AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(10, 1, 20, 2.0, 0.5);
+
+    for (int i = 0; i < 5; i++) {
+      limiter.tryAcquire();
+      limiter.release("/get-user-by-id", FAST, false);
+    }
+
+    assertEquals(10, limiter.getLimit());
+  }
+
+  @Test
+  public void mixedLatencyAtLowConcurrencyLeavesLimitUnchanged() {
+    AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(20, 1, 200, 2.0, 0.9);
+
+    for (int i = 0; i < 1000; i++) {
+      limiter.tryAcquire();
+      if (i % 10 == 0) limiter.tryAcquire();
+      limiter.release("/get-user-by-id", i % 3 == 0 ? SLOW : FAST, false);
+      if (i % 10 == 0) limiter.release("/get-users-by-ids", SLOW * 5, false);
+    }
+
+    assertEquals(20, limiter.getLimit());
+  }
+
+  @Test
+  public void judgesEachEndpointAgainstItsOwnAverage() {
+    AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(8, 1, 8, 2.0, 0.5);
+
+    for (int i = 0; i < 100; i++) {
+      completeAtLimit(limiter, "/get-user-by-id", FAST, false, 3);
+      completeAtLimit(limiter, "/get-users-by-ids", SLOW, false, 1);
+    }
+
+    assertEquals(8, limiter.getLimit());
+  }
+
+  @Test
+  public void shrinksOncePerWindowWhenLatencyRises() {
+    AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(8, 1, 8, 2.0, 0.5);
+    int window = AdaptiveConcurrencyLimiter.MIN_WINDOW_SAMPLES;
+    completeAtLimit(limiter, "/get-user-by-id", FAST, false, window);
+
+    completeAtLimit(limiter, "/get-user-by-id", SLOW, false, window - 1);
+    assertEquals(8, limiter.getLimit());
+
+    completeAtLimit(limiter, "/get-user-by-id", SLOW, false, 1);
+    assertEquals(4, limiter.getLimit());
+
+    completeAtLimit(limiter, "/get-user-by-id", SLOW, false, window - 1);
+    assertEquals(4, limiter.getLimit());
+  }
+
+  @Test
+  public void shrinksOnFailureButNotBelowMinimum() {
+    AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(2, 1, 8, 2.0, 0.5);
+
+    completeAtLimit(
+        limiter, "/get-user-by-id", FAST, true, AdaptiveConcurrencyLimiter.MIN_WINDOW_SAMPLES * 3);
+
+    assertEquals(1, limiter.getLimit());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void rejectsInitialLimitAboveMaximum() {
+    new AdaptiveConcurrencyLimiter(10, 1, 5, 2.0, 0.5);
+  }
+
+  /** Completes requests one at a time while every slot is taken. */
+  private static void completeAtLimit(
+      AdaptiveConcurrencyLimiter limiter,
+      String endpoint,
+      long latencyNanos,
+      boolean failed,
+      int requests) {
+    for (int i = 0; i < requests; i++) {
+      while (limiter.tryAcquire()) {}
+      limiter.release(endpoint, latencyNanos, failed);
+    }
+  }
+}
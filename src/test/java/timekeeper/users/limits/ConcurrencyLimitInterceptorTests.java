@@ -0,0 +1,71 @@
+package timekeeper.users.limits;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import timekeeper.users.limits.ConcurrencyLimitInterceptor.RequestClass;
+
+public class ConcurrencyLimitInterceptorTests {
+
+  private SimpleMeterRegistry meterRegistry;
+  private ConcurrencyLimitInterceptor interceptor;
+
+  @Before
+  public void setUp() {
+    meterRegistry = new SimpleMeterRegistry();
+    interceptor = new ConcurrencyLimitInterceptor(1, 1, 1, 1);
+    interceptor.bindTo(meterRegistry);
+  }
+
+  @Test
+  public void rejectsWith503WhenReadsAreAtTheLimit() throws Exception {
+    MockHttpServletRequest first = new MockHttpServletRequest("GET", "/get-user-by-id");
+    MockHttpServletResponse rejectedResponse = new MockHttpServletResponse();
+
+    assertTrue(interceptor.preHandle(first, new MockHttpServletResponse(), null));
+    assertFalse(
+        interceptor.preHandle(
+            new MockHttpServletRequest("GET", "/get-user-by-id"), rejectedResponse, null));
+
+    assertEquals(503, rejectedResponse.getStatus());
+    assertEquals(
+        ConcurrencyLimitInterceptor.RETRY_AFTER_SECONDS,
+        rejectedResponse.getHeader(HttpHeaders.RETRY_AFTER));
+    assertEquals(
+        1.0, meterRegistry.get("users.limiter.rejected").tag("class", "read").counter().count(), 0);
+  }
+
+  @Test
+  public void writesDoNotUseReadSlots() throws Exception {
+    assertTrue(
+        interceptor.preHandle(
+            new MockHttpServletRequest("GET", "/get-user-by-id"),
+            new MockHttpServletResponse(),
+            null));
+
+    assertTrue(
+        interceptor.preHandle(
+            new MockHttpServletRequest("POST", "/create-user"),
+            new MockHttpServletResponse(),
+            null));
+  }
+
+  @Test
+  public void releasesTheSlotWhenTheRequestCompletes() throws Exception {
+    MockHttpServletRequest request = new MockHttpServletRequest("PUT", "/update-user");
+    MockHttpServletResponse response = new MockHttpServletResponse();
+
+    interceptor.preHandle(request, response, null);
+    assertEquals(1, interceptor.getLimiter(RequestClass.WRITE).getInFlight());
+    interceptor.afterCompletion(request, response, null, null);
+
+    assertEquals(0, interceptor.getLimiter(RequestClass.WRITE).getInFlight());
+  }
+}
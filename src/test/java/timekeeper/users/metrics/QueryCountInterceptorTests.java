@@ -0,0 +1,75 @@
+package timekeeper.users.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.Arrays;
+import javax.servlet.http.HttpServletRequest;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.web.servlet.HandlerExecutionChain;
+import org.springframework.web.servlet.HandlerMapping;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerMapping;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest
+public class QueryCountInterceptorTests {
+
+  @Autowired private RequestMappingHandlerMapping handlerMapping;
+
+  private SimpleMeterRegistry meterRegistry;
+  private QueryCountInterceptor interceptor;
+  private QueryCountingStatementInspector statementInspector;
+
+  @Before
+  public void setUp() {
+    meterRegistry = new SimpleMeterRegistry();
+    interceptor = new QueryCountInterceptor(meterRegistry);
+    statementInspector = new QueryCountingStatementInspector();
+  }
+
+  @Test
+  public void recordsQueriesRunDuringRequest() {
+    MockHttpServletRequest request = new MockHttpServletRequest();
+    request.setAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, "/get-user-by-id");
+    MockHttpServletResponse response = new MockHttpServletResponse();
+    statementInspector.inspect("select 1");
+
+    interceptor.preHandle(request, response, null);
+    statementInspector.inspect("select 2");
+    statementInspector.inspect("select 3");
+    interceptor.afterCompletion(request, response, null, null);
+
+    DistributionSummary summary =
+        meterRegistry.get("users.http.queries").tag("uri", "/get-user-by-id").summary();
+    assertEquals(1, summary.count());
+    assertEquals(2.0, summary.totalAmount(), 0.0);
+  }
+
+  @Test
+  public void skipsRequestsAnsweredFromAnotherThread() throws Exception {
+    assertTrue(hasQueryCountInterceptor(new MockHttpServletRequest("GET", "/get-user-by-id")));
+    for (String path :
+        Arrays.asList(
+            "/export-users",
+            "/get-user-changes",
+            "/stream-user-changes",
+            "/reactive/get-user-by-id"))
+      assertFalse(path, hasQueryCountInterceptor(new MockHttpServletRequest("GET", path)));
+  }
+
+  private boolean hasQueryCountInterceptor(HttpServletRequest request) throws Exception {
+    HandlerExecutionChain chain = handlerMapping.getHandler(request);
+    return Arrays.stream(chain.getInterceptors())
+        .anyMatch(interceptor -> interceptor instanceof QueryCountInterceptor);
+  }
+}
@@ -0,0 +1,193 @@
+package timekeeper.users.repositories;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import org.hibernate.Session;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import timekeeper.users.models.User;
+import timekeeper.users.services.contracts.UserImportService;
+import timekeeper.users.services.contracts.UserService;
+
+/**
+ * Checks that the writes made outside Hibernate's own entity updates keep its second-level cache
+ * consistent, against the real database and cache regions.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+public class UserRepositoryCustomImplTests {
+
+  @Autowired private UserService userService;
+  @Autowired private UserImportService userImportService;
+  @Autowired private EntityManagerFactory entityManagerFactory;
+
+  @Test
+  public void patchUser_concurrentReaderCannotCacheTheOldRow() {
+    User user = createUser("Old", null);
+
+    User readDuringWrite =
+        readInSnapshotTakenBefore(
+            () -> userService.patchUser(user.getUserId(), "New", null, null, null, false, null),
+            user.getUserId());
+
+    assertEquals("Old", readDuringWrite.getFirstName());
+    assertEquals("New", findInNewSession(user.getUserId()).getFirstName());
+  }
+
+  @Test
+  public void reassignReports_concurrentReaderCannotCacheTheOldRow() {
+    User oldApprover = createUser("Old", null);
+    User newApprover = createUser("New", null);
+    User report = createUser("Report", oldApprover.getUserId());
+
+    User readDuringWrite =
+        readInSnapshotTakenBefore(
+            () -> userService.reassignReports(oldApprover.getUserId(), newApprover.getUserId()),
+            report.getUserId());
+
+    assertEquals(oldApprover.getUserId(), readDuringWrite.getApproverId());
+    assertEquals(newApprover.getUserId(), findInNewSession(report.getUserId()).getApproverId());
+  }
+
+  @Test
+  public void deleteUsers_concurrentReaderCannotCacheTheOldRow() {
+    User user = createUser("Deleted", null);
+
+    User readDuringWrite =
+        readInSnapshotTakenBefore(
+            () -> userService.deleteUsers(Collections.singletonList(user.getUserId())),
+            user.getUserId());
+
+    assertEquals("Deleted", readDuringWrite.getFirstName());
+    assertNull(findInNewSession(user.getUserId()));
+  }
+
+  @Test
+  public void reassignReports_invalidatesCachedReportsOfBothApprovers() {
+    User oldApprover = createUser("Old", null);
+    User newApprover = createUser("New", null);
+    User report = createUser("Report", oldApprover.getUserId());
+    assertEquals(ids(report), reportIds(oldApprover));
+    assertEquals(ids(), reportIds(newApprover));
+
+    userService.reassignReports(oldApprover.getUserId(), newApprover.getUserId());
+
+    assertEquals(ids(), reportIds(oldApprover));
+    assertEquals(ids(report), reportIds(newApprover));
+  }
+
+  @Test
+  public void patchUser_invalidatesCachedReports() {
+    User oldApprover = createUser("Old", null);
+    User newApprover = createUser("New", null);
+    User report = createUser("Report", oldApprover.getUserId());
+    assertEquals(ids(report), reportIds(oldApprover));
+    assertEquals(ids(), reportIds(newApprover));
+
+    userService.patchUser(
+        report.getUserId(), null, null, null, newApprover.getUserId(), false, null);
+
+    assertEquals(ids(), reportIds(oldApprover));
+    assertEquals(ids(report), reportIds(newApprover));
+  }
+
+  @Test
+  public void deleteUsers_invalidatesCachedReports() {
+    User approver = createUser("Approver", null);
+    User report = createUser("Report", approver.getUserId());
+    assertEquals(ids(report), reportIds(approver));
+
+    userService.deleteUsers(Collections.singletonList(report.getUserId()));
+
+    assertEquals(ids(), reportIds(approver));
+  }
+
+  @Test
+  public void importUsers_invalidatesCachedReports() throws IOException {
+    User approver = createUser("Approver", null);
+    assertEquals(ids(), reportIds(approver));
+
+    userImportService.importUsers(
+        new ByteArrayInputStream(
+            ("firstName,lastName,emailAddress,approverId\n"
+                    + "Imported,Report,"
+                    + uniqueEmailAddress()
+                    + ","
+                    + approver.getUserId()
+                    + "\n")
+                .getBytes(StandardCharsets.UTF_8)));
+
+    List<User> reports = userService.getUsersByApprover(approver.getUserId(), null, 10);
+    assertEquals(1, reports.size());
+    assertEquals("Imported", reports.get(0).getFirstName());
+  }
+
+  /**
+   * Takes a repeatable-read snapshot in a second session, runs the write and commits it, and only
+   * then loads the user in that session. The session reads the row as it was before the write and
+   * would put it in the cache, which the write must prevent.
+   */
+  private User readInSnapshotTakenBefore(Runnable write, Long userId) {
+    EntityManager reader = entityManagerFactory.createEntityManager();
+    try {
+      reader.getTransaction().begin();
+      reader
+          .unwrap(Session.class)
+          .doWork(
+              connection -> {
+                try (Statement statement = connection.createStatement()) {
+                  statement.execute("set transaction isolation level repeatable read");
+                  statement.execute("select count(*) from users");
+                }
+              });
+      write.run();
+      User user = reader.find(User.class, userId);
+      reader.getTransaction().commit();
+      return user;
+    } finally {
+      reader.close();
+    }
+  }
+
+  /** Answered from the second-level cache when the user is there, and from the database if not. */
+  private User findInNewSession(Long userId) {
+    EntityManager entityManager = entityManagerFactory.createEntityManager();
+    try {
+      return entityManager.find(User.class, userId);
+    } finally {
+      entityManager.close();
+    }
+  }
+
+  private List<Long> reportIds(User approver) {
+    return userService.getUsersByApprover(approver.getUserId(), null, 10).stream()
+        .map(User::getUserId)
+        .collect(Collectors.toList());
+  }
+
+  private User createUser(String firstName, Long approverId) {
+    return userService.createUser(firstName, "Cached", uniqueEmailAddress(), approverId);
+  }
+
+  private static String uniqueEmailAddress() {
+    return "cached." + System.nanoTime() + "@example.com";
+  }
+
+  private static List<Long> ids(User... users) {
+    return Arrays.stream(users).map(User::getUserId).collect(Collectors.toList());
+  }
+}
@@ -0,0 +1,198 @@
+package timekeeper.users.rpc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.*;
+import static timekeeper.users.utils.TestUtils.getDefaultUser;
+import static timekeeper.users.utils.TestUtils.getListOfUsers;
+
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import io.grpc.stub.ServerCallStreamObserver;
+import io.grpc.stub.StreamObserver;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Optional;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import timekeeper.users.exceptions.InvalidUserException;
+import timekeeper.users.services.contracts.UserService;
+import timekeeper.users.services.impls.UserServiceImpl;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest
+public class UserLookupServiceTests {
+
+  private UserService mockUserService;
+  private UserLookupService userLookupService;
+
+  @Before
+  public void setUp() {
+    mockUserService = mock(UserServiceImpl.class);
+    userLookupService = new UserLookupService(mockUserService);
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void getUserById_Successful() {
+    StreamObserver<User> observer = mock(StreamObserver.class);
+    when(mockUserService.getUserById(123L)).thenReturn(Optional.of(getDefaultUser()));
+
+    userLookupService.getUserById(UserIdRequest.newBuilder().setUserId(123L).build(), observer);
+
+    verify(observer).onNext(UserLookupService.toMessage(getDefaultUser()));
+    verify(observer).onCompleted();
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void getUserByEmail_NotFound() {
+    StreamObserver<User> observer = mock(StreamObserver.class);
+    when(mockUserService.getUserByEmail("missing@email.com")).thenReturn(Optional.empty());
+
+    userLookupService.getUserByEmail(
+        EmailRequest.newBuilder().setEmailAddress("missing@email.com").build(), observer);
+
+    verify(observer).onError(argThat(e -> hasStatus(e, Status.Code.NOT_FOUND)));
+    verify(observer, never()).onNext(any());
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void getUsersByIds_Successful() {
+    StreamObserver<Users> observer = mock(StreamObserver.class);
+    when(mockUserService.getUsersByIds(Arrays.asList(123L, 124L))).thenReturn(getListOfUsers());
+
+    userLookupService.getUsersByIds(
+        UserIdsRequest.newBuilder().addUserIds(123L).addUserIds(124L).build(), observer);
+
+    verify(observer)
+        .onNext(
+            Users.newBuilder()
+                .addUsers(UserLookupService.toMessage(getListOfUsers().get(0)))
+                .addUsers(UserLookupService.toMessage(getListOfUsers().get(1)))
+                .build());
+    verify(observer).onCompleted();
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void getUsersByEmails_NoKeys() {
+    StreamObserver<Users> observer = mock(StreamObserver.class);
+
+    userLookupService.getUsersByEmails(EmailsRequest.getDefaultInstance(), observer);
+
+    verify(observer).onError(argThat(e -> hasStatus(e, Status.Code.INVALID_ARGUMENT)));
+    verifyZeroInteractions(mockUserService);
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void streamUsersByApprover_WalksEveryPage() {
+    ServerCallStreamObserver<User> observer = mock(ServerCallStreamObserver.class);
+    when(observer.isReady()).thenReturn(true);
+    timekeeper.users.models.User[] fullPage =
+        new timekeeper.users.models.User[UserLookupService.APPROVER_PAGE_SIZE];
+    for (int i = 0; i < fullPage.length; i++) {
+      fullPage[i] =
+          new timekeeper.users.models.User((long) i + 1, "First", "Last", i + "@email.com", 1L);
+    }
+    when(mockUserService.getUsersByApprover(1L, null, UserLookupService.APPROVER_PAGE_SIZE))
+        .thenReturn(Arrays.asList(fullPage));
+    when(mockUserService.getUsersByApprover(
+            1L, (long) fullPage.length, UserLookupService.APPROVER_PAGE_SIZE))
+        .thenReturn(Collections.singletonList(getDefaultUser()));
+
+    userLookupService.streamUsersByApprover(
+        ApproverRequest.newBuilder().setApproverId(1L).build(), observer);
+
+    verify(observer, times(fullPage.length + 1)).onNext(any());
+    verify(observer).onCompleted();
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void streamUsersByApprover_SendsOnlyWhileTheCallerIsReady() {
+    ServerCallStreamObserver<User> observer = mock(ServerCallStreamObserver.class);
+    when(observer.isReady()).thenReturn(false);
+    when(mockUserService.getUsersByApprover(1L, null, UserLookupService.APPROVER_PAGE_SIZE))
+        .thenReturn(getListOfUsers());
+
+    userLookupService.streamUsersByApprover(
+        ApproverRequest.newBuilder().setApproverId(1L).build(), observer);
+
+    verifyZeroInteractions(mockUserService);
+    verify(observer, never()).onNext(any());
+    ArgumentCaptor<Runnable> onReady = ArgumentCaptor.forClass(Runnable.class);
+    verify(observer).setOnReadyHandler(onReady.capture());
+
+    // Ready for one message, then full again
+    when(observer.isReady()).thenReturn(true, true, false);
+    onReady.getValue().run();
+    verify(observer, times(1)).onNext(any());
+    verify(observer, never()).onCompleted();
+
+    when(observer.isReady()).thenReturn(true);
+    onReady.getValue().run();
+    verify(observer, times(getListOfUsers().size())).onNext(any());
+    verify(observer).onCompleted();
+    verify(mockUserService).getUsersByApprover(1L, null, UserLookupService.APPROVER_PAGE_SIZE);
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void streamUsersByApprover_NoApprover() {
+    ServerCallStreamObserver<User> observer = mock(ServerCallStreamObserver.class);
+    when(observer.isReady()).thenReturn(true);
+    when(mockUserService.getUsersByApprover(9L, null, UserLookupService.APPROVER_PAGE_SIZE))
+        .thenThrow(new InvalidUserException("No approver found with id: 9"));
+
+    userLookupService.streamUsersByApprover(
+        ApproverRequest.newBuilder().setApproverId(9L).build(), observer);
+
+    verify(observer).onError(argThat(e -> hasStatus(e, Status.Code.NOT_FOUND)));
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void streamUsersByIds_AnswersEachId() {
+    StreamObserver<UserLookupReply> observer = mock(StreamObserver.class);
+    when(mockUserService.getUserById(123L)).thenReturn(Optional.of(getDefaultUser()));
+    when(mockUserService.getUserById(999L)).thenReturn(Optional.empty());
+
+    StreamObserver<UserIdRequest> requests = userLookupService.streamUsersByIds(observer);
+    requests.onNext(UserIdRequest.newBuilder().setUserId(123L).build());
+    requests.onNext(UserIdRequest.newBuilder().setUserId(999L).build());
+    requests.onCompleted();
+
+    verify(observer)
+        .onNext(
+            UserLookupReply.newBuilder()
+                .setUserId(123L)
+                .setUser(UserLookupService.toMessage(getDefaultUser()))
+                .build());
+    verify(observer).onNext(argThat(reply -> reply.getUserId() == 999L && !reply.hasUser()));
+    verify(observer).onCompleted();
+  }
+
+  @Test
+  public void toMessage_LeavesMissingApproverUnset() {
+    User message =
+        UserLookupService.toMessage(
+            new timekeeper.users.models.User(1L, "John", "Doe", "john.doe@email.com", null));
+
+    assertFalse(message.hasApproverId());
+    assertEquals("john.doe@email.com", message.getEmailAddress());
+  }
+
+  private static boolean hasStatus(Throwable e, Status.Code code) {
+    return e instanceof StatusRuntimeException
+        && ((StatusRuntimeException) e).getStatus().getCode() == code;
+  }
+}
@@ -0,0 +1,136 @@
+package timekeeper.users.services;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+import static timekeeper.users.utils.TestUtils.getDefaultUser;
+import static timekeeper.users.utils.TestUtils.getListOfUsers;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import timekeeper.users.cache.EmailFilter;
+import timekeeper.users.cache.UserCache;
+import timekeeper.users.exceptions.InvalidUserException;
+import timekeeper.users.models.User;
+import timekeeper.users.repositories.ReactiveUserRepository;
+import timekeeper.users.services.impls.ReactiveUserServiceImpl;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest
+public class ReactiveUserServiceImplTests {
+
+  private ReactiveUserRepository mockReactiveUserRepository;
+  private ReactiveUserServiceImpl reactiveUserService;
+
+  @Before
+  public void setUp() {
+    mockReactiveUserRepository = mock(ReactiveUserRepository.class);
+    reactiveUserService =
+        new ReactiveUserServiceImpl(
+            mockReactiveUserRepository,
+            new UserCache(100, Duration.ofMinutes(5)),
+            new EmailFilter(0.01));
+  }
+
+  @Test
+  public void getUserById_servedFromCacheAfterFirstLookup() {
+    User expectedUser = getDefaultUser();
+    when(mockReactiveUserRepository.findById(expectedUser.getUserId()))
+        .thenReturn(Mono.just(expectedUser));
+
+    reactiveUserService.getUserById(expectedUser.getUserId()).block();
+    User actualUser = reactiveUserService.getUserById(expectedUser.getUserId()).block();
+
+    assertEquals(expectedUser, actualUser);
+    verify(mockReactiveUserRepository, times(1)).findById(expectedUser.getUserId());
+  }
+
+  @Test
+  public void getUserById_callsClusteredCacheOffTheSubscribingThread() {
+    User expectedUser = getDefaultUser();
+    Set<String> cacheThreads = ConcurrentHashMap.newKeySet();
+    UserCache mockUserCache = mock(UserCache.class);
+    when(mockUserCache.isClustered()).thenReturn(true);
+    when(mockUserCache.getById(expectedUser.getUserId()))
+        .thenAnswer(
+            invocation -> {
+              cacheThreads.add(Thread.currentThread().getName());
+              return Optional.empty();
+            });
+    doAnswer(
+            invocation -> {
+              cacheThreads.add(Thread.currentThread().getName());
+              return null;
+            })
+        .when(mockUserCache)
+        .put(eq(expectedUser), anyLong());
+    when(mockReactiveUserRepository.findById(expectedUser.getUserId()))
+        .thenReturn(Mono.just(expectedUser));
+    ReactiveUserServiceImpl clusteredService =
+        new ReactiveUserServiceImpl(
+            mockReactiveUserRepository, mockUserCache, new EmailFilter(0.01));
+
+    assertEquals(expectedUser, clusteredService.getUserById(expectedUser.getUserId()).block());
+
+    verify(mockUserCache).put(eq(expectedUser), anyLong());
+    assertTrue(cacheThreads.stream().allMatch(thread -> thread.startsWith("boundedElastic")));
+  }
+
+  @Test
+  public void getUserByEmail_notFound() {
+    when(mockReactiveUserRepository.findByEmailAddress("nobody@email.com"))
+        .thenReturn(Mono.empty());
+
+    assertNull(reactiveUserService.getUserByEmail("nobody@email.com").block());
+  }
+
+  @Test
+  public void getUserByName_successful() {
+    User expectedUser = getDefaultUser();
+    when(mockReactiveUserRepository.findByFirstNameAndLastName("John", "Doe"))
+        .thenReturn(Mono.just(expectedUser));
+
+    assertEquals(expectedUser, reactiveUserService.getUserByName("John", "Doe").block());
+  }
+
+  @Test
+  public void getUsersByApprover_successful() {
+    List<User> expectedUsers = getListOfUsers();
+    when(mockReactiveUserRepository.findAllByApproverId(1234L, 0L, 10))
+        .thenReturn(Flux.fromIterable(expectedUsers).map(Optional::of));
+
+    List<User> actualUsers = reactiveUserService.getUsersByApprover(1234L, null, 10).block();
+
+    assertEquals(expectedUsers, actualUsers);
+  }
+
+  @Test
+  public void getUsersByApprover_noReports() {
+    when(mockReactiveUserRepository.findAllByApproverId(1234L, 0L, 10))
+        .thenReturn(Flux.just(Optional.empty()));
+
+    List<User> actualUsers = reactiveUserService.getUsersByApprover(1234L, null, 10).block();
+
+    assertEquals(Collections.emptyList(), actualUsers);
+  }
+
+  @Test(expected = InvalidUserException.class)
+  public void getUsersByApprover_approverNotFound() {
+    when(mockReactiveUserRepository.findAllByApproverId(1234L, 0L, 10)).thenReturn(Flux.empty());
+
+    reactiveUserService.getUsersByApprover(1234L, null, 10).block();
+  }
+}
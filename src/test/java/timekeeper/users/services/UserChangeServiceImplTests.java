@@ -0,0 +1,92 @@
+package timekeeper.users.services;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.mockito.Mockito.*;
+import static timekeeper.users.utils.TestUtils.getDefaultUser;
+
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Optional;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import timekeeper.users.models.ChangeCursor;
+import timekeeper.users.models.ChangeFeedPage;
+import timekeeper.users.models.ChangeType;
+import timekeeper.users.models.UserChange;
+import timekeeper.users.repositories.UserChangeRepository;
+import timekeeper.users.services.contracts.UserService;
+import timekeeper.users.services.impls.UserChangeServiceImpl;
+import timekeeper.users.services.impls.UserServiceImpl;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest
+public class UserChangeServiceImplTests {
+
+  private static final Instant CHANGED_AT = Instant.parse("2019-09-01T10:15:30Z");
+
+  private UserChangeRepository mockUserChangeRepository;
+  private UserService mockUserService;
+  private UserChangeServiceImpl userChangeService;
+
+  @Before
+  public void setUp() {
+    mockUserChangeRepository = mock(UserChangeRepository.class);
+    mockUserService = mock(UserServiceImpl.class);
+    userChangeService = new UserChangeServiceImpl(mockUserChangeRepository, mockUserService);
+  }
+
+  @Test
+  public void getChanges_joinsCurrentStateOfUsers() {
+    when(mockUserChangeRepository.findChangesAfter(10L, 5L, 100))
+        .thenReturn(
+            Arrays.asList(
+                new UserChange(51L, 123L, ChangeType.UPDATED, CHANGED_AT, 11L),
+                new UserChange(52L, 999L, ChangeType.DELETED, CHANGED_AT, 12L)));
+    when(mockUserService.getUsersByIds(Arrays.asList(123L, 999L)))
+        .thenReturn(Collections.singletonList(getDefaultUser()));
+
+    ChangeFeedPage page = userChangeService.getChanges(new ChangeCursor(10L, 5L), 100);
+
+    assertEquals("12-52", page.getCursor());
+    assertEquals(2, page.getChanges().size());
+    assertEquals("11-51", page.getChanges().get(0).getCursor());
+    assertEquals(getDefaultUser(), page.getChanges().get(0).getUser());
+    assertEquals(ChangeType.DELETED, page.getChanges().get(1).getChangeType());
+    assertNull(page.getChanges().get(1).getUser());
+  }
+
+  @Test
+  public void getChanges_noneKeepsCursor() {
+    when(mockUserChangeRepository.findChangesAfter(10L, 5L, 100))
+        .thenReturn(Collections.emptyList());
+
+    ChangeFeedPage page = userChangeService.getChanges(new ChangeCursor(10L, 5L), 100);
+
+    assertEquals("10-5", page.getCursor());
+    assertEquals(Collections.emptyList(), page.getChanges());
+    verifyZeroInteractions(mockUserService);
+  }
+
+  @Test
+  public void getLatestCursor_startWhenFeedIsEmpty() {
+    when(mockUserChangeRepository.findLatestChange()).thenReturn(Optional.empty());
+
+    assertEquals(ChangeCursor.START, userChangeService.getLatestCursor());
+  }
+
+  @Test
+  public void changeCursor_roundTrips() {
+    assertEquals(new ChangeCursor(12L, 52L), ChangeCursor.parse("12-52"));
+    assertEquals(ChangeCursor.START, ChangeCursor.parse(null));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void changeCursor_rejectsGarbage() {
+    ChangeCursor.parse("not-a-cursor");
+  }
+}
@@ -0,0 +1,159 @@
+package timekeeper.users.services;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Collections;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InOrder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.test.context.junit4.SpringRunner;
+import timekeeper.users.cache.EmailFilter;
+import timekeeper.users.exceptions.InvalidImportException;
+import timekeeper.users.exceptions.InvalidUserException;
+import timekeeper.users.models.User;
+import timekeeper.users.models.UserImportError;
+import timekeeper.users.models.UserImportReport;
+import timekeeper.users.repositories.UserImportRepository;
+import timekeeper.users.services.contracts.UserImportService;
+import timekeeper.users.services.contracts.UserService;
+import timekeeper.users.services.impls.UserImportServiceImpl;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest
+public class UserImportServiceImplTests {
+
+  private UserImportServiceImpl userImportService;
+  private UserImportRepository mockUserImportRepository;
+  private UserImportRepository.StagingWriter mockStagingWriter;
+
+  @Autowired private UserImportService importService;
+  @Autowired private UserService userService;
+
+  @Before
+  public void setUp() throws SQLException {
+    mockUserImportRepository = mock(UserImportRepository.class);
+    mockStagingWriter = mock(UserImportRepository.StagingWriter.class);
+    when(mockUserImportRepository.openStagingWriter()).thenReturn(mockStagingWriter);
+    userImportService = new UserImportServiceImpl(mockUserImportRepository, new EmailFilter(0.01));
+  }
+
+  @Test
+  public void importUsers_stagesValidRowsAndRejectsInvalidOnes() throws IOException {
+    UserImportReport expectedReport = new UserImportReport(2, 5, Collections.emptyList());
+    when(mockUserImportRepository.insertStagedUsers()).thenReturn(2);
+    when(mockUserImportRepository.report(2, 1000)).thenReturn(expectedReport);
+
+    UserImportReport actualReport =
+        userImportService.importUsers(
+            csv(
+                "userId,firstName,lastName,emailAddress,approverId\n"
+                    + "1,John,Doe,john.doe@email.com,\n"
+                    + "2, Jane ,Doe,jane.doe@email.com,1234\n"
+                    + "\n"
+                    + "3,,Doe,nobody@email.com,\n"
+                    + "4,Bad,Email,not-an-email,\n"
+                    + "5,Bad,Approver,bad.approver@email.com,boss\n"
+                    + "6,Too,Few\n"));
+
+    assertEquals(expectedReport, actualReport);
+    InOrder inOrder = inOrder(mockUserImportRepository, mockStagingWriter);
+    inOrder.verify(mockUserImportRepository).createStagingTable();
+    inOrder.verify(mockStagingWriter).stage(2, "John", "Doe", "john.doe@email.com", null, null);
+    inOrder.verify(mockStagingWriter).stage(3, "Jane", "Doe", "jane.doe@email.com", 1234L, null);
+    inOrder
+        .verify(mockStagingWriter)
+        .reject(5, "A first name, last name and email address are required");
+    inOrder.verify(mockStagingWriter).reject(6, "Not a valid email address: not-an-email");
+    inOrder.verify(mockStagingWriter).reject(7, "Not a valid approverId: boss");
+    inOrder.verify(mockStagingWriter).reject(8, "Expected 5 fields but found 3");
+    inOrder.verify(mockStagingWriter).close();
+    inOrder.verify(mockUserImportRepository).rejectInvalidRows();
+    inOrder.verify(mockUserImportRepository).insertStagedUsers();
+  }
+
+  @Test
+  public void importUsers_resolvesApproversByEmailAddress() throws IOException {
+    userImportService.importUsers(
+        csv(
+            "emailAddress,firstName,lastName,approverEmailAddress\n"
+                + "boss@email.com,The,Boss,\n"
+                + "john.doe@email.com,John,Doe,boss@email.com\n"));
+
+    verify(mockStagingWriter).stage(2, "The", "Boss", "boss@email.com", null, null);
+    verify(mockStagingWriter).stage(3, "John", "Doe", "john.doe@email.com", null, "boss@email.com");
+  }
+
+  @Test(expected = InvalidImportException.class)
+  public void importUsers_headerMissingRequiredColumns() throws IOException {
+    try {
+      userImportService.importUsers(csv("firstName,lastName\nJohn,Doe\n"));
+    } finally {
+      verifyZeroInteractions(mockUserImportRepository);
+    }
+  }
+
+  @Test(expected = InvalidUserException.class)
+  public void importUsers_concurrentlyCreatedEmail() throws IOException {
+    when(mockUserImportRepository.insertStagedUsers())
+        .thenThrow(new DuplicateKeyException("users_email_address_key"));
+
+    userImportService.importUsers(
+        csv("firstName,lastName,emailAddress\nJohn,Doe,john.doe@email.com\n"));
+  }
+
+  @Test
+  public void importUsers_emptyFileAfterHeader() throws IOException {
+    userImportService.importUsers(csv("firstName,lastName,emailAddress\n"));
+
+    verify(mockStagingWriter, never())
+        .stage(anyLong(), anyString(), anyString(), anyString(), any(), any());
+    verify(mockUserImportRepository).report(0, 1000);
+  }
+
+  @Test
+  public void importUsers_rejectsApprovalCyclesAndKeepsSelfApprovers() throws IOException {
+    String domain = "@" + System.nanoTime() + ".cycles.com";
+
+    UserImportReport report =
+        importService.importUsers(
+            csv(
+                ("emailAddress,firstName,lastName,approverEmailAddress\n"
+                        + "self@x,Self,Approved,self@x\n"
+                        + "a@x,A,Cycle,b@x\n"
+                        + "b@x,B,Cycle,a@x\n"
+                        + "c@x,C,Cycle,a@x\n"
+                        + "boss@x,The,Boss,\n"
+                        + "d@x,D,Report,boss@x\n"
+                        + "e@x,E,Report,self@x\n")
+                    .replace("@x", domain)));
+
+    assertEquals(4, report.getImported());
+    assertEquals(3, report.getRejected());
+    assertEquals(
+        Arrays.asList(
+            new UserImportError(3, "Approval cycle through email address: b" + domain),
+            new UserImportError(4, "Approval cycle through email address: a" + domain),
+            new UserImportError(5, "Approval cycle through email address: a" + domain)),
+        report.getErrors());
+    User self = userService.getUserByEmail("self" + domain).get();
+    assertEquals(self.getUserId(), self.getApproverId());
+    assertEquals(self.getUserId(), userService.getUserByEmail("e" + domain).get().getApproverId());
+  }
+
+  private static InputStream csv(String content) {
+    return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+  }
+}
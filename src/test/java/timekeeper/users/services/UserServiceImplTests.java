@@ -1,20 +1,44 @@
 package timekeeper.users.services;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.Mockito.*;
 import static timekeeper.users.utils.TestUtils.getDefaultUser;
 import static timekeeper.users.utils.TestUtils.getListOfUsers;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
 import java.util.List;
 import java.util.Optional;
+import org.hibernate.exception.ConstraintViolationException;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.test.context.junit4.SpringRunner;
+import timekeeper.users.cache.EmailFilter;
+import timekeeper.users.cache.UserCache;
+import timekeeper.users.exceptions.ApprovalCycleException;
 import timekeeper.users.exceptions.InvalidUserException;
+import timekeeper.users.models.ChangeType;
 import timekeeper.users.models.User;
+import timekeeper.users.models.UserChange;
+import timekeeper.users.models.UserField;
+import timekeeper.users.models.UserFields;
+import timekeeper.users.repositories.UserChangeRepository;
 import timekeeper.users.repositories.UserRepository;
 import timekeeper.users.services.impls.UserServiceImpl;
 
@@ -24,19 +48,27 @@ public class UserServiceImplTests {
 
   private UserServiceImpl userService;
   private UserRepository mockUserRepository;
+  private UserChangeRepository mockUserChangeRepository;
+  private EmailFilter emailFilter;
 
   @Before
   public void setUp() {
     mockUserRepository = mock(UserRepository.class);
-    userService = new UserServiceImpl(mockUserRepository);
+    mockUserChangeRepository = mock(UserChangeRepository.class);
+    emailFilter = new EmailFilter(0.01);
+    userService =
+        new UserServiceImpl(
+            mockUserRepository,
+            new UserCache(100, Duration.ofMinutes(5)),
+            mockUserChangeRepository,
+            emailFilter);
   }
 
   @Test
   public void createUser_successful() {
     final User expectedUser = getDefaultUser();
 
-    when(mockUserRepository.findById(expectedUser.getUserId())).thenReturn(Optional.empty());
-    when(mockUserRepository.save(any(User.class))).thenReturn(expectedUser);
+    when(mockUserRepository.saveAndFlush(any(User.class))).thenReturn(expectedUser);
 
     final User returnedUser =
         userService.createUser(
@@ -45,37 +77,72 @@ public class UserServiceImplTests {
             expectedUser.getEmailAddress(),
             expectedUser.getApproverId());
 
-    verify(mockUserRepository, times(1)).save(any(User.class));
+    verify(mockUserRepository, times(1)).saveAndFlush(any(User.class));
+    verifyNoMoreInteractions(mockUserRepository);
+    verify(mockUserChangeRepository, times(1))
+        .save(argThat(change -> change.getChangeType() == ChangeType.CREATED));
     assertEquals(expectedUser, returnedUser);
   }
 
-  @Test(expected = InvalidUserException.class)
+  @Test
   public void createUser_alreadyExists() {
     final User expectedUser = getDefaultUser();
-    when(mockUserRepository.findUserByEmailAddress(expectedUser.getEmailAddress()))
-        .thenReturn(Optional.of(expectedUser));
+    when(mockUserRepository.saveAndFlush(any(User.class))).thenThrow(duplicateEmailViolation());
+
+    try {
+      userService.createUser(
+          expectedUser.getFirstName(),
+          expectedUser.getLastName(),
+          expectedUser.getEmailAddress(),
+          expectedUser.getApproverId());
+      fail("Expected an InvalidUserException");
+    } catch (InvalidUserException e) {
+      verifyZeroInteractions(mockUserChangeRepository);
+    }
+  }
+
+  @Test(expected = DataIntegrityViolationException.class)
+  public void createUser_otherConstraintViolationIsRethrown() {
+    final User expectedUser = getDefaultUser();
+    when(mockUserRepository.saveAndFlush(any(User.class)))
+        .thenThrow(
+            new DataIntegrityViolationException(
+                "not null",
+                new ConstraintViolationException("not null", new SQLException(), "users_pkey")));
 
     userService.createUser(
         expectedUser.getFirstName(),
         expectedUser.getLastName(),
-        expectedUser.getEmailAddress(),
+        null,
         expectedUser.getApproverId());
+  }
 
-    verify(mockUserRepository, times(1)).findUserByEmailAddress(expectedUser.getEmailAddress());
-    verifyNoMoreInteractions(mockUserRepository);
+  private static DataIntegrityViolationException duplicateEmailViolation() {
+    return new DataIntegrityViolationException(
+        "duplicate key",
+        new ConstraintViolationException(
+            "duplicate key", new SQLException(), "users_email_address_key"));
   }
 
   @Test
   public void deleteUser_successful() {
     User toBeDeleted = getDefaultUser();
     Long toBeDeleteduserId = toBeDeleted.getUserId();
-    when(mockUserRepository.findById(toBeDeleteduserId)).thenReturn(Optional.of(toBeDeleted));
+    when(mockUserRepository.deleteAllByUserIdInReturning(
+            Collections.singletonList(toBeDeleteduserId)))
+        .thenReturn(Collections.singletonList(toBeDeleted));
 
     User deleted = userService.deleteUser(toBeDeleteduserId);
 
-    verify(mockUserRepository, times(1)).findById(toBeDeleteduserId);
-    verify(mockUserRepository, times(1)).deleteById(toBeDeleteduserId);
+    verify(mockUserRepository, times(1))
+        .deleteAllByUserIdInReturning(Collections.singletonList(toBeDeleteduserId));
     verifyNoMoreInteractions(mockUserRepository);
+    verify(mockUserChangeRepository, times(1))
+        .saveAll(
+            argThat(
+                changes ->
+                    changes.iterator().next().getChangeType() == ChangeType.DELETED
+                        && changes.iterator().next().getUserId().equals(toBeDeleteduserId)));
 
     assertEquals(toBeDeleted, deleted);
   }
@@ -83,11 +150,83 @@ public class UserServiceImplTests {
   @Test(expected = InvalidUserException.class)
   public void deleteUser_notFound() {
     long id = 1234;
-    when(mockUserRepository.findById(id)).thenReturn(Optional.empty());
+    when(mockUserRepository.deleteAllByUserIdInReturning(Collections.singletonList(id)))
+        .thenReturn(Collections.emptyList());
     userService.deleteUser(id);
+  }
+
+  @Test
+  public void deleteUsers_recordsAChangePerDeletedUser() {
+    List<User> deletedUsers = getListOfUsers();
+    List<Long> userIds = Arrays.asList(1L, 2L, 99L);
+    when(mockUserRepository.deleteAllByUserIdInReturning(userIds)).thenReturn(deletedUsers);
 
-    verify(mockUserRepository, times(1)).findById(id);
+    List<User> actualUsers = userService.deleteUsers(userIds);
+
+    assertEquals(deletedUsers, actualUsers);
+    verify(mockUserRepository, times(1)).deleteAllByUserIdInReturning(userIds);
     verifyNoMoreInteractions(mockUserRepository);
+    verify(mockUserChangeRepository, times(1))
+        .saveAll(
+            argThat(
+                changes -> {
+                  List<UserChange> changeList = new ArrayList<>();
+                  changes.forEach(changeList::add);
+                  return changeList.size() == deletedUsers.size()
+                      && changeList.stream()
+                          .allMatch(change -> change.getChangeType() == ChangeType.DELETED);
+                }));
+  }
+
+  @Test
+  public void reassignReports_movesReportsInOneStatement() {
+    User newApprover = new User(2L, "Jane", "Doe", "jane.doe@email.com", 3L);
+    User topApprover = new User(3L, "Top", "Boss", "top@email.com", 3L);
+    List<User> reports = getListOfUsers();
+    when(mockUserRepository.findApprovalChain(2L))
+        .thenReturn(Arrays.asList(newApprover, topApprover));
+    when(mockUserRepository.reassignReports(1L, 2L)).thenReturn(reports);
+
+    int reassigned = userService.reassignReports(1L, 2L);
+
+    assertEquals(reports.size(), reassigned);
+    verify(mockUserRepository, times(1)).reassignReports(1L, 2L);
+    verify(mockUserRepository, never()).saveAndFlush(any(User.class));
+    verify(mockUserChangeRepository, times(1)).saveAll(any());
+  }
+
+  @Test(expected = InvalidUserException.class)
+  public void reassignReports_unknownNewApprover() {
+    when(mockUserRepository.findApprovalChain(2L)).thenReturn(Collections.emptyList());
+
+    userService.reassignReports(1L, 2L);
+  }
+
+  @Test
+  public void reassignReports_newApproverMayBeAReport() {
+    User newApprover = new User(2L, "Jane", "Doe", "jane.doe@email.com", 1L);
+    User oldApprover = new User(1L, "John", "Doe", "john.doe@email.com", 1L);
+    when(mockUserRepository.findApprovalChain(2L))
+        .thenReturn(Arrays.asList(newApprover, oldApprover));
+    when(mockUserRepository.reassignReports(1L, 2L)).thenReturn(getListOfUsers());
+
+    assertEquals(2, userService.reassignReports(1L, 2L));
+  }
+
+  @Test
+  public void reassignReports_newApproverBelowAnotherReport() {
+    User newApprover = new User(3L, "Jane", "Doe", "jane.doe@email.com", 2L);
+    User report = new User(2L, "Jim", "Doe", "jim.doe@email.com", 1L);
+    User oldApprover = new User(1L, "John", "Doe", "john.doe@email.com", 1L);
+    when(mockUserRepository.findApprovalChain(3L))
+        .thenReturn(Arrays.asList(newApprover, report, oldApprover));
+
+    try {
+      userService.reassignReports(1L, 3L);
+      fail("Expected an ApprovalCycleException");
+    } catch (ApprovalCycleException e) {
+      verify(mockUserRepository, never()).reassignReports(anyLong(), anyLong());
+    }
   }
 
   @Test
@@ -104,7 +243,7 @@ public class UserServiceImplTests {
     when(mockUserRepository.findById(toBeUpdated.getUserId()))
         .thenReturn(Optional.of(originalUser));
 
-    when(mockUserRepository.save(toBeUpdated)).thenReturn(toBeUpdated);
+    when(mockUserRepository.saveAndFlush(toBeUpdated)).thenReturn(toBeUpdated);
 
     User updatedUser =
         userService
@@ -113,14 +252,53 @@ public class UserServiceImplTests {
                 toBeUpdated.getFirstName(),
                 toBeUpdated.getLastName(),
                 toBeUpdated.getEmailAddress(),
-                toBeUpdated.getApproverId())
+                toBeUpdated.getApproverId(),
+                null)
             .get();
 
     assertEquals("Thomas", updatedUser.getFirstName());
 
     verify(mockUserRepository, times(1)).findById(toBeUpdated.getUserId());
-    verify(mockUserRepository, times(1)).save(any(User.class));
+    verify(mockUserRepository, times(1)).saveAndFlush(any(User.class));
     verifyNoMoreInteractions(mockUserRepository);
+    verify(mockUserChangeRepository, times(1))
+        .save(argThat(change -> change.getChangeType() == ChangeType.UPDATED));
+  }
+
+  @Test(expected = InvalidUserException.class)
+  public void updateUser_emailTaken() {
+    User originalUser = getDefaultUser();
+    when(mockUserRepository.findById(originalUser.getUserId()))
+        .thenReturn(Optional.of(originalUser));
+    when(mockUserRepository.saveAndFlush(any(User.class))).thenThrow(duplicateEmailViolation());
+
+    userService.updateUser(
+        originalUser.getUserId(),
+        originalUser.getFirstName(),
+        originalUser.getLastName(),
+        "jane.doe@email.com",
+        originalUser.getApproverId(),
+        null);
+  }
+
+  @Test(expected = ObjectOptimisticLockingFailureException.class)
+  public void updateUser_versionMismatch() {
+    User originalUser = getDefaultUser();
+    originalUser.setVersion(3L);
+    when(mockUserRepository.findById(originalUser.getUserId()))
+        .thenReturn(Optional.of(originalUser));
+
+    try {
+      userService.updateUser(
+          originalUser.getUserId(),
+          "Thomas",
+          originalUser.getLastName(),
+          originalUser.getEmailAddress(),
+          originalUser.getApproverId(),
+          2L);
+    } finally {
+      verify(mockUserRepository, never()).saveAndFlush(any(User.class));
+    }
   }
 
   public void updateUser_notFound() {
@@ -134,13 +312,76 @@ public class UserServiceImplTests {
             toBeUpdated.getFirstName(),
             toBeUpdated.getLastName(),
             toBeUpdated.getEmailAddress(),
-            toBeUpdated.getApproverId());
+            toBeUpdated.getApproverId(),
+            null);
 
     assertEquals(Optional.empty(), actualUser);
     verify(mockUserRepository, times(1)).findById(toBeUpdated.getUserId());
     verifyNoMoreInteractions(mockUserRepository);
   }
 
+  @Test
+  public void patchUser_successful() {
+    when(mockUserRepository.patchUser(123L, null, null, null, 1235L, false, null)).thenReturn(1);
+
+    boolean patched = userService.patchUser(123L, null, null, null, 1235L, false, null);
+
+    assertTrue(patched);
+    verify(mockUserRepository, times(1)).patchUser(123L, null, null, null, 1235L, false, null);
+    verifyNoMoreInteractions(mockUserRepository);
+    verify(mockUserChangeRepository, times(1))
+        .save(argThat(change -> change.getChangeType() == ChangeType.UPDATED));
+  }
+
+  @Test
+  public void patchUser_clearApprover() {
+    when(mockUserRepository.patchUser(123L, null, null, null, null, true, null)).thenReturn(1);
+
+    assertTrue(userService.patchUser(123L, null, null, null, null, true, null));
+    verify(mockUserRepository, times(1)).patchUser(123L, null, null, null, null, true, null);
+  }
+
+  @Test
+  public void patchUser_notFound() {
+    when(mockUserRepository.patchUser(123L, "Thomas", null, null, null, false, null)).thenReturn(0);
+
+    boolean patched = userService.patchUser(123L, "Thomas", null, null, null, false, null);
+
+    assertFalse(patched);
+    verify(mockUserRepository, never()).existsById(any());
+    verifyZeroInteractions(mockUserChangeRepository);
+  }
+
+  @Test(expected = ObjectOptimisticLockingFailureException.class)
+  public void patchUser_versionMismatch() {
+    when(mockUserRepository.patchUser(123L, "Thomas", null, null, null, false, 2L)).thenReturn(0);
+    when(mockUserRepository.existsById(123L)).thenReturn(true);
+
+    userService.patchUser(123L, "Thomas", null, null, null, false, 2L);
+  }
+
+  @Test(expected = InvalidUserException.class)
+  public void patchUser_emailTaken() {
+    when(mockUserRepository.patchUser(123L, null, null, "jane.doe@email.com", null, false, null))
+        .thenThrow(duplicateEmailViolation());
+
+    userService.patchUser(123L, null, null, "jane.doe@email.com", null, false, null);
+  }
+
+  @Test
+  public void patchUser_invalidatesCachedUser() {
+    User originalUser = getDefaultUser();
+    when(mockUserRepository.findById(originalUser.getUserId()))
+        .thenReturn(Optional.of(originalUser));
+    when(mockUserRepository.patchUser(123L, "Thomas", null, null, null, false, null)).thenReturn(1);
+
+    userService.getUserById(originalUser.getUserId());
+    userService.patchUser(123L, "Thomas", null, null, null, false, null);
+    userService.getUserById(originalUser.getUserId());
+
+    verify(mockUserRepository, times(2)).findById(originalUser.getUserId());
+  }
+
   @Test
   public void findUserById_successful() {
     Optional<User> expectedUser = Optional.of(getDefaultUser());
@@ -159,6 +400,80 @@ public class UserServiceImplTests {
     assertEquals(Optional.empty(), actualUser);
   }
 
+  @Test
+  public void findUserById_servedFromCacheOnRepeatedLookup() {
+    User expectedUser = getDefaultUser();
+    when(mockUserRepository.findById(expectedUser.getUserId()))
+        .thenReturn(Optional.of(expectedUser));
+
+    userService.getUserById(expectedUser.getUserId());
+    Optional<User> actual = userService.getUserById(expectedUser.getUserId());
+
+    assertEquals(Optional.of(expectedUser), actual);
+    verify(mockUserRepository, times(1)).findById(expectedUser.getUserId());
+  }
+
+  @Test
+  public void findUserById_reloadedAfterUpdate() {
+    User originalUser = getDefaultUser();
+    User updatedUser =
+        new User(
+            originalUser.getUserId(),
+            "Thomas",
+            originalUser.getLastName(),
+            originalUser.getEmailAddress(),
+            originalUser.getApproverId());
+    when(mockUserRepository.findById(originalUser.getUserId()))
+        .thenReturn(Optional.of(originalUser))
+        .thenReturn(Optional.of(getDefaultUser()))
+        .thenReturn(Optional.of(updatedUser));
+    when(mockUserRepository.saveAndFlush(any(User.class))).thenReturn(updatedUser);
+
+    userService.getUserById(originalUser.getUserId());
+    userService.updateUser(
+        updatedUser.getUserId(),
+        updatedUser.getFirstName(),
+        updatedUser.getLastName(),
+        updatedUser.getEmailAddress(),
+        updatedUser.getApproverId(),
+        null);
+    Optional<User> actual = userService.getUserById(originalUser.getUserId());
+
+    assertEquals(Optional.of(updatedUser), actual);
+    verify(mockUserRepository, times(3)).findById(originalUser.getUserId());
+  }
+
+  @Test
+  public void findUserByEmail_servedFromCacheAfterLookupById() {
+    User expectedUser = getDefaultUser();
+    when(mockUserRepository.findById(expectedUser.getUserId()))
+        .thenReturn(Optional.of(expectedUser));
+
+    userService.getUserById(expectedUser.getUserId());
+    Optional<User> actual = userService.getUserByEmail(expectedUser.getEmailAddress());
+
+    assertEquals(Optional.of(expectedUser), actual);
+    verify(mockUserRepository, never()).findUserByEmailAddress(expectedUser.getEmailAddress());
+  }
+
+  @Test
+  public void findUserByEmail_notServedFromCacheAfterDelete() {
+    User deletedUser = getDefaultUser();
+    when(mockUserRepository.findById(deletedUser.getUserId())).thenReturn(Optional.of(deletedUser));
+    when(mockUserRepository.deleteAllByUserIdInReturning(
+            Collections.singletonList(deletedUser.getUserId())))
+        .thenReturn(Collections.singletonList(deletedUser));
+    when(mockUserRepository.findUserByEmailAddress(deletedUser.getEmailAddress()))
+        .thenReturn(Optional.empty());
+
+    userService.getUserById(deletedUser.getUserId());
+    userService.deleteUser(deletedUser.getUserId());
+    Optional<User> actual = userService.getUserByEmail(deletedUser.getEmailAddress());
+
+    assertEquals(Optional.empty(), actual);
+    verify(mockUserRepository, times(1)).findUserByEmailAddress(deletedUser.getEmailAddress());
+  }
+
   @Test
   public void findUserByEmail_successful() {
     Optional<User> expectedUser = Optional.of(getDefaultUser());
@@ -179,6 +494,46 @@ public class UserServiceImplTests {
     assertEquals(Optional.empty(), actualUser);
   }
 
+  @Test
+  public void findUserByEmail_definiteMissSkipsRepository() throws InterruptedException {
+    emailFilter.publish(emailFilter.startRebuild(100, Duration.ZERO));
+
+    Optional<User> actualUser = userService.getUserByEmail("nobody@email.com");
+
+    assertEquals(Optional.empty(), actualUser);
+    verifyZeroInteractions(mockUserRepository);
+  }
+
+  @Test
+  public void findUserByEmail_falsePositiveIsCounted() throws InterruptedException {
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    emailFilter.bindTo(meterRegistry);
+    emailFilter.publish(emailFilter.startRebuild(100, Duration.ZERO));
+    emailFilter.add("gone@email.com");
+    when(mockUserRepository.findUserByEmailAddress("gone@email.com")).thenReturn(Optional.empty());
+
+    Optional<User> actualUser = userService.getUserByEmail("gone@email.com");
+
+    assertEquals(Optional.empty(), actualUser);
+    assertEquals(
+        1, meterRegistry.get("users.email-filter.false-positives").functionCounter().count(), 0);
+  }
+
+  @Test
+  public void createUser_addsEmailToFilter() throws InterruptedException {
+    User createdUser = getDefaultUser();
+    emailFilter.publish(emailFilter.startRebuild(100, Duration.ZERO));
+    when(mockUserRepository.saveAndFlush(any(User.class))).thenReturn(createdUser);
+
+    userService.createUser(
+        createdUser.getFirstName(),
+        createdUser.getLastName(),
+        createdUser.getEmailAddress(),
+        createdUser.getApproverId());
+
+    assertTrue(emailFilter.mightExist(createdUser.getEmailAddress()));
+  }
+
   @Test
   public void findUserByName_successful() {
     User expectedUser = getDefaultUser();
@@ -207,19 +562,392 @@ public class UserServiceImplTests {
   public void findAllUsersWithApprover_successful() {
     User approver = getDefaultUser();
     List<User> expectedUsers = getListOfUsers();
-    when(mockUserRepository.findById(approver.getUserId())).thenReturn(Optional.of(approver));
-    when(mockUserRepository.findAllByApproverId(approver.getUserId()))
-        .thenReturn(Optional.of(getListOfUsers()));
+    when(mockUserRepository.findAllByApproverId(approver.getUserId(), 0L, Pageable.unpaged()))
+        .thenReturn(approverAndReports(approver, expectedUsers));
 
     List<User> actualUsers = userService.getAllUsersByApprover(approver.getUserId());
 
     assertEquals(expectedUsers, actualUsers);
+    verify(mockUserRepository, times(1))
+        .findAllByApproverId(approver.getUserId(), 0L, Pageable.unpaged());
+    verifyNoMoreInteractions(mockUserRepository);
+  }
+
+  @Test
+  public void findAllUsersWithApprover_noReports() {
+    User approver = getDefaultUser();
+    when(mockUserRepository.findAllByApproverId(approver.getUserId(), 0L, Pageable.unpaged()))
+        .thenReturn(approverAndReports(approver, Collections.singletonList(null)));
+
+    List<User> actualUsers = userService.getAllUsersByApprover(approver.getUserId());
+
+    assertEquals(Collections.emptyList(), actualUsers);
   }
 
   @Test(expected = InvalidUserException.class)
   public void findAllUsersWithApprover_approverNotFound() {
     User approver = getDefaultUser();
-    when(mockUserRepository.findById(approver.getUserId())).thenReturn(Optional.empty());
+    when(mockUserRepository.findAllByApproverId(approver.getUserId(), 0L, Pageable.unpaged()))
+        .thenReturn(Collections.emptyList());
     userService.getAllUsersByApprover(approver.getUserId());
   }
+
+  @Test
+  public void getUsersByApprover_returnsPageAfterCursor() {
+    User approver = getDefaultUser();
+    List<User> expectedUsers = getListOfUsers();
+    when(mockUserRepository.findAllByApproverId(approver.getUserId(), 100L, PageRequest.of(0, 2)))
+        .thenReturn(approverAndReports(approver, expectedUsers));
+
+    List<User> actualUsers = userService.getUsersByApprover(approver.getUserId(), 100L, 2);
+
+    assertEquals(expectedUsers, actualUsers);
+  }
+
+  @Test(expected = InvalidUserException.class)
+  public void getUsersByApprover_approverNotFound() {
+    when(mockUserRepository.findAllByApproverId(1234L, 0L, PageRequest.of(0, 10)))
+        .thenReturn(Collections.emptyList());
+
+    userService.getUsersByApprover(1234L, null, 10);
+  }
+
+  private static List<Object[]> approverAndReports(User approver, List<User> reports) {
+    List<Object[]> rows = new ArrayList<>();
+    for (User report : reports) rows.add(new Object[] {approver, report});
+    return rows;
+  }
+
+  @Test
+  public void getUsersByIds_successful() {
+    List<User> expectedUsers = getListOfUsers();
+    List<Long> userIds = Arrays.asList(123L, 124L);
+    when(mockUserRepository.findAllByUserIdIn(userIds)).thenReturn(expectedUsers);
+
+    List<User> actualUsers = userService.getUsersByIds(userIds);
+
+    assertEquals(expectedUsers, actualUsers);
+    verify(mockUserRepository, times(1)).findAllByUserIdIn(userIds);
+    verifyNoMoreInteractions(mockUserRepository);
+  }
+
+  @Test
+  public void getUsersByIds_onlyQueriesCacheMisses() {
+    User cachedUser = getDefaultUser();
+    User otherUser = getListOfUsers().get(1);
+    when(mockUserRepository.findById(cachedUser.getUserId())).thenReturn(Optional.of(cachedUser));
+    when(mockUserRepository.findAllByUserIdIn(Collections.singletonList(otherUser.getUserId())))
+        .thenReturn(Collections.singletonList(otherUser));
+
+    userService.getUserById(cachedUser.getUserId());
+    List<User> actualUsers =
+        userService.getUsersByIds(Arrays.asList(cachedUser.getUserId(), otherUser.getUserId()));
+
+    assertEquals(Arrays.asList(cachedUser, otherUser), actualUsers);
+    verify(mockUserRepository, times(1))
+        .findAllByUserIdIn(Collections.singletonList(otherUser.getUserId()));
+  }
+
+  @Test
+  public void getUsersByIds_queriesInChunks() {
+    List<Long> userIds = new ArrayList<>();
+    for (long id = 0; id < 1200; id++) userIds.add(id);
+    when(mockUserRepository.findAllByUserIdIn(any())).thenReturn(Collections.emptyList());
+
+    userService.getUsersByIds(userIds);
+
+    verify(mockUserRepository, times(3)).findAllByUserIdIn(any());
+  }
+
+  @Test
+  public void getUsersByEmails_successful() {
+    List<User> expectedUsers = getListOfUsers();
+    List<String> emails = Arrays.asList("john.doe@email.com", "jane.doe@email.com");
+    when(mockUserRepository.findAllByEmailAddressIn(emails)).thenReturn(expectedUsers);
+
+    List<User> actualUsers = userService.getUsersByEmails(emails);
+
+    assertEquals(expectedUsers, actualUsers);
+    verify(mockUserRepository, times(1)).findAllByEmailAddressIn(emails);
+    verifyNoMoreInteractions(mockUserRepository);
+  }
+
+  @Test
+  public void getUsersByEmails_onlyQueriesEmailsThatMightExist() throws InterruptedException {
+    User expectedUser = getDefaultUser();
+    emailFilter.publish(emailFilter.startRebuild(100, Duration.ZERO));
+    emailFilter.add(expectedUser.getEmailAddress());
+    List<String> knownEmails = Collections.singletonList(expectedUser.getEmailAddress());
+    when(mockUserRepository.findAllByEmailAddressIn(knownEmails))
+        .thenReturn(Collections.singletonList(expectedUser));
+
+    List<User> actualUsers =
+        userService.getUsersByEmails(Arrays.asList(expectedUser.getEmailAddress(), "x@email.com"));
+
+    assertEquals(Collections.singletonList(expectedUser), actualUsers);
+    verify(mockUserRepository, times(1)).findAllByEmailAddressIn(knownEmails);
+  }
+
+  @Test
+  public void getUsersByEmails_falsePositivesAreCounted() throws InterruptedException {
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    emailFilter.bindTo(meterRegistry);
+    User expectedUser = getDefaultUser();
+    emailFilter.publish(emailFilter.startRebuild(100, Duration.ZERO));
+    emailFilter.add(expectedUser.getEmailAddress());
+    emailFilter.add("gone@email.com");
+    List<String> emails = Arrays.asList(expectedUser.getEmailAddress(), "gone@email.com");
+    when(mockUserRepository.findAllByEmailAddressIn(emails))
+        .thenReturn(Collections.singletonList(expectedUser));
+
+    userService.getUsersByEmails(Arrays.asList(expectedUser.getEmailAddress(), "gone@email.com"));
+
+    assertEquals(
+        1, meterRegistry.get("users.email-filter.false-positives").functionCounter().count(), 0);
+  }
+
+  @Test
+  public void getUserFieldsByEmails_falsePositivesAreCounted() throws InterruptedException {
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    emailFilter.bindTo(meterRegistry);
+    EnumSet<UserField> fields = EnumSet.of(UserField.USER_ID);
+    emailFilter.publish(emailFilter.startRebuild(100, Duration.ZERO));
+    emailFilter.add("gone@email.com");
+    emailFilter.add("also.gone@email.com");
+    List<String> emails = Arrays.asList("gone@email.com", "also.gone@email.com");
+    when(mockUserRepository.findFieldsByEmailAddressIn(emails, fields))
+        .thenReturn(Collections.emptyList());
+
+    userService.getUserFieldsByEmails(
+        Arrays.asList("gone@email.com", "also.gone@email.com", "gone@email.com"), fields);
+
+    assertEquals(
+        2, meterRegistry.get("users.email-filter.false-positives").functionCounter().count(), 0);
+  }
+
+  @Test
+  public void getUserFieldsById_selectsOnlyRequestedFields() {
+    EnumSet<UserField> fields = EnumSet.of(UserField.USER_ID, UserField.EMAIL_ADDRESS);
+    UserFields expectedFields = UserFields.of(getDefaultUser(), fields);
+    when(mockUserRepository.findFieldsByUserIdIn(Collections.singletonList(123L), fields))
+        .thenReturn(Collections.singletonList(expectedFields));
+
+    Optional<UserFields> actualFields = userService.getUserFieldsById(123L, fields);
+
+    assertEquals(Optional.of(expectedFields), actualFields);
+    verify(mockUserRepository, times(1))
+        .findFieldsByUserIdIn(Collections.singletonList(123L), fields);
+    verifyNoMoreInteractions(mockUserRepository);
+  }
+
+  @Test
+  public void getUserFieldsByEmail_projectsCachedUser() {
+    User cachedUser = getDefaultUser();
+    EnumSet<UserField> fields = EnumSet.of(UserField.USER_ID, UserField.APPROVER_ID);
+    when(mockUserRepository.findById(cachedUser.getUserId())).thenReturn(Optional.of(cachedUser));
+
+    userService.getUserById(cachedUser.getUserId());
+    Optional<UserFields> actualFields =
+        userService.getUserFieldsByEmail(cachedUser.getEmailAddress(), fields);
+
+    assertEquals(Optional.of(UserFields.of(cachedUser, fields)), actualFields);
+    verify(mockUserRepository, never()).findFieldsByEmailAddressIn(any(), any());
+  }
+
+  @Test
+  public void getUserFieldsByIds_onlyQueriesCacheMisses() {
+    User cachedUser = getDefaultUser();
+    User otherUser = getListOfUsers().get(1);
+    EnumSet<UserField> fields = EnumSet.of(UserField.USER_ID, UserField.FIRST_NAME);
+    when(mockUserRepository.findById(cachedUser.getUserId())).thenReturn(Optional.of(cachedUser));
+    when(mockUserRepository.findFieldsByUserIdIn(
+            Collections.singletonList(otherUser.getUserId()), fields))
+        .thenReturn(Collections.singletonList(UserFields.of(otherUser, fields)));
+
+    userService.getUserById(cachedUser.getUserId());
+    List<UserFields> actualFields =
+        userService.getUserFieldsByIds(
+            Arrays.asList(cachedUser.getUserId(), otherUser.getUserId()), fields);
+
+    assertEquals(
+        Arrays.asList(UserFields.of(cachedUser, fields), UserFields.of(otherUser, fields)),
+        actualFields);
+  }
+
+  @Test(expected = InvalidUserException.class)
+  public void getUserFieldsByApprover_approverNotFound() {
+    EnumSet<UserField> fields = EnumSet.of(UserField.USER_ID);
+    when(mockUserRepository.findFieldsByApproverId(1234L, 0L, 10, fields))
+        .thenReturn(Collections.emptyList());
+    when(mockUserRepository.existsById(1234L)).thenReturn(false);
+
+    userService.getUserFieldsByApprover(1234L, null, 10, fields);
+  }
+
+  @Test
+  public void createUsers_successful() {
+    List<User> usersToCreate = getListOfUsers();
+    when(mockUserRepository.findAllByEmailAddressIn(any())).thenReturn(Collections.emptyList());
+    when(mockUserRepository.insertAllInBatches(any())).thenReturn(usersToCreate);
+
+    List<User> createdUsers = userService.createUsers(usersToCreate);
+
+    assertEquals(usersToCreate, createdUsers);
+    verify(mockUserRepository, times(1))
+        .findAllByEmailAddressIn(Arrays.asList("john.doe@email.com", "jane.doe@email.com"));
+    verify(mockUserRepository, times(1)).insertAllInBatches(any());
+    verifyNoMoreInteractions(mockUserRepository);
+    verify(mockUserChangeRepository, times(1))
+        .saveAll(argThat(changes -> ((List<UserChange>) changes).size() == 2));
+  }
+
+  @Test(expected = InvalidUserException.class)
+  public void createUsers_alreadyExists() {
+    List<User> usersToCreate = getListOfUsers();
+    when(mockUserRepository.findAllByEmailAddressIn(any()))
+        .thenReturn(Collections.singletonList(getDefaultUser()));
+
+    userService.createUsers(usersToCreate);
+  }
+
+  @Test(expected = InvalidUserException.class)
+  public void createUsers_duplicateEmailInRequest() {
+    userService.createUsers(Arrays.asList(getDefaultUser(), getDefaultUser()));
+  }
+
+  @Test
+  public void forEachUser_detachesEveryUser() {
+    List<User> users = getListOfUsers();
+    when(mockUserRepository.streamAllUsers()).thenReturn(users.stream());
+    List<User> visitedUsers = new ArrayList<>();
+
+    userService.forEachUser(visitedUsers::add);
+
+    assertEquals(users, visitedUsers);
+    verify(mockUserRepository, times(1)).detach(users.get(0));
+    verify(mockUserRepository, times(1)).detach(users.get(1));
+  }
+
+  @Test
+  public void getAllReportsOfApprover_successful() {
+    List<User> expectedUsers = getListOfUsers();
+    when(mockUserRepository.findAllReportsOfApprover(1234L)).thenReturn(expectedUsers);
+
+    List<User> actualUsers = userService.getAllReportsOfApprover(1234L);
+
+    assertEquals(expectedUsers, actualUsers);
+    verify(mockUserRepository, times(1)).findAllReportsOfApprover(1234L);
+    verifyNoMoreInteractions(mockUserRepository);
+  }
+
+  @Test(expected = InvalidUserException.class)
+  public void getAllReportsOfApprover_approverNotFound() {
+    when(mockUserRepository.findAllReportsOfApprover(1234L)).thenReturn(Collections.emptyList());
+    when(mockUserRepository.existsById(1234L)).thenReturn(false);
+
+    userService.getAllReportsOfApprover(1234L);
+  }
+
+  @Test
+  public void getApprovalChain_successful() {
+    User user = getDefaultUser();
+    User approver = new User(1234L, "Jane", "Boss", "jane.boss@email.com", null);
+    when(mockUserRepository.findApprovalChain(user.getUserId()))
+        .thenReturn(Arrays.asList(user, approver));
+
+    List<User> chain = userService.getApprovalChain(user.getUserId());
+
+    assertEquals(Arrays.asList(user, approver), chain);
+  }
+
+  @Test
+  public void getApprovalChain_selfApprovedRoot() {
+    User user = getDefaultUser();
+    User approver = new User(1234L, "Jane", "Boss", "jane.boss@email.com", 1234L);
+    when(mockUserRepository.findApprovalChain(user.getUserId()))
+        .thenReturn(Arrays.asList(user, approver));
+
+    List<User> chain = userService.getApprovalChain(user.getUserId());
+
+    assertEquals(Arrays.asList(user, approver), chain);
+  }
+
+  @Test(expected = ApprovalCycleException.class)
+  public void getApprovalChain_cycle() {
+    User user = getDefaultUser();
+    User approver = new User(1234L, "Jane", "Boss", "jane.boss@email.com", user.getUserId());
+    when(mockUserRepository.findApprovalChain(user.getUserId()))
+        .thenReturn(Arrays.asList(user, approver));
+
+    userService.getApprovalChain(user.getUserId());
+  }
+
+  @Test(expected = InvalidUserException.class)
+  public void getApprovalChain_userNotFound() {
+    when(mockUserRepository.findApprovalChain(123L)).thenReturn(Collections.emptyList());
+
+    userService.getApprovalChain(123L);
+  }
+
+  @Test
+  public void searchUsers_normalisesPrefix() {
+    List<User> expectedUsers = getListOfUsers();
+    when(mockUserRepository.searchByPrefix("john d", "john e", 10)).thenReturn(expectedUsers);
+
+    List<User> actualUsers = userService.searchUsers("  John   D ", 10);
+
+    assertEquals(expectedUsers, actualUsers);
+  }
+
+  @Test
+  public void searchUsers_incrementsTheLastCodePointOfASurrogatePair() {
+    List<User> expectedUsers = getListOfUsers();
+    // U+1F7FF is followed by U+1F800, whose high surrogate differs
+    when(mockUserRepository.searchByPrefix("a\uD83D\uDFFF", "a\uD83E\uDC00", 10))
+        .thenReturn(expectedUsers);
+
+    List<User> actualUsers = userService.searchUsers("a\uD83D\uDFFF", 10);
+
+    assertEquals(expectedUsers, actualUsers);
+  }
+
+  @Test
+  public void searchUsers_carriesPastTheLastCodePoint() {
+    List<User> expectedUsers = getListOfUsers();
+    when(mockUserRepository.searchByPrefix("a\uFFFF\uDBFF\uDFFF", "a\uD800\uDC00", 10))
+        .thenReturn(expectedUsers);
+
+    List<User> actualUsers = userService.searchUsers("a\uFFFF\uDBFF\uDFFF", 10);
+
+    assertEquals(expectedUsers, actualUsers);
+  }
+
+  @Test
+  public void searchUsers_skipsTheSurrogateRange() {
+    List<User> expectedUsers = getListOfUsers();
+    when(mockUserRepository.searchByPrefix("a\uD7FF", "a\uE000", 10)).thenReturn(expectedUsers);
+
+    List<User> actualUsers = userService.searchUsers("a\uD7FF", 10);
+
+    assertEquals(expectedUsers, actualUsers);
+  }
+
+  @Test
+  public void searchUsers_noUpperBoundAfterTheLastCodePoint() {
+    List<User> expectedUsers = getListOfUsers();
+    when(mockUserRepository.searchFromPrefix("\uDBFF\uDFFF", 10)).thenReturn(expectedUsers);
+
+    List<User> actualUsers = userService.searchUsers("\uDBFF\uDFFF", 10);
+
+    assertEquals(expectedUsers, actualUsers);
+    verify(mockUserRepository, never()).searchByPrefix(anyString(), anyString(), anyInt());
+  }
+
+  @Test
+  public void searchUsers_blankQuery() {
+    List<User> actualUsers = userService.searchUsers("   ", 10);
+
+    assertEquals(Collections.emptyList(), actualUsers);
+    verifyNoMoreInteractions(mockUserRepository);
+  }
 }